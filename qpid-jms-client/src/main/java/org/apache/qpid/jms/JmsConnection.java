@@ -18,15 +18,19 @@ package org.apache.qpid.jms;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.Connection;
@@ -70,6 +74,7 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.util.IdGenerator;
+import org.apache.qpid.jms.util.QpidJMSThreadFactory;
 import org.apache.qpid.jms.util.ThreadPoolUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,11 +103,18 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     private URI connectedURI;
     private JmsPrefetchPolicy prefetchPolicy = new JmsPrefetchPolicy();
     private boolean localMessagePriority;
+    private int localMessagePriorityStarvationLimit;
     private boolean clientIdSet;
     private boolean sendAcksAsync;
+    private boolean zeroCopyDelivery;
+    private boolean messageRecycling;
+    private int sessionDispatcherPoolSize;
+    private boolean useVirtualThreads;
+    private boolean localMessageSelection;
     private ExceptionListener exceptionListener;
 
     private final ThreadPoolExecutor executor;
+    private ThreadPoolExecutor sessionDispatcher;
 
     private Provider provider;
     private final Set<JmsConnectionListener> connectionListeners =
@@ -114,6 +126,32 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     private final AtomicLong transactionIdGenerator = new AtomicLong();
     private JmsMessageFactory messageFactory;
 
+    private final ConcurrentLinkedQueue<JmsInboundMessageDispatch> pendingInbound =
+        new ConcurrentLinkedQueue<JmsInboundMessageDispatch>();
+    private final AtomicBoolean inboundDispatchScheduled = new AtomicBoolean();
+    private final Runnable inboundDispatchTask = new Runnable() {
+
+        @Override
+        public void run() {
+            do {
+                JmsInboundMessageDispatch envelope = null;
+                while ((envelope = pendingInbound.poll()) != null) {
+                    for (JmsConnectionListener listener : connectionListeners) {
+                        try {
+                            listener.onInboundMessage(envelope);
+                        } catch (Throwable error) {
+                            LOG.debug("Connection listener failed handling inbound message: {}", error.getMessage());
+                        }
+                    }
+                }
+
+                inboundDispatchScheduled.set(false);
+
+                // Handles a message queued after the last poll that saw the task as still scheduled.
+            } while (!pendingInbound.isEmpty() && inboundDispatchScheduled.compareAndSet(false, true));
+        }
+    };
+
     protected JmsConnection(final String connectionId, Provider provider, IdGenerator clientIdGenerator) throws JMSException {
 
         // This executor can be used for dispatching asynchronous tasks that might block or result
@@ -123,9 +161,9 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r, "QpidJMS Connection Executor: " + connectionId);
-                thread.setDaemon(false);
-                return thread;
+                // Threads are created on first use, after the connection has been configured.
+                return new QpidJMSThreadFactory(
+                    "QpidJMS Connection Executor: " + connectionId, false, useVirtualThreads).newThread(r);
             }
         });
 
@@ -154,7 +192,7 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
 
             if (!closed.get() && !failed.get()) {
                 // do not fail if already closed as specified by the JMS specification.
-                doStop(false);
+                doStop(false, false);
             }
 
             synchronized (this) {
@@ -207,6 +245,13 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                 LOG.warn("Error shutting down thread pool: " + executor + ". This exception will be ignored.", e);
             }
 
+            synchronized (this) {
+                if (sessionDispatcher != null) {
+                    sessionDispatcher.shutdown();
+                    sessionDispatcher = null;
+                }
+            }
+
             if (provider != null) {
                 provider.close();
                 provider = null;
@@ -340,7 +385,7 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
      */
     @Override
     public void stop() throws JMSException {
-        doStop(true);
+        doStop(true, true);
     }
 
     /**
@@ -348,16 +393,18 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
      * @param checkClosed <tt>true</tt> to check for already closed and throw
      *                    {@link java.lang.IllegalStateException} if already closed,
      *                    <tt>false</tt> to skip this check
+     * @param revokeCredit <tt>true</tt> to have consumers revoke their link credit so
+     *                     the remote peer stops sending until the connection is started.
      * @throws JMSException if the JMS provider fails to stop message delivery due to some internal error.
      */
-    void doStop(boolean checkClosed) throws JMSException {
+    void doStop(boolean checkClosed, boolean revokeCredit) throws JMSException {
         if (checkClosed) {
             checkClosedOrFailed();
         }
         if (started.compareAndSet(true, false)) {
             synchronized(sessions) {
                 for (JmsSession s : sessions.values()) {
-                    s.stop();
+                    s.stop(revokeCredit);
                 }
             }
         }
@@ -513,9 +560,11 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
 
     protected void addDispatcher(JmsConsumerId consumerId, JmsMessageDispatcher dispatcher) {
         dispatchers.put(consumerId, dispatcher);
+        consumerId.setDispatcherHint(dispatcher);
     }
 
     protected void removeDispatcher(JmsConsumerId consumerId) {
+        consumerId.setDispatcherHint(null);
         dispatchers.remove(consumerId);
     }
 
@@ -612,6 +661,38 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         return clientIdSet;
     }
 
+    /**
+     * Returns the pool of threads that the sessions of this connection share for
+     * asynchronous message delivery, creating it on first use.  When no pool size
+     * has been configured each session uses its own dispatcher thread instead.
+     *
+     * @return the shared session dispatcher, or null if sessions should use their own.
+     */
+    protected synchronized Executor getSessionDispatcher() {
+        if (sessionDispatcherPoolSize <= 0 || closed.get()) {
+            return null;
+        }
+
+        if (sessionDispatcher == null) {
+            final String connectionId = connectionInfo.getConnectionId().toString();
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            sessionDispatcher = new ThreadPoolExecutor(
+                sessionDispatcherPoolSize, sessionDispatcherPoolSize, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runner) {
+                    String name = "QpidJMS Session Dispatcher: " + connectionId + ":" + threadCount.incrementAndGet();
+                    return new QpidJMSThreadFactory(name, true, useVirtualThreads).newThread(runner);
+                }
+            });
+            sessionDispatcher.allowCoreThreadTimeOut(true);
+        }
+
+        return sessionDispatcher;
+    }
+
     //----- Provider interface methods ---------------------------------------//
 
     void createResource(JmsResource resource) throws JMSException {
@@ -698,6 +779,19 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         }
     }
 
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            ProviderFuture request = new ProviderFuture();
+            provider.acknowledge(envelopes, ackType, request);
+            request.sync();
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
     void acknowledge(JmsSessionId sessionId) throws JMSException {
         checkClosedOrFailed();
         connect();
@@ -763,13 +857,13 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         }
     }
 
-    void pull(JmsConsumerId consumerId, long timeout) throws JMSException {
+    void pull(JmsConsumerId consumerId, long timeout, int count) throws JMSException {
         checkClosedOrFailed();
         connect();
 
         try {
             ProviderFuture request = new ProviderFuture();
-            provider.pull(consumerId, timeout, request);
+            provider.pull(consumerId, timeout, count, request);
             request.sync();
         } catch (Exception ioe) {
             throw JmsExceptionSupport.create(ioe);
@@ -861,6 +955,38 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         this.localMessagePriority = localMessagePriority;
     }
 
+    public int getLocalMessagePriorityStarvationLimit() {
+        return localMessagePriorityStarvationLimit;
+    }
+
+    public void setLocalMessagePriorityStarvationLimit(int localMessagePriorityStarvationLimit) {
+        this.localMessagePriorityStarvationLimit = localMessagePriorityStarvationLimit;
+    }
+
+    public int getSessionDispatcherPoolSize() {
+        return sessionDispatcherPoolSize;
+    }
+
+    public void setSessionDispatcherPoolSize(int sessionDispatcherPoolSize) {
+        this.sessionDispatcherPoolSize = sessionDispatcherPoolSize;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    public boolean isLocalMessageSelection() {
+        return localMessageSelection;
+    }
+
+    public void setLocalMessageSelection(boolean localMessageSelection) {
+        this.localMessageSelection = localMessageSelection;
+    }
+
     public long getCloseTimeout() {
         return connectionInfo.getCloseTimeout();
     }
@@ -964,6 +1090,22 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         this.sendAcksAsync = sendAcksAsync;
     }
 
+    public boolean isZeroCopyDelivery() {
+        return zeroCopyDelivery;
+    }
+
+    public void setZeroCopyDelivery(boolean zeroCopyDelivery) {
+        this.zeroCopyDelivery = zeroCopyDelivery;
+    }
+
+    public boolean isMessageRecycling() {
+        return messageRecycling;
+    }
+
+    public void setMessageRecycling(boolean messageRecycling) {
+        this.messageRecycling = messageRecycling;
+    }
+
     //----- Async event handlers ---------------------------------------------//
 
     @Override
@@ -976,21 +1118,33 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
             incoming.setReadOnlyProperties(true);
         }
 
-        JmsMessageDispatcher dispatcher = dispatchers.get(envelope.getConsumerId());
+        // The provider normally hands back the same Id instance the consumer was created
+        // with so the dispatcher can be taken from it without a map lookup.
+        JmsConsumerId consumerId = envelope.getConsumerId();
+        JmsMessageDispatcher dispatcher = null;
+        if (consumerId.getDispatcherHint() instanceof JmsMessageDispatcher) {
+            dispatcher = (JmsMessageDispatcher) consumerId.getDispatcherHint();
+        } else {
+            dispatcher = dispatchers.get(consumerId);
+        }
+
         if (dispatcher != null) {
             dispatcher.onInboundMessage(envelope);
         }
 
         // Run the application callbacks on the connection executor to allow the provider to
         // return to its normal processing without waiting for client level processing to finish.
-        for (final JmsConnectionListener listener : connectionListeners) {
-            executor.submit(new Runnable() {
-
-                @Override
-                public void run() {
-                    listener.onInboundMessage(envelope);
+        // A single task drains the pending messages so only one is submitted while it runs.
+        if (!connectionListeners.isEmpty()) {
+            pendingInbound.add(envelope);
+            if (inboundDispatchScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(inboundDispatchTask);
+                } catch (RuntimeException ex) {
+                    inboundDispatchScheduled.set(false);
+                    throw ex;
                 }
-            });
+            }
         }
     }
 
@@ -59,7 +59,13 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
     private boolean forceAsyncSend;
     private boolean alwaysSyncSend;
     private boolean sendAcksAsync;
+    private boolean zeroCopyDelivery;
+    private boolean messageRecycling;
     private boolean localMessagePriority;
+    private int localMessagePriorityStarvationLimit;
+    private int sessionDispatcherPoolSize;
+    private boolean useVirtualThreads;
+    private boolean localMessageSelection;
     private String queuePrefix = null;
     private String topicPrefix = null;
     private long sendTimeout = JmsConnectionInfo.DEFAULT_SEND_TIMEOUT;
@@ -398,6 +404,90 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
         this.localMessagePriority = localMessagePriority;
     }
 
+    /**
+     * @return the localMessagePriorityStarvationLimit configuration option.
+     */
+    public int getLocalMessagePriorityStarvationLimit() {
+        return localMessagePriorityStarvationLimit;
+    }
+
+    /**
+     * When client-side message priority is enabled, sets how many higher priority
+     * messages a consumer dispatches while lower priority messages are waiting before
+     * the oldest message of the lowest waiting priority is dispatched.  The default
+     * value of zero dispatches in strict priority order.
+     *
+     * @param localMessagePriorityStarvationLimit
+     *        the number of higher priority messages dispatched ahead of a waiting lower
+     *        priority message, or zero to disable.
+     */
+    public void setLocalMessagePriorityStarvationLimit(int localMessagePriorityStarvationLimit) {
+        this.localMessagePriorityStarvationLimit = localMessagePriorityStarvationLimit;
+    }
+
+    /**
+     * @return the sessionDispatcherPoolSize configuration option.
+     */
+    public int getSessionDispatcherPoolSize() {
+        return sessionDispatcherPoolSize;
+    }
+
+    /**
+     * Sets the number of threads a Connection shares between all of its Sessions for
+     * asynchronous delivery to MessageListeners.  Each Session still delivers its
+     * messages one at a time and in order, but an application with many Sessions no
+     * longer needs a dispatcher thread per Session.  The default value of zero gives
+     * each Session its own dispatcher thread.
+     *
+     * @param sessionDispatcherPoolSize
+     *        the number of shared dispatcher threads, or zero to disable.
+     */
+    public void setSessionDispatcherPoolSize(int sessionDispatcherPoolSize) {
+        this.sessionDispatcherPoolSize = sessionDispatcherPoolSize;
+    }
+
+    /**
+     * @return the useVirtualThreads configuration option.
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Sets whether a Connection runs its executor and Session dispatchers on virtual
+     * threads.  This allows an application to block in many Sessions and consumers
+     * without tying up a platform thread for each.  The option is ignored if the JVM
+     * does not support virtual threads.  Virtual threads are always daemon threads,
+     * so when enabled an open Connection no longer prevents the JVM from exiting.
+     *
+     * @param useVirtualThreads
+     *        true to run Connection and Session threads as virtual threads.
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * @return the localMessageSelection configuration option.
+     */
+    public boolean isLocalMessageSelection() {
+        return localMessageSelection;
+    }
+
+    /**
+     * Sets whether MessageConsumer instances evaluate their message selector against
+     * each arriving message in addition to sending it to the remote peer.  Messages
+     * that do not match are handed back to the remote peer as undeliverable to that
+     * consumer and never reach the application.  This is useful when the remote peer
+     * does not support message selectors and silently ignores them.
+     *
+     * @param localMessageSelection
+     *        true to evaluate message selectors in the client.
+     */
+    public void setLocalMessageSelection(boolean localMessageSelection) {
+        this.localMessageSelection = localMessageSelection;
+    }
+
     /**
      * Returns the prefix applied to Queues that are created by the client.
      *
@@ -618,4 +708,47 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
     public void setSendAcksAsync(boolean sendAcksAsync) {
         this.sendAcksAsync = sendAcksAsync;
     }
+
+    /**
+     * @return true if received messages are handed to the application without first being copied.
+     */
+    public boolean isZeroCopyDelivery() {
+        return zeroCopyDelivery;
+    }
+
+    /**
+     * Should consumers hand the received message instance directly to the application
+     * instead of delivering a copy of it.  Received messages are read-only so in most
+     * cases no copy is needed, if the application calls clearBody or clearProperties
+     * a private copy is made at that point so that a later redelivery of the message
+     * is not affected by the changes.
+     *
+     * @param zeroCopyDelivery
+     *        true to deliver received messages without copying them.
+     */
+    public void setZeroCopyDelivery(boolean zeroCopyDelivery) {
+        this.zeroCopyDelivery = zeroCopyDelivery;
+    }
+
+    /**
+     * @return true if consumed messages hand their decoding resources back for reuse.
+     */
+    public boolean isMessageRecycling() {
+        return messageRecycling;
+    }
+
+    /**
+     * Should consumers hand the provider resources held by a received message back for
+     * reuse once the message has been consumed.  Messages are recycled automatically
+     * after an auto or dups-ok acknowledged consumer has finished with them, any other
+     * message can be recycled by calling release on it once it has been acknowledged.
+     * When combined with zero copy delivery a message listener must not keep a reference
+     * to the message it was given once its onMessage call returns.
+     *
+     * @param messageRecycling
+     *        true to recycle the resources of consumed messages.
+     */
+    public void setMessageRecycling(boolean messageRecycling) {
+        this.messageRecycling = messageRecycling;
+    }
 }
@@ -122,7 +122,9 @@ public abstract class JmsDestination extends JNDIStorable implements Externaliza
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        // Compared by kind rather than class so that the read-only instances a provider
+        // may share between messages equal the destinations the application creates.
+        if (!(o instanceof JmsDestination)) {
             return false;
         }
 
@@ -0,0 +1,39 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import org.apache.qpid.jms.message.JmsMessage;
+
+/**
+ * Provides the key used to order Messages when a consumer dispatches to its
+ * MessageListener in parallel.  Messages that share a key are delivered one at
+ * a time and in the order they arrived, Messages with different keys may be
+ * delivered concurrently.
+ */
+public interface JmsDispatchKeyExtractor {
+
+    /**
+     * Returns the ordering key of the given Message.
+     *
+     * @param message
+     *        the Message that is about to be dispatched.
+     *
+     * @return the ordering key, or null if the Message need not be ordered.
+     */
+    Object getDispatchKey(JmsMessage message);
+
+}
@@ -71,6 +71,17 @@ public class JmsLocalTransactionContext implements JmsTransactionContext {
         connection.acknowledge(envelope, ackType);
     }
 
+    @Override
+    public void acknowledge(JmsConnection connection, List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        // Consumed or delivered messages fall into a transaction so we must check
+        // that there is an active one and start one if not.
+        if (ackType == ACK_TYPE.CONSUMED || ackType == ACK_TYPE.DELIVERED) {
+            begin();
+        }
+
+        connection.acknowledge(envelopes, ackType);
+    }
+
     @Override
     public void addSynchronization(JmsTxSynchronization sync) throws JMSException {
         if (synchronizations == null) {
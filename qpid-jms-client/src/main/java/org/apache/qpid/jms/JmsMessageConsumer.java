@@ -16,13 +16,17 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.jms.IllegalStateException;
+import javax.jms.InvalidSelectorException;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
@@ -32,20 +36,33 @@ import javax.jms.Session;
 import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.jms.message.JmsMessageFilterable;
 import org.apache.qpid.jms.meta.JmsConsumerId;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
 import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.selector.SelectorParser;
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
 import org.apache.qpid.jms.util.FifoMessageQueue;
 import org.apache.qpid.jms.util.MessageQueue;
 import org.apache.qpid.jms.util.PriorityMessageQueue;
+import org.apache.qpid.jms.util.SerialExecutor;
 
 /**
  * implementation of a JMS Message Consumer
  */
 public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableConsumer, JmsMessageDispatcher {
 
+    private static final JmsDispatchKeyExtractor GROUP_ID_KEY_EXTRACTOR = new JmsDispatchKeyExtractor() {
+
+        @Override
+        public Object getDispatchKey(JmsMessage message) {
+            return message.getFacade().getGroupId();
+        }
+    };
+
     protected final JmsSession session;
     protected final JmsConnection connection;
     protected JmsConsumerInfo consumerInfo;
@@ -60,6 +77,20 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected final AtomicBoolean delivered = new AtomicBoolean();
     protected Exception failureCause;
 
+    private final MessageDeliverTask deliveryTask = new MessageDeliverTask();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final MessageAvailableTask availableTask = new MessageAvailableTask();
+    private final AtomicBoolean availableScheduled = new AtomicBoolean();
+    private volatile SerialExecutor[] dispatchLanes;
+    private volatile JmsDispatchKeyExtractor dispatchKeyExtractor = GROUP_ID_KEY_EXTRACTOR;
+    private final AtomicInteger unkeyedDispatchCount = new AtomicInteger();
+    private final AtomicInteger laneWork = new AtomicInteger();
+    private final AtomicInteger laneWorkWaiters = new AtomicInteger();
+    private final ThreadLocal<Boolean> inLane = new ThreadLocal<Boolean>();
+    private volatile boolean creditRevoked;
+    private volatile JmsMessage lastReceived;
+    private final BooleanExpression localSelector;
+
     /**
      * Create a non-durable MessageConsumer
      *
@@ -97,7 +128,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         }
 
         if (connection.isLocalMessagePriority()) {
-            this.messageQueue = new PriorityMessageQueue();
+            this.messageQueue = new PriorityMessageQueue(connection.getLocalMessagePriorityStarvationLimit());
         } else {
             this.messageQueue = new FifoMessageQueue();
         }
@@ -114,6 +145,12 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         this.consumerInfo.setBrowser(isBrowser());
         this.consumerInfo.setPrefetchSize(getConfiguredPrefetch(destination, policy));
 
+        if (connection.isLocalMessageSelection()) {
+            this.localSelector = parseLocalSelector(selector);
+        } else {
+            this.localSelector = null;
+        }
+
         session.getConnection().createResource(consumerInfo);
     }
 
@@ -188,6 +225,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected void shutdown(Exception cause) throws JMSException {
         if (closed.compareAndSet(false, true)) {
             failureCause = cause;
+            consumeLastReceived();
             session.remove(this);
             stop(true);
         }
@@ -202,10 +240,11 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     public Message receive() throws JMSException {
         checkClosed();
         checkMessageListener();
-        sendPullCommand(0);
+        consumeLastReceived();
+        sendPullCommand(0, 1);
 
         try {
-            return copy(ackFromReceive(this.messageQueue.dequeue(-1)));
+            return receiveCopy(this.messageQueue.dequeue(-1));
         } catch (Exception e) {
             throw JmsExceptionSupport.create(e);
         }
@@ -221,11 +260,16 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     public Message receive(long timeout) throws JMSException {
         checkClosed();
         checkMessageListener();
-        sendPullCommand(timeout);
+        consumeLastReceived();
+        sendPullCommand(timeout, 1);
 
         if (timeout > 0) {
             try {
-                return copy(ackFromReceive(this.messageQueue.dequeue(timeout)));
+                JmsInboundMessageDispatch envelope = this.messageQueue.dequeue(timeout);
+                if (envelope == null && withdrawPullCommand()) {
+                    envelope = this.messageQueue.dequeueNoWait();
+                }
+                return receiveCopy(envelope);
             } catch (InterruptedException e) {
                 throw JmsExceptionSupport.create(e);
             }
@@ -243,9 +287,76 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     public Message receiveNoWait() throws JMSException {
         checkClosed();
         checkMessageListener();
-        sendPullCommand(-1);
+        consumeLastReceived();
+        sendPullCommand(-1, 1);
+
+        return receiveCopy(this.messageQueue.dequeueNoWait());
+    }
+
+    /**
+     * Receives up to the given number of messages, waiting up to the given timeout for
+     * the first message to arrive and then taking any others that are already available
+     * without waiting further.  All messages in the batch are acknowledged together.
+     *
+     * @param maxMessages
+     *        the maximum number of messages to return, must be greater than zero.
+     * @param timeout
+     *        the time in milliseconds to wait for the first message, zero waits until
+     *        a message arrives or the consumer is closed.
+     *
+     * @return a list of the received messages, empty if none arrived before the timeout.
+     *
+     * @throws JMSException if an error occurs while receiving the messages.
+     */
+    public List<Message> receive(int maxMessages, long timeout) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        checkMaxMessages(maxMessages);
+        consumeLastReceived();
+        sendPullCommand(timeout, maxMessages);
+
+        List<JmsInboundMessageDispatch> envelopes = new ArrayList<JmsInboundMessageDispatch>(maxMessages);
+        try {
+            JmsInboundMessageDispatch first = this.messageQueue.dequeue(timeout > 0 ? timeout : -1);
+            if (first != null) {
+                envelopes.add(first);
+                this.messageQueue.dequeueNoWait(envelopes, maxMessages - 1);
+            }
 
-        return copy(ackFromReceive(this.messageQueue.dequeueNoWait()));
+            // Take back whatever part of the pull was not answered, including anything that
+            // arrives while doing so, so no credit is left with the remote.
+            if (envelopes.size() < maxMessages && withdrawPullCommand()) {
+                this.messageQueue.dequeueNoWait(envelopes, maxMessages - envelopes.size());
+            }
+        } catch (InterruptedException e) {
+            throw JmsExceptionSupport.create(e);
+        }
+
+        return receiveCopy(envelopes);
+    }
+
+    /**
+     * Receives up to the given number of messages if they are immediately available.
+     * All messages in the batch are acknowledged together.
+     *
+     * @param maxMessages
+     *        the maximum number of messages to return, must be greater than zero.
+     *
+     * @return a list of the received messages, empty if none were available.
+     *
+     * @throws JMSException if an error occurs while receiving the messages.
+     */
+    public List<Message> receiveNoWait(int maxMessages) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        checkMaxMessages(maxMessages);
+        consumeLastReceived();
+        sendPullCommand(-1, maxMessages);
+
+        List<JmsInboundMessageDispatch> envelopes = new ArrayList<JmsInboundMessageDispatch>(maxMessages);
+        this.messageQueue.dequeueNoWait(envelopes, maxMessages);
+
+        return receiveCopy(envelopes);
     }
 
     protected void checkClosed() throws IllegalStateException {
@@ -267,9 +378,111 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         if (envelope == null || envelope.getMessage() == null) {
             return null;
         }
+
+        if (connection.isZeroCopyDelivery()) {
+            // Received messages are read-only, the message will copy itself back into
+            // the envelope if the application makes it writable again.
+            JmsMessage message = envelope.getMessage();
+            message.onDispatch();
+            message.setSharedEnvelope(envelope);
+            return message;
+        }
+
         return envelope.getMessage().copy();
     }
 
+    List<Message> copy(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        List<Message> messages = new ArrayList<Message>(envelopes.size());
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            messages.add(copy(envelope));
+        }
+        return messages;
+    }
+
+    private JmsMessage receiveCopy(final JmsInboundMessageDispatch envelope) throws JMSException {
+        JmsMessage message = copy(ackFromReceive(envelope));
+        if (message != null && !connection.isZeroCopyDelivery()) {
+            recycle(envelope);
+        }
+        lastReceived = message;
+        return message;
+    }
+
+    private List<Message> receiveCopy(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        List<Message> messages = copy(ackFromReceive(envelopes));
+        if (!connection.isZeroCopyDelivery()) {
+            for (JmsInboundMessageDispatch envelope : envelopes) {
+                recycle(envelope);
+            }
+        }
+        // Any message still arriving blocks those after it, so it can only be the last.
+        if (!messages.isEmpty()) {
+            lastReceived = (JmsMessage) messages.get(messages.size() - 1);
+        }
+        return messages;
+    }
+
+    /*
+     * Tells the message handed out by the previous receive that the application is done
+     * with it, so that a message body it did not read to the end is discarded instead of
+     * holding back every message that follows it.
+     */
+    private void consumeLastReceived() {
+        JmsMessage message = lastReceived;
+        if (message != null) {
+            lastReceived = null;
+            message.onConsumed();
+        }
+    }
+
+    /*
+     * Releases the delivered instance of a message that has been consumed so that its
+     * provider resources can be reused.  Only auto and dups-ok acknowledged messages are
+     * released as anything else can still be recovered, the caller must know that the
+     * application does not hold the delivered instance or is done with it.
+     */
+    private void recycle(final JmsInboundMessageDispatch envelope) {
+        if (connection.isMessageRecycling() && envelope.getMessage() != null &&
+            (acknowledgementMode == Session.AUTO_ACKNOWLEDGE || acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE)) {
+            envelope.getMessage().release();
+        }
+    }
+
+    List<JmsInboundMessageDispatch> ackFromReceive(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        if (envelopes.isEmpty()) {
+            return envelopes;
+        }
+
+        List<JmsInboundMessageDispatch> ackDelivered = null;
+        List<JmsInboundMessageDispatch> ackConsumed = null;
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            if (envelope.getMessage().getAcknowledgeCallback() != null) {
+                if (ackDelivered == null) {
+                    ackDelivered = new ArrayList<JmsInboundMessageDispatch>(envelopes.size());
+                }
+                ackDelivered.add(envelope);
+            } else {
+                if (ackConsumed == null) {
+                    ackConsumed = new ArrayList<JmsInboundMessageDispatch>(envelopes.size());
+                }
+                ackConsumed.add(envelope);
+            }
+        }
+
+        if (ackDelivered != null) {
+            doAck(ackDelivered, ACK_TYPE.DELIVERED);
+        }
+        if (ackConsumed != null) {
+            checkClosed();
+            doAck(ackConsumed, ACK_TYPE.CONSUMED);
+        }
+
+        // Tags that we have delivered and can't close if in a TX Session.
+        delivered.set(true);
+
+        return envelopes;
+    }
+
     JmsInboundMessageDispatch ackFromReceive(final JmsInboundMessageDispatch envelope) throws JMSException {
         if (envelope != null && envelope.getMessage() != null) {
             JmsMessage message = envelope.getMessage();
@@ -308,6 +521,15 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return envelope;
     }
 
+    private void doAck(final List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        try {
+            session.acknowledge(envelopes, ackType);
+        } catch (JMSException ex) {
+            session.onException(ex);
+            throw ex;
+        }
+    }
+
     private void doAckReleased(final JmsInboundMessageDispatch envelope) throws JMSException {
         try {
             session.acknowledge(envelope, ACK_TYPE.RELEASED);
@@ -317,6 +539,15 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         }
     }
 
+    private void doAckFiltered(final JmsInboundMessageDispatch envelope) throws JMSException {
+        try {
+            session.acknowledge(envelope, ACK_TYPE.FILTERED);
+        } catch (JMSException ex) {
+            session.onException(ex);
+            throw ex;
+        }
+    }
+
     /**
      * Called from the session when a new Message has been dispatched to this Consumer
      * from the connection.
@@ -326,6 +557,11 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
      */
     @Override
     public void onInboundMessage(final JmsInboundMessageDispatch envelope) {
+        if (localSelector != null && envelope.getMessage() != null && !matchesLocalSelector(envelope)) {
+            filterMessage(envelope);
+            return;
+        }
+
         lock.lock();
         try {
             if (acknowledgementMode == Session.CLIENT_ACKNOWLEDGE) {
@@ -349,17 +585,10 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
             }
 
             if (this.messageListener != null && this.started) {
-                session.getExecutor().execute(new MessageDeliverTask());
-            } else {
-                if (availableListener != null) {
-                    session.getExecutor().execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (session.isStarted()) {
-                                availableListener.onMessageAvailable(JmsMessageConsumer.this);
-                            }
-                        }
-                    });
+                scheduleDelivery();
+            } else if (availableListener != null) {
+                if (availableScheduled.compareAndSet(false, true)) {
+                    executeOrReset(availableTask, availableScheduled);
                 }
             }
         } finally {
@@ -373,6 +602,13 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
             this.started = true;
             this.messageQueue.start();
             drainMessageQueueToListener();
+
+            // Messages may have arrived while stopped without a notification being made.
+            if (this.messageListener == null && availableListener != null && !messageQueue.isEmpty()) {
+                if (availableScheduled.compareAndSet(false, true)) {
+                    executeOrReset(availableTask, availableScheduled);
+                }
+            }
         } finally {
             lock.unlock();
         }
@@ -394,6 +630,93 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         } finally {
             lock.unlock();
         }
+
+        awaitLaneWork();
+    }
+
+    /*
+     * Waits for the messages already handed to the parallel dispatch lanes to finish so
+     * that no listener call is still running once the consumer is stopped or closed.  A
+     * listener that stops or closes its own consumer does not wait for its own lane, nor
+     * for any other lane whose listener is itself waiting in here.
+     */
+    private void awaitLaneWork() {
+        boolean fromLane = Boolean.TRUE.equals(inLane.get());
+
+        synchronized (laneWork) {
+            if (fromLane) {
+                laneWorkWaiters.incrementAndGet();
+                laneWork.notifyAll();
+            }
+
+            try {
+                while (laneWork.get() > laneWorkWaiters.get()) {
+                    try {
+                        laneWork.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            } finally {
+                if (fromLane) {
+                    laneWorkWaiters.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /*
+     * Parallel dispatch hands out no more messages than the prefetch allows, the rest stay
+     * queued so that no DELIVERED ack and with it no further credit is sent for them until
+     * a lane is done with one of those in flight.
+     */
+    private boolean isLaneWorkFull() {
+        return dispatchLanes != null && laneWork.get() >= Math.max(1, getPrefetchSize());
+    }
+
+    private void laneWorkDone() {
+        if (laneWork.decrementAndGet() <= laneWorkWaiters.get()) {
+            synchronized (laneWork) {
+                laneWork.notifyAll();
+            }
+        }
+
+        drainMessageQueueToListener();
+    }
+
+    /**
+     * Asks the remote peer to stop sending messages to this consumer by draining its link
+     * credit.  Messages already in flight are held in the stopped message queue which the
+     * credit limits to the consumer's prefetch.
+     *
+     * @throws JMSException if the provider fails to stop the consumer.
+     */
+    void revokeCredit() throws JMSException {
+        if (!creditRevoked && !closed.get() && getPrefetchSize() > 0) {
+            session.getConnection().stopResource(consumerInfo);
+            creditRevoked = true;
+        }
+    }
+
+    /**
+     * Grants the consumer its prefetch credit again after it was revoked, less the messages
+     * it still holds from before it was stopped.
+     *
+     * @throws JMSException if the provider fails to start the consumer.
+     */
+    void restoreCredit() throws JMSException {
+        if (creditRevoked) {
+            creditRevoked = false;
+            if (!closed.get()) {
+                consumerInfo.setHeldMessageCount(messageQueue.size());
+                try {
+                    session.getConnection().startResource(consumerInfo);
+                } finally {
+                    consumerInfo.setHeldMessageCount(0);
+                }
+            }
+        }
     }
 
     void suspendForRollback() throws JMSException {
@@ -418,10 +741,80 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
     void drainMessageQueueToListener() {
         if (this.messageListener != null && this.started) {
-            session.getExecutor().execute(new MessageDeliverTask());
+            scheduleDelivery();
+        }
+    }
+
+    /*
+     * Schedules the delivery task on the session executor unless it is already pending
+     * or running, in which case it will pick up any newly queued messages itself.
+     */
+    private void scheduleDelivery() {
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            executeOrReset(deliveryTask, deliveryScheduled);
         }
     }
 
+    private void executeOrReset(Runnable task, AtomicBoolean scheduled) {
+        try {
+            session.getExecutor().execute(task);
+        } catch (RuntimeException ex) {
+            scheduled.set(false);
+            throw ex;
+        }
+    }
+
+    private static BooleanExpression parseLocalSelector(String selector) throws InvalidSelectorException {
+        if (selector == null) {
+            return null;
+        }
+
+        try {
+            return SelectorParser.parse(selector);
+        } catch (FilterException e) {
+            throw new InvalidSelectorException(e.getMessage());
+        }
+    }
+
+    private boolean matchesLocalSelector(JmsInboundMessageDispatch envelope) {
+        try {
+            return localSelector.matches(new JmsMessageFilterable(envelope.getMessage()));
+        } catch (FilterException e) {
+            // A selector that cannot be evaluated against a message does not select it.
+            return false;
+        }
+    }
+
+    /*
+     * Hands a message that does not match the local selector back to the remote peer.
+     * This is called from the provider so the acknowledgement is sent from the session
+     * executor rather than waiting on the provider here.
+     */
+    private void filterMessage(final JmsInboundMessageDispatch envelope) {
+        session.getExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (closed.get()) {
+                    return;
+                }
+
+                try {
+                    doAckFiltered(envelope);
+                } catch (JMSException e) {
+                    // Already reported to the session.
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if this consumer evaluates its message selector in the client.
+     */
+    public boolean isLocalMessageSelection() {
+        return localSelector != null;
+    }
+
     /**
      * @return the id
      */
@@ -458,6 +851,74 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         drainMessageQueueToListener();
     }
 
+    /**
+     * Enables or disables parallel dispatch to this consumer's MessageListener.
+     *
+     * When enabled, Messages are spread over the given number of ordered lanes that run
+     * on the supplied Executor.  Messages with the same dispatch key always use the same
+     * lane so they are delivered one at a time in arrival order.  Each Message is
+     * acknowledged individually once its listener call returns.  At most the prefetch
+     * size of Messages is handed to the lanes at a time, the link credit for more is only
+     * given back as the lanes complete them, and stopping or closing the consumer waits
+     * for the lanes to finish.  Parallel dispatch is only available in AUTO_ACKNOWLEDGE
+     * and DUPS_OK_ACKNOWLEDGE sessions.
+     *
+     * @param executor
+     *        the Executor that runs the listener calls, or null to disable.
+     * @param concurrency
+     *        the number of lanes, which bounds the number of concurrent listener calls.
+     *
+     * @throws JMSException if the consumer is closed or the options are not valid.
+     */
+    public void setParallelDispatch(Executor executor, int concurrency) throws JMSException {
+        checkClosed();
+
+        if (executor == null) {
+            this.dispatchLanes = null;
+            return;
+        }
+
+        if (acknowledgementMode != Session.AUTO_ACKNOWLEDGE && acknowledgementMode != Session.DUPS_OK_ACKNOWLEDGE) {
+            throw new IllegalStateException("Parallel dispatch requires an AUTO_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE session");
+        }
+
+        if (concurrency <= 0) {
+            throw new JMSException("Parallel dispatch concurrency must be greater than zero");
+        }
+
+        SerialExecutor[] lanes = new SerialExecutor[concurrency];
+        for (int i = 0; i < concurrency; ++i) {
+            lanes[i] = new SerialExecutor(executor);
+        }
+
+        this.dispatchLanes = lanes;
+    }
+
+    /**
+     * @return true if Messages are dispatched to the MessageListener in parallel.
+     */
+    public boolean isParallelDispatch() {
+        return dispatchLanes != null;
+    }
+
+    /**
+     * @return the extractor that provides the ordering key for parallel dispatch.
+     */
+    public JmsDispatchKeyExtractor getDispatchKeyExtractor() {
+        return dispatchKeyExtractor;
+    }
+
+    /**
+     * Sets the extractor that provides the ordering key of each Message when parallel
+     * dispatch is enabled.  By default the JMSXGroupID of the Message is used.
+     *
+     * @param extractor
+     *        the key extractor to use, or null to restore the default.
+     */
+    public void setDispatchKeyExtractor(JmsDispatchKeyExtractor extractor) {
+        this.dispatchKeyExtractor = extractor != null ? extractor : GROUP_ID_KEY_EXTRACTOR;
+    }
+
     /**
      * @return the Message Selector
      * @throws JMSException
@@ -477,6 +938,12 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return this.consumerInfo.getPrefetchSize();
     }
 
+    private void checkMaxMessages(int maxMessages) throws JMSException {
+        if (maxMessages <= 0) {
+            throw new JMSException("The maximum number of messages to receive must be greater than zero");
+        }
+    }
+
     protected void checkMessageListener() throws JMSException {
         session.checkMessageListener();
     }
@@ -535,25 +1002,36 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     }
 
     /**
-     * Triggers a pull request from the connected Provider.  An attempt is made to set
-     * a timeout on the pull request however some providers will not honor this value
-     * and the pull will remain active until a message is dispatched.
-     * <p>
-     * The timeout value can be one of:
-     * <br>
-     * {@literal < 0} to indicate that the request should expire immediately if no message.<br>
-     * {@literal = 0} to indicate that the request should never time out.<br>
-     * {@literal > 1} to indicate that the request should expire after the given time in milliseconds.
+     * Asks the remote peer for messages when the consumer has nothing to deliver and is
+     * not being sent messages ahead of time.
      *
      * @param timeout
-     *        The amount of time the pull request should remain valid.
+     *        the time the receive waits, zero for no limit or negative if it does not wait.
+     * @param count
+     *        the number of messages the receive can return.
+     *
+     * @throws JMSException if the pull request fails.
      */
-    protected void sendPullCommand(long timeout) throws JMSException {
+    protected void sendPullCommand(long timeout, int count) throws JMSException {
         if (messageQueue.isEmpty() && (getPrefetchSize() == 0 || isBrowser())) {
-            connection.pull(getConsumerId(), timeout);
+            connection.pull(getConsumerId(), timeout, count);
         }
     }
 
+    /*
+     * Drains any credit left from a pull that timed out so the remote does not go on
+     * sending to a consumer that is no longer waiting.  Returns true if there was a pull
+     * to withdraw, the drain has then completed and any message it produced is queued.
+     */
+    private boolean withdrawPullCommand() throws JMSException {
+        if (getPrefetchSize() == 0 && !isBrowser() && !closed.get()) {
+            connection.pull(getConsumerId(), -1, 0);
+            return true;
+        }
+
+        return false;
+    }
+
     private int getConfiguredPrefetch(JmsDestination destination, JmsPrefetchPolicy policy) {
         int prefetch = 0;
         if (destination.isTopic()) {
@@ -576,8 +1054,28 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     private final class MessageDeliverTask implements Runnable {
         @Override
         public void run() {
+            try {
+                deliver();
+            } finally {
+                deliveryScheduled.set(false);
+            }
+
+            // A message that arrived after the last dequeue but before the flag was cleared
+            // would not have scheduled a delivery of its own, so check once more here.
+            if (messageListener != null && started && session.isStarted() && !messageQueue.isEmpty() && !isLaneWorkFull()) {
+                scheduleDelivery();
+            }
+        }
+
+        private void deliver() {
             JmsInboundMessageDispatch envelope;
-            while (session.isStarted() && (envelope = messageQueue.dequeueNoWait()) != null) {
+            while (session.isStarted() && !isLaneWorkFull() && (envelope = messageQueue.dequeueNoWait()) != null) {
+                SerialExecutor[] lanes = dispatchLanes;
+                if (lanes != null) {
+                    deliverInParallel(lanes, envelope);
+                    continue;
+                }
+
                 try {
                     JmsMessage copy = null;
                     boolean autoAckOrDupsOk = acknowledgementMode == Session.AUTO_ACKNOWLEDGE ||
@@ -589,10 +1087,15 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
                     }
                     session.clearSessionRecovered();
 
-                    messageListener.onMessage(copy);
+                    try {
+                        messageListener.onMessage(copy);
+                    } finally {
+                        copy.onConsumed();
+                    }
 
                     if (autoAckOrDupsOk && !session.isSessionRecovered()) {
                         doAckConsumed(envelope);
+                        recycle(envelope);
                     }
                 } catch (Exception e) {
                     // TODO - We need to handle exception of on message with some other
@@ -603,5 +1106,58 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
                 }
             }
         }
+
+        private void deliverInParallel(SerialExecutor[] lanes, final JmsInboundMessageDispatch envelope) {
+            final MessageListener listener = messageListener;
+            laneWork.incrementAndGet();
+            try {
+                final JmsMessage copy = copy(doAckDelivered(envelope));
+
+                Object key = dispatchKeyExtractor.getDispatchKey(copy);
+                int hash = key != null ? key.hashCode() : unkeyedDispatchCount.getAndIncrement();
+                hash ^= (hash >>> 16);
+
+                lanes[(hash & Integer.MAX_VALUE) % lanes.length].execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        inLane.set(Boolean.TRUE);
+                        try {
+                            // Once closed the remote will redeliver anything not yet consumed.
+                            if (!closed.get()) {
+                                try {
+                                    listener.onMessage(copy);
+                                } finally {
+                                    copy.onConsumed();
+                                }
+                                doAckConsumed(envelope);
+                                recycle(envelope);
+                            }
+                        } catch (Exception e) {
+                            session.getConnection().onException(e);
+                        } finally {
+                            inLane.remove();
+                            laneWorkDone();
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                laneWorkDone();
+                session.getConnection().onException(e);
+            }
+        }
+    }
+
+    private final class MessageAvailableTask implements Runnable {
+        @Override
+        public void run() {
+            // Cleared first so a message arriving during the callback triggers another.
+            availableScheduled.set(false);
+
+            JmsMessageAvailableListener listener = availableListener;
+            if (listener != null && session.isStarted()) {
+                listener.onMessageAvailable(JmsMessageConsumer.this);
+            }
+        }
     }
 }
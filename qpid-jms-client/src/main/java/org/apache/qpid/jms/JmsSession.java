@@ -18,13 +18,13 @@ package org.apache.qpid.jms;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
@@ -73,6 +73,8 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.selector.SelectorParser;
 import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.util.QpidJMSThreadFactory;
+import org.apache.qpid.jms.util.SerialExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,11 +93,11 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     private MessageListener messageListener;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean started = new AtomicBoolean();
-    private final LinkedBlockingQueue<JmsInboundMessageDispatch> stoppedMessages =
-        new LinkedBlockingQueue<JmsInboundMessageDispatch>(10000);
+    private final ConcurrentLinkedQueue<JmsInboundMessageDispatch> stoppedMessages =
+        new ConcurrentLinkedQueue<JmsInboundMessageDispatch>();
     private JmsPrefetchPolicy prefetchPolicy;
     private final JmsSessionInfo sessionInfo;
-    private ExecutorService executor;
+    private Executor executor;
     private final ReentrantLock sendLock = new ReentrantLock();
 
     private final AtomicLong consumerIdGenerator = new AtomicLong();
@@ -647,7 +649,7 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     protected void add(JmsMessageConsumer consumer) throws JMSException {
         consumers.put(consumer.getConsumerId(), consumer);
-        connection.addDispatcher(consumer.getConsumerId(), this);
+        connection.addDispatcher(consumer.getConsumerId(), new ConsumerDispatcher(consumer));
 
         if (started.get()) {
             consumer.start();
@@ -752,6 +754,10 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         transactionContext.acknowledge(connection, envelope, ackType);
     }
 
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        transactionContext.acknowledge(connection, envelopes, ackType);
+    }
+
     /**
      * Acknowledge all previously delivered messages in this Session as consumed.  This
      * method is usually only called when the Session is in the CLIENT_ACKNOWLEDGE mode.
@@ -872,19 +878,41 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
             }
             for (JmsMessageConsumer consumer : consumers.values()) {
                 consumer.start();
+                consumer.restoreCredit();
             }
         }
     }
 
     protected void stop() throws JMSException {
+        stop(false);
+    }
+
+    /**
+     * Stops delivery of messages to the consumers of this session.
+     *
+     * @param revokeCredit
+     *        should the consumers also ask the remote peer to stop sending messages.
+     *
+     * @throws JMSException if an error occurs while revoking consumer credit.
+     */
+    protected void stop(boolean revokeCredit) throws JMSException {
         started.set(false);
 
         for (JmsMessageConsumer consumer : consumers.values()) {
             consumer.stop();
         }
 
+        if (revokeCredit) {
+            for (JmsMessageConsumer consumer : consumers.values()) {
+                consumer.revokeCredit();
+            }
+        }
+
         if (executor != null) {
-            executor.shutdown();
+            // A serial executor runs on the connection's shared pool which outlives us.
+            if (executor instanceof ExecutorService) {
+                ((ExecutorService) executor).shutdown();
+            }
             executor = null;
         }
     }
@@ -899,16 +927,14 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     Executor getExecutor() {
         if (executor == null) {
-            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-
-                @Override
-                public Thread newThread(Runnable runner) {
-                    Thread executor = new Thread(runner);
-                    executor.setName("JmsSession ["+ sessionInfo.getSessionId() + "] dispatcher");
-                    executor.setDaemon(true);
-                    return executor;
-                }
-            });
+            Executor sessionDispatcher = connection.getSessionDispatcher();
+            if (sessionDispatcher != null) {
+                executor = new SerialExecutor(sessionDispatcher);
+                return executor;
+            }
+
+            executor = Executors.newSingleThreadExecutor(new QpidJMSThreadFactory(
+                "JmsSession ["+ sessionInfo.getSessionId() + "] dispatcher", true, connection.isUseVirtualThreads()));
         }
         return executor;
     }
@@ -972,13 +998,23 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     @Override
     public void onInboundMessage(JmsInboundMessageDispatch envelope) {
-        if (started.get()) {
+        // Consumers hold on to messages that arrive while stopped in their own queues, which
+        // the link credit bounds to their prefetch, only a session listener needs a buffer.
+        if (started.get() || messageListener == null) {
             deliver(envelope);
         } else {
             stoppedMessages.add(envelope);
         }
     }
 
+    private void onInboundMessage(JmsMessageConsumer consumer, JmsInboundMessageDispatch envelope) {
+        if (messageListener == null) {
+            consumer.onInboundMessage(envelope);
+        } else {
+            onInboundMessage(envelope);
+        }
+    }
+
     protected void onConnectionInterrupted() {
 
         transactionContext.onConnectionInterrupted();
@@ -1071,4 +1107,22 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     void clearSessionRecovered() {
         sessionRecovered = false;
     }
+
+    /*
+     * Registered with the connection for each consumer so that inbound messages are
+     * routed to the consumer without a lookup in the session's consumer map.
+     */
+    private final class ConsumerDispatcher implements JmsMessageDispatcher {
+
+        private final JmsMessageConsumer consumer;
+
+        public ConsumerDispatcher(JmsMessageConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onInboundMessage(JmsInboundMessageDispatch envelope) {
+            JmsSession.this.onInboundMessage(consumer, envelope);
+        }
+    }
 }
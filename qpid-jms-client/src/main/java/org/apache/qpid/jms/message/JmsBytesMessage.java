@@ -20,6 +20,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
@@ -63,6 +64,12 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
         return super.hashCode();
     }
 
+    @Override
+    public void onDispatch() throws JMSException {
+        super.onDispatch();
+        reset();
+    }
+
     @Override
     public void clearBody() throws JMSException {
         super.clearBody();
@@ -383,6 +390,38 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
         }
     }
 
+    /**
+     * Sets the body of this message to the bytes of the given stream, which are read when
+     * the message is sent instead of being copied into the message, so that a large body
+     * need not be held in memory.  Any body written so far is discarded.
+     *
+     * The stream must supply exactly the given number of bytes and is closed once the body
+     * has been sent or the send fails.  It may be read from the connection's own thread after
+     * the send call returns, and so the body of such a message can be sent only once, sending
+     * the message again fails with an IllegalStateException until a new body is set.
+     *
+     * @param stream
+     *        the stream that supplies the body of the message.
+     * @param length
+     *        the number of bytes the stream supplies.
+     *
+     * @throws JMSException if the body cannot be set.
+     * @throws javax.jms.MessageNotWriteableException if the message body is in read-only mode.
+     */
+    public void setBodyStream(InputStream stream, long length) throws JMSException {
+        if (stream == null) {
+            throw new NullPointerException();
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Body length cannot be negative");
+        }
+
+        checkReadOnlyBody();
+        this.dataOut = null;
+        this.dataIn = null;
+        this.facade.setBodyStream(stream, length);
+    }
+
     @Override
     public void reset() throws JMSException {
         this.facade.reset();
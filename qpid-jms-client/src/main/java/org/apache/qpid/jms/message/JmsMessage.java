@@ -39,6 +39,7 @@ public class JmsMessage implements javax.jms.Message {
     private static final String ID_PREFIX = "ID:";
     protected transient Callable<Void> acknowledgeCallback;
     protected transient JmsConnection connection;
+    protected transient JmsInboundMessageDispatch sharedEnvelope;
 
     protected final JmsMessageFacade facade;
     protected boolean readOnlyBody;
@@ -101,6 +102,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void clearBody() throws JMSException {
+        copyOnWrite();
         readOnlyBody = false;
         facade.clearBody();
     }
@@ -133,6 +135,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSMessageID(String value) throws JMSException {
+        copyOnWrite();
         facade.setMessageId(value);
     }
 
@@ -143,6 +146,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSTimestamp(long timestamp) throws JMSException {
+        copyOnWrite();
         facade.setTimestamp(timestamp);
     }
 
@@ -153,6 +157,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationID(String correlationId) throws JMSException {
+        copyOnWrite();
         facade.setCorrelationId(correlationId);
     }
 
@@ -163,6 +168,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationIDAsBytes(byte[] correlationId) throws JMSException {
+        copyOnWrite();
         facade.setCorrelationIdBytes(correlationId);
     }
 
@@ -173,6 +179,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSReplyTo(Destination destination) throws JMSException {
+        copyOnWrite();
         facade.setReplyTo(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -183,6 +190,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDestination(Destination destination) throws JMSException {
+        copyOnWrite();
         facade.setDestination(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -193,6 +201,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDeliveryMode(int mode) throws JMSException {
+        copyOnWrite();
         facade.setPersistent(mode == DeliveryMode.PERSISTENT);
     }
 
@@ -203,6 +212,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSRedelivered(boolean redelivered) throws JMSException {
+        copyOnWrite();
         facade.setRedelivered(redelivered);
     }
 
@@ -213,6 +223,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSType(String type) throws JMSException {
+        copyOnWrite();
         facade.setType(type);
     }
 
@@ -223,6 +234,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSExpiration(long expiration) throws JMSException {
+        copyOnWrite();
         facade.setExpiration(expiration);
     }
 
@@ -233,11 +245,13 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSPriority(int priority) throws JMSException {
+        copyOnWrite();
         facade.setPriority(priority);
     }
 
     @Override
     public void clearProperties() throws JMSException {
+        copyOnWrite();
         JmsMessagePropertyIntercepter.clearProperties(facade, true);
     }
 
@@ -271,6 +285,7 @@ public class JmsMessage implements javax.jms.Message {
         checkReadOnlyProperties();
         checkPropertyNameIsValid(name);
         checkValidObject(value);
+        copyOnWrite();
         JmsMessagePropertyIntercepter.setProperty(facade, name, value);
     }
 
@@ -300,6 +315,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public boolean getBooleanProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue();
+        }
         if (value == null) {
             return false;
         }
@@ -313,6 +331,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public byte getByteProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Byte) {
+            return ((Byte) value).byteValue();
+        }
         if (value == null) {
             throw new NumberFormatException("property " + name + " was null");
         }
@@ -326,6 +347,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public short getShortProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).shortValue();
+        }
         if (value == null) {
             throw new NumberFormatException("property " + name + " was null");
         }
@@ -339,6 +363,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public int getIntProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
         if (value == null) {
             throw new NumberFormatException("property " + name + " was null");
         }
@@ -352,6 +379,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public long getLongProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
         if (value == null) {
             throw new NumberFormatException("property " + name + " was null");
         }
@@ -365,6 +395,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public float getFloatProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Float) {
+            return ((Float) value).floatValue();
+        }
         if (value == null) {
             throw new NullPointerException("property " + name + " was null");
         }
@@ -378,6 +411,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public double getDoubleProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
         if (value == null) {
             throw new NullPointerException("property " + name + " was null");
         }
@@ -391,6 +427,9 @@ public class JmsMessage implements javax.jms.Message {
     @Override
     public String getStringProperty(String name) throws JMSException {
         Object value = getObjectProperty(name);
+        if (value instanceof String) {
+            return (String) value;
+        }
         if (value == null) {
             return null;
         }
@@ -482,6 +521,14 @@ public class JmsMessage implements javax.jms.Message {
         facade.onDispatch();
     }
 
+    /**
+     * Called once the application is done with this received message, any part of the
+     * body that is still arriving and was not read is then discarded.
+     */
+    public void onConsumed() {
+        facade.onConsumed();
+    }
+
     public JmsConnection getConnection() {
         return connection;
     }
@@ -494,11 +541,44 @@ public class JmsMessage implements javax.jms.Message {
         return this.facade;
     }
 
+    /**
+     * Marks this message as being handed to the application while still held by the given
+     * inbound envelope.  Before the application first changes the message, whether its
+     * headers, properties or body, a copy is placed into the envelope so that any later
+     * redelivery is not affected by the application's changes.
+     *
+     * @param envelope
+     *        the inbound envelope that shares this message instance, or null to clear.
+     */
+    public void setSharedEnvelope(JmsInboundMessageDispatch envelope) {
+        this.sharedEnvelope = envelope;
+    }
+
+    /**
+     * Hands any provider resources held by this received message back for reuse by later
+     * deliveries.  This must only be called once the message has been acknowledged and
+     * the message must not be accessed again afterwards.
+     */
+    public void release() {
+        sharedEnvelope = null;
+        facade.release();
+    }
+
     @Override
     public String toString() {
         return "JmsMessage { " + facade + " }";
     }
 
+    protected void copyOnWrite() throws JMSException {
+        JmsInboundMessageDispatch envelope = sharedEnvelope;
+        if (envelope != null) {
+            sharedEnvelope = null;
+            if (envelope.getMessage() == this) {
+                envelope.setMessage(copy());
+            }
+        }
+    }
+
     protected void checkReadOnlyProperties() throws MessageNotWriteableException {
         if (readOnlyProperties) {
             throw new MessageNotWriteableException("Message properties are read-only");
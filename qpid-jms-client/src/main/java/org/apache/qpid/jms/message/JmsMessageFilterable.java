@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.message;
+
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.Filterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts a JmsMessage so that a message selector can be evaluated against it.
+ *
+ * Header and JMSX values are read the same way as through the Message property
+ * accessors, all other names are read from the application properties of the
+ * underlying message facade.  Properties that cannot be read evaluate as null.
+ */
+public class JmsMessageFilterable implements Filterable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMessageFilterable.class);
+
+    private final JmsMessage message;
+
+    public JmsMessageFilterable(JmsMessage message) {
+        this.message = message;
+    }
+
+    @Override
+    public <T> T getBodyAs(Class<T> type) throws FilterException {
+        // Selectors over the message body are not supported.
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        try {
+            return JmsMessagePropertyIntercepter.getProperty(message.getFacade(), name);
+        } catch (JMSException e) {
+            LOG.debug("Failed to read property {} for selector evaluation: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Object getLocalConnectionId() {
+        return null;
+    }
+
+    /**
+     * @return the JmsMessage that is being filtered.
+     */
+    public JmsMessage getMessage() {
+        return message;
+    }
+}
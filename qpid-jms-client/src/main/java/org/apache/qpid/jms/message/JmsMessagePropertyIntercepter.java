@@ -507,6 +507,18 @@ public class JmsMessagePropertyIntercepter {
         });
     }
 
+    /*
+     * All intercepted names begin with the JMS prefix, checking for that first allows
+     * application property names to skip the lookup.
+     */
+    private static PropertyIntercepter findIntercepter(String name) {
+        if (name == null || !name.startsWith("JMS")) {
+            return null;
+        }
+
+        return PROPERTY_INTERCEPTERS.get(name);
+    }
+
     /**
      * Static get method that takes a property name and gets the value either via
      * a registered property get object or through the JmsMessageFacade getProperty
@@ -524,7 +536,7 @@ public class JmsMessagePropertyIntercepter {
     public static Object getProperty(JmsMessageFacade message, String name) throws JMSException {
         Object value = null;
 
-        PropertyIntercepter jmsPropertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter jmsPropertyExpression = findIntercepter(name);
         if (jmsPropertyExpression != null) {
             value = jmsPropertyExpression.getProperty(message);
         } else {
@@ -549,7 +561,7 @@ public class JmsMessagePropertyIntercepter {
      * @throws JMSException if an error occurs while writing the defined property.
      */
     public static void setProperty(JmsMessageFacade message, String name, Object value) throws JMSException {
-        PropertyIntercepter jmsPropertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter jmsPropertyExpression = findIntercepter(name);
         if (jmsPropertyExpression != null) {
             jmsPropertyExpression.setProperty(message, value);
         } else {
@@ -570,7 +582,7 @@ public class JmsMessagePropertyIntercepter {
      * @throws JMSException if an error occurs while validating the defined property.
      */
     public static boolean propertyExists(JmsMessageFacade message, String name) throws JMSException {
-        PropertyIntercepter jmsPropertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter jmsPropertyExpression = findIntercepter(name);
         if (jmsPropertyExpression != null) {
             return jmsPropertyExpression.propertyExists(message);
         } else {
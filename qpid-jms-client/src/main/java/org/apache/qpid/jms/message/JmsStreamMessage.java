@@ -52,6 +52,12 @@ public class JmsStreamMessage extends JmsMessage implements StreamMessage {
         reset();
     }
 
+    @Override
+    public void onDispatch() throws JMSException {
+        super.onDispatch();
+        reset();
+    }
+
     @Override
     public void clearBody() throws JMSException {
         super.clearBody();
@@ -85,5 +85,19 @@ public interface JmsBytesMessageFacade extends JmsMessageFacade {
     /**
      * @return the number of bytes contained in the body of the message.
      */
-    int getBodyLength();
+    long getBodyLength();
+
+    /**
+     * Replaces the body of the message with the contents of the given stream, which the
+     * implementation may defer reading until the message is sent.  Once set the body can
+     * no longer be read or written through the message streams until it is cleared.
+     *
+     * @param stream
+     *        the stream that supplies the body of the message.
+     * @param length
+     *        the number of bytes the stream supplies.
+     *
+     * @throws JMSException if the body cannot be taken from the stream.
+     */
+    void setBodyStream(InputStream stream, long length) throws JMSException;
 }
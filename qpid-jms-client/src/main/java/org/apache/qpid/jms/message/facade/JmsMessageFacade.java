@@ -105,6 +105,13 @@ public interface JmsMessageFacade {
      */
     void onDispatch() throws JMSException;
 
+    /**
+     * Called once the application is done with a received message, when the listener it
+     * was given to returns or when the next message is received, so that any part of the
+     * message that is still arriving and was not read can be discarded.
+     */
+    void onConsumed();
+
     /**
      * This method should provide a quick check on the message to determine if
      * there is any content actually contained within.
@@ -133,6 +140,13 @@ public interface JmsMessageFacade {
      */
     JmsMessageFacade copy() throws JMSException;
 
+    /**
+     * Called once a received message has been consumed and will not be accessed again
+     * so that any provider resources it holds can be reused for later messages.  The
+     * facade must not be used after this method has been called.
+     */
+    void release();
+
     /**
      * Gets the timestamp assigned to the message when it was sent.
      *
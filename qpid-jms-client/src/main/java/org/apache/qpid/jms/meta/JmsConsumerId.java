@@ -24,6 +24,7 @@ public final class JmsConsumerId extends JmsAbstractResourceId implements Compar
 
     private transient String key;
     private transient JmsSessionId parentId;
+    private transient volatile Object dispatcherHint;
 
     public JmsConsumerId(String connectionId, long sessionId, long consumerId) {
         if (connectionId == null || connectionId.isEmpty()) {
@@ -90,6 +91,24 @@ public final class JmsConsumerId extends JmsAbstractResourceId implements Compar
         return value;
     }
 
+    /**
+     * Sets the object the client uses to route inbound messages for this consumer
+     * without looking the consumer up by its Id.
+     *
+     * @param hint
+     *        the dispatcher for this consumer, or null to clear it.
+     */
+    public void setDispatcherHint(Object hint) {
+        this.dispatcherHint = hint;
+    }
+
+    /**
+     * @return the dispatcher hint for this consumer, or null if none is set.
+     */
+    public Object getDispatcherHint() {
+        return dispatcherHint;
+    }
+
     @Override
     public int hashCode() {
         if (hashCode == 0) {
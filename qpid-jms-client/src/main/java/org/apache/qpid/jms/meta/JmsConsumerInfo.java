@@ -33,6 +33,7 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
 
     // Can be used to track the last consumed message.
     private transient long lastDeliveredSequenceId;
+    private transient int heldMessageCount;
 
     public JmsConsumerInfo(JmsConsumerId consumerId) {
         if (consumerId == null) {
@@ -64,6 +65,7 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
         info.noLocal = noLocal;
         info.acknowledgementMode = acknowledgementMode;
         info.lastDeliveredSequenceId = lastDeliveredSequenceId;
+        info.heldMessageCount = heldMessageCount;
     }
 
     public boolean isDurable() {
@@ -138,6 +140,18 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
         return lastDeliveredSequenceId;
     }
 
+    /**
+     * @return the number of messages the consumer still holds unconsumed when it is started,
+     *         which count against its prefetch.
+     */
+    public int getHeldMessageCount() {
+        return heldMessageCount;
+    }
+
+    public void setHeldMessageCount(int heldMessageCount) {
+        this.heldMessageCount = heldMessageCount;
+    }
+
     public JmsSessionId getParentId() {
         return this.consumerId.getParentId();
     }
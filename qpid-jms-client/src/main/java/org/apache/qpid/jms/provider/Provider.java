@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -219,6 +220,25 @@ public interface Provider {
     void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType, AsyncResult request)
         throws IOException, JMSException;
 
+    /**
+     * Called to apply the same acknowledgment to a batch of messages in a single operation.
+     *
+     * The provider should process the acknowledgments in the order given and should write
+     * them to the remote peer together rather than one at a time.
+     *
+     * @param envelopes
+     *        The message dispatch envelopes containing the Message delivery information.
+     * @param ackType
+     *        The type of acknowledgment being done.
+     * @param request
+     *        The request object that should be signaled when this operation completes.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     * @throws JMSException if an error occurs due to JMS violation such as unmatched ack.
+     */
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request)
+        throws IOException, JMSException;
+
     /**
      * Called to commit an open transaction.
      *
@@ -278,19 +298,29 @@ public interface Provider {
     void unsubscribe(String subscription, AsyncResult request) throws IOException, JMSException;
 
     /**
-     * Request a remote peer send a Message to this client.  A message pull request is
+     * Request a remote peer send Messages to this client.  A message pull request is
      * usually only needed in the case where the client sets a zero prefetch limit on the
      * consumer.  If the consumer has a set prefetch that's greater than zero this method
      * should just return without performing and action.
      *
+     * A negative timeout asks that the pull complete immediately, the remote peer is told
+     * to send what it can now and give up any credit it has left.  The request is then not
+     * signaled until the remote has done so and every Message it sent has been dispatched.
+     * This is also how a pull that timed out is withdrawn, by passing a count of zero.
+     *
+     * @param consumerId
+     *        the consumer that is requesting Messages.
      * @param timeout
-     *        the amount of time to tell the remote peer to keep this pull request valid.
+     *        the amount of time to tell the remote peer to keep this pull request valid,
+     *        zero to wait indefinitely or negative to complete immediately.
+     * @param count
+     *        the number of Messages the consumer is prepared to accept.
      * @param request
      *        The request object that should be signaled when this operation completes.
      *
      * @throws IOException if an error occurs or the Provider is already closed.
      */
-    void pull(JmsConsumerId consumerId, long timeout, AsyncResult request) throws IOException;
+    void pull(JmsConsumerId consumerId, long timeout, int count, AsyncResult request) throws IOException;
 
     /**
      * Gets the Provider specific Message factory for use in the JMS layer when a Session
@@ -29,7 +29,8 @@ public final class ProviderConstants {
         REDELIVERED(2),
         POISONED(3),
         EXPIRED(4),
-        RELEASED(5);
+        RELEASED(5),
+        FILTERED(6);
 
         private final int value;
 
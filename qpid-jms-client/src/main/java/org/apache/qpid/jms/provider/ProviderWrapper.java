@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -105,6 +106,11 @@ public class ProviderWrapper<E extends Provider> implements Provider, ProviderLi
         next.acknowledge(envelope, ackType, request);
     }
 
+    @Override
+    public void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        next.acknowledge(envelopes, ackType, request);
+    }
+
     @Override
     public void commit(JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         next.commit(sessionId, request);
@@ -126,8 +132,8 @@ public class ProviderWrapper<E extends Provider> implements Provider, ProviderLi
     }
 
     @Override
-    public void pull(JmsConsumerId consumerId, long timeout, AsyncResult request) throws IOException, UnsupportedOperationException {
-        next.pull(consumerId, timeout, request);
+    public void pull(JmsConsumerId consumerId, long timeout, int count, AsyncResult request) throws IOException, UnsupportedOperationException {
+        next.pull(consumerId, timeout, count, request);
     }
 
     @Override
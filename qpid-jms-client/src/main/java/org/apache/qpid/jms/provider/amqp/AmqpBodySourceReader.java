@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Reads the body of a streamed send from the application's InputStream on a thread other
+ * than the provider's and hands it over one chunk at a time, so that the provider never
+ * blocks on the application's stream and only ever sends chunks that were read in full.
+ *
+ * The reader reads one chunk ahead and then waits for the previous one to be taken, which
+ * bounds the memory held to a few chunks however slowly the remote takes the body.
+ */
+public class AmqpBodySourceReader implements Runnable {
+
+    private final InputStream source;
+    private final int chunkSize;
+    private final Runnable onChunkReady;
+
+    private long unread;
+    private byte[] ready;
+    private byte[] taken;
+    private byte[] spare;
+    private IOException failure;
+    private boolean done;
+    private boolean cancelled;
+
+    /**
+     * Creates a reader for the given body source.
+     *
+     * @param source
+     *        the stream the body is read from, closed once the reader is done with it.
+     * @param length
+     *        the number of bytes to read from the stream.
+     * @param chunkSize
+     *        the largest number of bytes handed over at a time.
+     * @param onChunkReady
+     *        called from the reading thread each time a chunk becomes ready to be taken
+     *        or the read fails.
+     */
+    public AmqpBodySourceReader(InputStream source, long length, int chunkSize, Runnable onChunkReady) {
+        this.source = source;
+        this.unread = length;
+        this.chunkSize = chunkSize;
+        this.onChunkReady = onChunkReady;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (unread > 0) {
+                byte[] chunk;
+                synchronized (this) {
+                    if (cancelled) {
+                        return;
+                    }
+
+                    if (unread >= chunkSize && spare != null) {
+                        chunk = spare;
+                        spare = null;
+                    } else {
+                        chunk = new byte[(int) Math.min(chunkSize, unread)];
+                    }
+                }
+
+                readFully(chunk);
+                unread -= chunk.length;
+
+                synchronized (this) {
+                    while (ready != null && !cancelled) {
+                        wait();
+                    }
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    ready = chunk;
+                }
+
+                onChunkReady.run();
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Interrupted while reading the message body"));
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Takes the next chunk of the body if one has been read.  The chunk returned by the
+     * previous call may be reused by the reader once this is called again, so it must no
+     * longer be in use by then.
+     *
+     * @return the next chunk of the body, or null if it is still being read.
+     *
+     * @throws IOException if reading the body failed.
+     */
+    public synchronized byte[] take() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+
+        if (taken != null && taken.length == chunkSize) {
+            spare = taken;
+        }
+
+        taken = ready;
+        ready = null;
+        notifyAll();
+        return taken;
+    }
+
+    /**
+     * Stops reading the body and closes the body source, which also unblocks a read that
+     * is in progress for streams that support being closed asynchronously.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+            ready = null;
+            notifyAll();
+        }
+
+        closeQuietly();
+    }
+
+    private void fail(IOException error) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            failure = error;
+        }
+
+        onChunkReady.run();
+    }
+
+    private void readFully(byte[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            int read = source.read(target, offset, target.length - offset);
+            if (read < 0) {
+                throw new EOFException("Body stream ended before the declared length was read");
+            }
+            offset += read;
+        }
+    }
+
+    private void closeQuietly() {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+
+            done = true;
+        }
+
+        try {
+            source.close();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.qpid.jms.provider.amqp;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,7 +31,11 @@ import org.apache.qpid.jms.meta.JmsConnectionInfo;
 import org.apache.qpid.jms.meta.JmsSessionId;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
 import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.amqp.message.AmqpDestinationCache;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFactory;
+import org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessagePool;
+import org.apache.qpid.jms.provider.amqp.message.AmqpObjectMessageCodec;
+import org.apache.qpid.jms.provider.amqp.message.AmqpObjectMessageCodecFinder;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.engine.Connection;
@@ -53,6 +58,9 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
     private AmqpSaslAuthenticator authenticator;
     private final AmqpConnectionSession connectionSession;
     private final AmqpConnectionProperties properties;
+    private final AmqpObjectMessageCodec objectMessageCodec;
+    private final AmqpLazyMessagePool lazyMessagePool = new AmqpLazyMessagePool();
+    private final AmqpDestinationCache destinationCache = new AmqpDestinationCache();
 
     private boolean objectMessageUsesAmqpTypes = false;
     private boolean anonymousProducerCache = false;
@@ -64,6 +72,7 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         this.provider = provider;
         this.remoteURI = provider.getRemoteURI();
         this.amqpMessageFactory = new AmqpJmsMessageFactory(this);
+        this.objectMessageCodec = AmqpObjectMessageCodecFinder.findCodec(provider.getObjectMessageCodec());
 
         if (sasl != null) {
             this.authenticator = new AmqpSaslAuthenticator(sasl, info);
@@ -116,6 +125,16 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         connectionSession.unsubscribe(subscriptionName, request);
     }
 
+    @Override
+    public void closed() {
+        IOException error = new IOException("Connection closed before the message body was received");
+        for (AmqpSession session : sessions.values()) {
+            session.failStreamedDeliveries(error);
+        }
+
+        super.closed();
+    }
+
     @Override
     protected void doOpenCompletion() {
         properties.initialize(getEndpoint().getRemoteOfferedCapabilities(), getEndpoint().getRemoteProperties());
@@ -245,6 +264,34 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         return provider.isPresettleProducers();
     }
 
+    /**
+     * @return true if the provider has been configured to decode incoming messages on demand.
+     */
+    public boolean isLazyMessageDecode() {
+        return provider.isLazyMessageDecode();
+    }
+
+    /**
+     * @return the size in bytes at which incoming BytesMessage bodies are streamed, zero if disabled.
+     */
+    public int getLargeMessageThreshold() {
+        return provider.getLargeMessageThreshold();
+    }
+
+    /**
+     * @return the pool that holds lazily decoded messages released by their consumers.
+     */
+    public AmqpLazyMessagePool getLazyMessagePool() {
+        return lazyMessagePool;
+    }
+
+    /**
+     * @return the cache that holds the destinations named by incoming messages.
+     */
+    public AmqpDestinationCache getDestinationCache() {
+        return destinationCache;
+    }
+
     /**
      * @return true if anonymous producers should be cached or closed on send complete.
      */
@@ -293,6 +340,13 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         this.objectMessageUsesAmqpTypes = objectMessageUsesAmqpTypes;
     }
 
+    /**
+     * @return the codec used to store the body of ObjectMessage instances sent from this connection.
+     */
+    public AmqpObjectMessageCodec getObjectMessageCodec() {
+        return objectMessageCodec;
+    }
+
     /**
      * @return the AMQP based JmsMessageFactory for this Connection.
      */
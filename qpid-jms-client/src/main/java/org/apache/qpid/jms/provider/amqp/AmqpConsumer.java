@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.InvalidDestinationException;
 import javax.jms.JMSException;
+import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsDestination;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
@@ -41,6 +42,7 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageBuilder;
+import org.apache.qpid.jms.provider.amqp.message.AmqpStreamedMessage;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.DescribedType;
@@ -84,6 +86,10 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     private final AtomicLong _incomingSequence = new AtomicLong(0);
 
     private AsyncResult stopRequest;
+    private boolean pullOutstanding;
+
+    private StreamedDelivery streamedDelivery;
+    private Delivery unstreamableDelivery;
 
     public AmqpConsumer(AmqpSession session, JmsConsumerInfo info) {
         super(info);
@@ -94,10 +100,14 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     }
 
     /**
-     * Starts the consumer by setting the link credit to the given prefetch value.
+     * Starts the consumer by raising the link credit to its prefetch value, less the credit
+     * already granted and the messages the consumer still holds from before it was stopped.
      */
     public void start(AsyncResult request) {
-        getEndpoint().flow(resource.getPrefetchSize());
+        int credit = resource.getPrefetchSize() - resource.getHeldMessageCount() - getEndpoint().getCredit();
+        if (credit > 0) {
+            getEndpoint().flow(credit);
+        }
         request.onSuccess();
     }
 
@@ -105,6 +115,9 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
      * Stops the consumer, using all link credit and waiting for in-flight messages to arrive.
      */
     public void stop(AsyncResult request) {
+        // Nothing is waiting on a pull once the link is being drained.
+        pullOutstanding = false;
+
         Receiver receiver = getEndpoint();
         if (receiver.getRemoteCredit() <= 0) {
             if (receiver.getQueued() == 0) {
@@ -204,10 +217,17 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
 
     @Override
     public void closed() {
+        failStreamedDelivery(new IOException("Consumer closed before the message body was received"));
         this.session.removeResource(this);
         super.closed();
     }
 
+    @Override
+    public void remotelyClosed(AmqpProvider provider) {
+        failStreamedDelivery(new IOException("Consumer closed before the message body was received"));
+        super.remotelyClosed(provider);
+    }
+
     protected void configureSource(Source source) {
         Map<Symbol, DescribedType> filters = new HashMap<Symbol, DescribedType>();
         Symbol[] outcomes = new Symbol[]{ Accepted.DESCRIPTOR_SYMBOL, Rejected.DESCRIPTOR_SYMBOL,
@@ -279,6 +299,19 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
      * @throws JMSException if an error occurs accessing the Message properties.
      */
     public void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType) throws JMSException {
+        if (streamedDelivery != null && streamedDelivery.envelope.equals(envelope) &&
+            !ackType.equals(ACK_TYPE.DELIVERED) && !ackType.equals(ACK_TYPE.REDELIVERED)) {
+
+            // The delivery cannot be settled while it is still arriving, the outcome is
+            // applied once the rest has been received.
+            LOG.debug("Deferring {} Ack of partially received message: {}", ackType, envelope);
+            if (!ackType.equals(ACK_TYPE.CONSUMED)) {
+                streamedDelivery.message.discard();
+            }
+            streamedDelivery.pendingAck = ackType;
+            return;
+        }
+
         Delivery delivery = null;
 
         if (envelope.getProviderHint() instanceof Delivery) {
@@ -327,6 +360,9 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         } else if (ackType.equals(ACK_TYPE.RELEASED)) {
             delivery.disposition(Released.getInstance());
             delivery.settle();
+        } else if (ackType.equals(ACK_TYPE.FILTERED)) {
+            LOG.debug("Filtered Ack of message: {}", envelope);
+            deliveryFiltered(envelope, delivery);
         } else {
             LOG.warn("Unsupported Ack Type for message: {}", envelope);
         }
@@ -371,15 +407,37 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     }
 
     /**
-     * For a consumer whose prefetch value is set to zero this method will attempt to solicite
-     * a new message dispatch from the broker.
+     * For a consumer whose prefetch value is set to zero this method will attempt to solicit
+     * new message dispatches from the broker.  The link credit is raised to the number of
+     * messages requested, any credit still outstanding from an earlier pull counts towards
+     * it.  When the pull should complete immediately the link is then drained so that no
+     * credit is left with the remote, the request completes once the drain has.
      *
      * @param timeout
+     *        the time the pull remains valid, negative if it should complete immediately.
+     * @param count
+     *        the number of messages the consumer is prepared to accept.
+     * @param request
+     *        the request to signal once the pull has been issued or the drain completed.
      */
-    public void pull(long timeout) {
-        if (resource.getPrefetchSize() == 0 && getEndpoint().getCredit() == 0) {
-            // expand the credit window by one.
-            getEndpoint().flow(1);
+    public void pull(long timeout, int count, AsyncResult request) {
+        if (resource.getPrefetchSize() != 0) {
+            request.onSuccess();
+            return;
+        }
+
+        int credit = getEndpoint().getCredit();
+        if (count > credit) {
+            getEndpoint().flow(count - credit);
+        }
+
+        pullOutstanding = count > 0;
+
+        if (timeout < 0) {
+            // A drain completes the same way as a stop.
+            stop(request);
+        } else {
+            request.onSuccess();
         }
     }
 
@@ -389,7 +447,12 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         do {
             incoming = getEndpoint().current();
             if (incoming != null) {
-                if(incoming.isReadable() && !incoming.isPartial()) {
+                if (streamedDelivery != null && streamedDelivery.delivery == incoming) {
+                    if (!processStreamedDelivery()) {
+                        LOG.trace("{} is streaming a partial incoming Message, deferring.", this);
+                        incoming = null;
+                    }
+                } else if(incoming.isReadable() && !incoming.isPartial()) {
                     LOG.trace("{} has incoming Message(s).", this);
                     try {
                         processDelivery(incoming);
@@ -397,6 +460,8 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
                         throw IOExceptionSupport.create(e);
                     }
                     getEndpoint().advance();
+                } else if (incoming.isReadable() && processPartialDelivery(incoming)) {
+                    LOG.trace("{} has started streaming a partial incoming Message.", this);
                 } else {
                     LOG.trace("{} has a partial incoming Message(s), deferring.", this);
                     incoming = null;
@@ -432,6 +497,10 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
             return;
         }
 
+        dispatch(incoming, message);
+    }
+
+    private JmsInboundMessageDispatch dispatch(Delivery incoming, JmsMessage message) throws Exception {
         // Let the message do any final processing before sending it onto a consumer.
         // We could defer this to a later stage such as the JmsConnection or even in
         // the JmsMessageConsumer dispatch method if we needed to.
@@ -448,6 +517,124 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         incoming.setContext(envelope);
 
         deliver(envelope);
+        return envelope;
+    }
+
+    /*
+     * Takes what has arrived of a partial delivery out of Proton so that its frames are
+     * released, and once enough has arrived begins streaming the body to the consumer.
+     * Returns true if the delivery is now being streamed.
+     */
+    private boolean processPartialDelivery(Delivery incoming) throws IOException {
+        receiveIncoming();
+
+        int threshold = getConnection().getLargeMessageThreshold();
+        if (threshold <= 0 || incomingBuffer.readableBytes() < threshold ||
+            incoming == unstreamableDelivery || !isStreamingSupported()) {
+            return false;
+        }
+
+        AmqpStreamedMessage message = AmqpStreamedMessage.create(
+            this, incomingBuffer.array(), incomingBuffer.readableBytes(), threshold, new Runnable() {
+
+                @Override
+                public void run() {
+                    session.getProvider().resumeDelivery(AmqpConsumer.this);
+                }
+            });
+
+        if (message == null) {
+            LOG.trace("{} cannot stream partial incoming Message, buffering.", this);
+            unstreamableDelivery = incoming;
+            return false;
+        }
+
+        incomingBuffer.clear();
+
+        try {
+            streamedDelivery = new StreamedDelivery(incoming, message);
+            streamedDelivery.envelope = dispatch(incoming, message.getMessage());
+        } catch (Exception e) {
+            throw IOExceptionSupport.create(e);
+        }
+
+        return true;
+    }
+
+    /*
+     * Passes on as much of the streamed delivery as the application has room for, returns
+     * true once the whole delivery has arrived and the receiver has moved past it.
+     */
+    private boolean processStreamedDelivery() throws IOException {
+        StreamedDelivery streamed = streamedDelivery;
+        byte[] buffer = incomingBuffer.array();
+
+        int space;
+        while ((space = streamed.message.getFreeSpace()) > 0) {
+            int count = getEndpoint().recv(buffer, 0, Math.min(space, buffer.length));
+            if (count <= 0) {
+                break;
+            }
+            streamed.message.write(buffer, 0, count);
+        }
+
+        if (streamed.delivery.isPartial() || streamed.delivery.pending() > 0) {
+            return false;
+        }
+
+        streamedDelivery = null;
+        streamed.message.complete();
+        getEndpoint().advance();
+
+        if (streamed.pendingAck != null) {
+            try {
+                acknowledge(streamed.envelope, streamed.pendingAck);
+            } catch (JMSException e) {
+                throw IOExceptionSupport.create(e);
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Streaming is limited to sessions where a message is settled once consumed and is
+     * never recovered, as the body of a streamed message can be read only once.
+     */
+    private boolean isStreamingSupported() {
+        int ackMode = resource.getAcknowledgementMode();
+        return !isBrowser() && (ackMode == Session.AUTO_ACKNOWLEDGE || ackMode == Session.DUPS_OK_ACKNOWLEDGE);
+    }
+
+    /**
+     * Resumes a streamed delivery once the application has read enough of the message
+     * body to make room for more of it, or has discarded it.
+     *
+     * @param provider
+     *        the provider that owns this consumer.
+     *
+     * @throws IOException if an error occurs while processing the delivery.
+     */
+    void resumeStreamedDelivery(AmqpProvider provider) throws IOException {
+        if (streamedDelivery != null) {
+            processDeliveryUpdates(provider);
+        }
+    }
+
+    /**
+     * Fails the body of any message that is being streamed to the application as the rest
+     * of it will not arrive.
+     *
+     * @param error
+     *        the cause of the failure.
+     */
+    void failStreamedDelivery(IOException error) {
+        StreamedDelivery streamed = streamedDelivery;
+        if (streamed != null) {
+            streamedDelivery = null;
+            streamed.message.fail(error);
+        }
+        unstreamableDelivery = null;
     }
 
     protected long getNextIncomingSequenceNumber() {
@@ -511,6 +698,36 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         }
     }
 
+    /*
+     * Hands back a message that did not match the consumer's selector.  A browser only
+     * releases it, otherwise it is marked undeliverable here so the remote does not
+     * send it to this consumer again.  The credit it used is returned to the link, for a
+     * consumer with no prefetch only while the pull it answered has not been withdrawn.
+     */
+    private void deliveryFiltered(JmsInboundMessageDispatch envelope, Delivery delivery) {
+        if (!delivery.isSettled()) {
+            if (isBrowser()) {
+                delivery.disposition(Released.getInstance());
+            } else {
+                Modified disposition = new Modified();
+                disposition.setUndeliverableHere(true);
+                delivery.disposition(disposition);
+            }
+            delivery.settle();
+        }
+
+        if (delivered.remove(envelope) == null) {
+            if (resource.getPrefetchSize() == 0) {
+                // Renew the pull the filtered message answered if a receive still waits on it.
+                if (pullOutstanding && getEndpoint().getCredit() == 0) {
+                    getEndpoint().flow(1);
+                }
+            } else {
+                sendFlowIfNeeded();
+            }
+        }
+    }
+
     protected void deliver(JmsInboundMessageDispatch envelope) throws Exception {
         ProviderListener listener = session.getProvider().getProviderListener();
         if (listener != null) {
@@ -525,18 +742,16 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         }
     }
 
-    // TODO - Find more efficient ways to produce the Message instance.
     protected Message decodeIncomingMessage(Delivery incoming) {
-        int count;
+        receiveIncoming();
+        unstreamableDelivery = null;
 
-        while ((count = getEndpoint().recv(incomingBuffer.array(), incomingBuffer.writerIndex(), incomingBuffer.writableBytes())) > 0) {
-            incomingBuffer.writerIndex(incomingBuffer.writerIndex() + count);
-            if (!incomingBuffer.isWritable()) {
-                incomingBuffer.capacity((int) (incomingBuffer.capacity() * 1.5));
+        try {
+            if (session.getConnection().isLazyMessageDecode()) {
+                // The lazy message copies the encoded bytes into a buffer of its own.
+                return session.getConnection().getLazyMessagePool().decode(incomingBuffer.array(), 0, incomingBuffer.readableBytes());
             }
-        }
 
-        try {
             Message protonMessage = Message.Factory.create();
             protonMessage.decode(incomingBuffer.array(), 0, incomingBuffer.readableBytes());
             return protonMessage;
@@ -562,4 +777,31 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
      */
     public void postRollback() throws Exception {
     }
+
+    /*
+     * Appends whatever bytes of the current delivery Proton holds to the incoming buffer.
+     */
+    private void receiveIncoming() {
+        int count;
+
+        while ((count = getEndpoint().recv(incomingBuffer.array(), incomingBuffer.writerIndex(), incomingBuffer.writableBytes())) > 0) {
+            incomingBuffer.writerIndex(incomingBuffer.writerIndex() + count);
+            if (!incomingBuffer.isWritable()) {
+                incomingBuffer.capacity((int) (incomingBuffer.capacity() * 1.5));
+            }
+        }
+    }
+
+    private static final class StreamedDelivery {
+
+        private final Delivery delivery;
+        private final AmqpStreamedMessage message;
+        private JmsInboundMessageDispatch envelope;
+        private ACK_TYPE pendingAck;
+
+        public StreamedDelivery(Delivery delivery, AmqpStreamedMessage message) {
+            this.delivery = delivery;
+            this.message = message;
+        }
+    }
 }
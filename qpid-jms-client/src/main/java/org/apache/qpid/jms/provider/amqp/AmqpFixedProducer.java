@@ -32,13 +32,19 @@ import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
 import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper;
+import org.apache.qpid.jms.provider.amqp.message.AmqpEncodedSections;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsBytesMessageFacade;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFacade;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.amqp.messaging.Outcome;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Section;
 import org.apache.qpid.proton.amqp.messaging.Source;
 import org.apache.qpid.proton.amqp.messaging.Target;
 import org.apache.qpid.proton.amqp.transaction.TransactionalState;
@@ -60,6 +66,9 @@ public class AmqpFixedProducer extends AmqpProducer {
 
     private static final Logger LOG = LoggerFactory.getLogger(AmqpFixedProducer.class);
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[] {};
+    private static final int ENCODED_SECTIONS_ALLOWANCE = 1024 * 2;
+    private static final int STREAMED_CHUNK_SIZE = 1024 * 64;
+    private static final int DATA_SECTION_HEADER_SIZE = 8;
 
     private final AmqpTransferTagGenerator tagGenerator = new AmqpTransferTagGenerator(true);
     private final Set<Delivery> pending = new LinkedHashSet<Delivery>();
@@ -67,6 +76,8 @@ public class AmqpFixedProducer extends AmqpProducer {
     private byte[] encodeBuffer = new byte[1024 * 8];
     private boolean presettle = false;
 
+    private StreamedSend streamedSend;
+
     public AmqpFixedProducer(AmqpSession session, JmsProducerInfo info) {
         super(session, info);
     }
@@ -74,7 +85,7 @@ public class AmqpFixedProducer extends AmqpProducer {
     @Override
     public void close(AsyncResult request) {
         // If any sends are held we need to wait for them to complete.
-        if (!pendingSends.isEmpty()) {
+        if (!pendingSends.isEmpty() || streamedSend != null) {
             this.closeRequest = request;
             return;
         }
@@ -95,6 +106,11 @@ public class AmqpFixedProducer extends AmqpProducer {
             envelope.setSendAsync(false);
             this.pendingSends.addLast(new PendingSend(envelope, request));
             return false;
+        } else if (streamedSend != null) {
+            LOG.trace("Holding Message send until the current streamed send completes.");
+            envelope.setSendAsync(false);
+            this.pendingSends.addLast(new PendingSend(envelope, request));
+            return false;
         } else {
             doSend(envelope, request);
             return true;
@@ -125,8 +141,18 @@ public class AmqpFixedProducer extends AmqpProducer {
         }
 
         AmqpJmsMessageFacade amqpMessageFacade = (AmqpJmsMessageFacade) facade;
-        encodeAndSend(amqpMessageFacade.getAmqpMessage(), delivery);
+        if (amqpMessageFacade instanceof AmqpJmsBytesMessageFacade &&
+            ((AmqpJmsBytesMessageFacade) amqpMessageFacade).getBodySource() != null) {
+
+            beginStreamedSend((AmqpJmsBytesMessageFacade) amqpMessageFacade, envelope, delivery, request);
+            return;
+        }
 
+        encodeAndSend(amqpMessageFacade, delivery);
+        completeSend(envelope, delivery, request);
+    }
+
+    private void completeSend(JmsOutboundMessageDispatch envelope, Delivery delivery, AsyncResult request) {
         if (presettle) {
             delivery.settle();
         } else {
@@ -139,53 +165,236 @@ public class AmqpFixedProducer extends AmqpProducer {
         }
     }
 
-    private void encodeAndSend(Message message, Delivery delivery) throws IOException {
+    private void encodeAndSend(AmqpJmsMessageFacade facade, Delivery delivery) throws IOException {
+        Message message = facade.getAmqpMessage();
+
+        // Size the buffer for large bodies before encoding instead of encoding the
+        // whole message again each time the buffer turns out to be too small.
+        int sizeHint = facade.getEncodedBodySizeHint();
+        if (sizeHint > 0 && sizeHint > encodeBuffer.length - ENCODED_SECTIONS_ALLOWANCE) {
+            encodeBuffer = new byte[sizeHint + ENCODED_SECTIONS_ALLOWANCE];
+        }
+
+        sendBytes(encodeBuffer, 0, encode(message));
+    }
+
+    private int encode(Message message) {
+        Header header = message.getHeader();
+        MessageAnnotations annotations = message.getMessageAnnotations();
+
+        byte[] encodedHeader = AmqpEncodedSections.getEncodedHeader(header);
+        byte[] encodedAnnotations = AmqpEncodedSections.getEncodedMessageAnnotations(annotations);
+
+        // The shared encodings can only be placed at the front, which is where the header
+        // and message annotations go unless there are delivery annotations between them.
+        if (encodedHeader == null || encodedAnnotations == null || message.getDeliveryAnnotations() != null) {
+            return encode(message, 0);
+        }
+
+        int prefixSize = encodedHeader.length + encodedAnnotations.length;
+
+        message.setHeader(null);
+        message.setMessageAnnotations(null);
+        try {
+            int encodedSize = encode(message, prefixSize);
+            System.arraycopy(encodedHeader, 0, encodeBuffer, 0, encodedHeader.length);
+            System.arraycopy(encodedAnnotations, 0, encodeBuffer, encodedHeader.length, encodedAnnotations.length);
+            return prefixSize + encodedSize;
+        } finally {
+            message.setHeader(header);
+            message.setMessageAnnotations(annotations);
+        }
+    }
 
-        int encodedSize;
+    private int encode(Message message, int offset) {
         while (true) {
             try {
-                encodedSize = message.encode(encodeBuffer, 0, encodeBuffer.length);
-                break;
+                return message.encode(encodeBuffer, offset, encodeBuffer.length - offset);
             } catch (java.nio.BufferOverflowException e) {
                 encodeBuffer = new byte[encodeBuffer.length * 2];
             }
         }
+    }
 
+    private void sendBytes(byte[] data, int offset, int length) {
         int sentSoFar = 0;
 
-        while (true) {
-            int sent = getEndpoint().send(encodeBuffer, sentSoFar, encodedSize - sentSoFar);
+        while (sentSoFar < length) {
+            int sent = getEndpoint().send(data, offset + sentSoFar, length - sentSoFar);
             if (sent > 0) {
                 sentSoFar += sent;
-                if ((encodedSize - sentSoFar) == 0) {
-                    break;
-                }
             } else {
                 LOG.warn("{} failed to send any data from current Message.", this);
             }
         }
     }
 
+    /*
+     * Sends the sections that precede the body and the head of the Data section that holds
+     * it, the body itself follows in chunks read from the message's body source.
+     */
+    private void beginStreamedSend(AmqpJmsBytesMessageFacade facade, JmsOutboundMessageDispatch envelope, Delivery delivery, AsyncResult request) {
+        Message message = facade.getAmqpMessage();
+        Section body = message.getBody();
+        Footer footer = message.getFooter();
+
+        byte[] trailer = null;
+        if (footer != null) {
+            Message footerOnly = Message.Factory.create();
+            footerOnly.setFooter(footer);
+            int footerSize = encode(footerOnly);
+            trailer = new byte[footerSize];
+            System.arraycopy(encodeBuffer, 0, trailer, 0, footerSize);
+        }
+
+        int prefixSize;
+        try {
+            message.setBody(null);
+            message.setFooter(null);
+            prefixSize = encode(message);
+        } finally {
+            message.setBody(body);
+            message.setFooter(footer);
+        }
+
+        long length = facade.getBodySourceLength();
+        byte[] header = new byte[DATA_SECTION_HEADER_SIZE];
+        header[0] = 0x00;
+        header[1] = 0x53;
+        header[2] = 0x75;
+        header[3] = (byte) 0xB0;
+        header[4] = (byte) (length >>> 24);
+        header[5] = (byte) (length >>> 16);
+        header[6] = (byte) (length >>> 8);
+        header[7] = (byte) length;
+
+        sendBytes(encodeBuffer, 0, prefixSize);
+        sendBytes(header, 0, header.length);
+
+        // The body is read off the provider thread and follows one chunk at a time once
+        // what has been sent so far is written out.
+        final AmqpProvider provider = connection.getProvider();
+        AmqpBodySourceReader reader = new AmqpBodySourceReader(facade.getBodySource(), length, STREAMED_CHUNK_SIZE, new Runnable() {
+
+            @Override
+            public void run() {
+                provider.resumeSend(AmqpFixedProducer.this);
+            }
+        });
+
+        streamedSend = new StreamedSend(envelope, request, delivery, reader, length, trailer);
+        provider.readBodySource(reader);
+    }
+
+    /**
+     * Passes the next chunk of a streamed send to Proton.  A chunk is only taken from the
+     * body reader once the previous one has been written to the transport, which holds the
+     * send back while the remote session window is closed or the transport is backed up,
+     * and so bounds the memory used to a few chunks.
+     */
+    void processStreamedSend() {
+        StreamedSend streamed = streamedSend;
+        if (streamed == null) {
+            return;
+        }
+
+        AmqpProvider provider = connection.getProvider();
+        if (streamed.delivery.pending() > 0 || !provider.isTransportWritable()) {
+            provider.awaitSendResume(this);
+            return;
+        }
+
+        if (streamed.remaining > 0) {
+            byte[] chunk;
+            try {
+                chunk = streamed.reader.take();
+            } catch (IOException e) {
+                failStreamedSend(e);
+                return;
+            }
+
+            // The reader resumes the send once the next chunk has been read.
+            if (chunk != null) {
+                sendBytes(chunk, 0, chunk.length);
+                streamed.remaining -= chunk.length;
+                provider.resumeSend(this);
+            }
+            return;
+        }
+
+        streamedSend = null;
+        if (streamed.trailer != null) {
+            sendBytes(streamed.trailer, 0, streamed.trailer.length);
+        }
+
+        streamed.reader.cancel();
+        completeSend(streamed.envelope, streamed.delivery, streamed.request);
+
+        try {
+            sendHeldMessages();
+        } catch (IOException e) {
+            provider.fireProviderException(e);
+        }
+    }
+
+    /*
+     * The remote has part of a delivery that cannot be finished.  Proton cannot abort it and
+     * holds back a detach or end while it is unfinished, and ending it short would hand the
+     * remote a corrupt message, so the connection is dropped and the remote discards the
+     * incomplete transfer along with it.
+     */
+    private void failStreamedSend(IOException error) {
+        LOG.warn("{} failed reading the body of a streamed send: {}", this, error.getMessage());
+        abandonStreamedSend(error);
+
+        while (!pendingSends.isEmpty()) {
+            pendingSends.pop().request.onFailure(error);
+        }
+
+        // A close that waited on the send is done once the link goes with the connection.
+        if (isAwaitingClose()) {
+            closed();
+        }
+
+        connection.getProvider().failConnection(error);
+    }
+
+    private void abandonStreamedSend(IOException error) {
+        StreamedSend streamed = streamedSend;
+        if (streamed != null) {
+            streamedSend = null;
+            streamed.reader.cancel();
+            streamed.request.onFailure(error);
+        }
+    }
+
+    @Override
+    public void remotelyClosed(AmqpProvider provider) {
+        abandonStreamedSend(new IOException("Producer closed before the message body was sent"));
+        super.remotelyClosed(provider);
+    }
+
     @Override
     public void processFlowUpdates(AmqpProvider provider) throws IOException {
-        if (!pendingSends.isEmpty() && getEndpoint().getCredit() > 0) {
-            while (getEndpoint().getCredit() > 0 && !pendingSends.isEmpty()) {
-                LOG.trace("Dispatching previously held send");
-                PendingSend held = pendingSends.pop();
-                try {
-                    doSend(held.envelope, held.request);
-                } catch (JMSException e) {
-                    throw IOExceptionSupport.create(e);
-                }
+        sendHeldMessages();
+        super.processFlowUpdates(provider);
+    }
+
+    private void sendHeldMessages() throws IOException {
+        while (getEndpoint().getCredit() > 0 && !pendingSends.isEmpty() && streamedSend == null) {
+            LOG.trace("Dispatching previously held send");
+            PendingSend held = pendingSends.pop();
+            try {
+                doSend(held.envelope, held.request);
+            } catch (JMSException e) {
+                throw IOExceptionSupport.create(e);
             }
         }
 
         // Once the pending sends queue is drained we can propagate the close request.
-        if (pendingSends.isEmpty() && isAwaitingClose()) {
+        if (pendingSends.isEmpty() && streamedSend == null && isAwaitingClose()) {
             super.close(closeRequest);
         }
-
-        super.processFlowUpdates(provider);
     }
 
     @Override
@@ -327,6 +536,25 @@ public class AmqpFixedProducer extends AmqpProducer {
         return "AmqpFixedProducer { " + getProducerId() + " }";
     }
 
+    private static class StreamedSend {
+
+        public final JmsOutboundMessageDispatch envelope;
+        public final AsyncResult request;
+        public final Delivery delivery;
+        public final AmqpBodySourceReader reader;
+        public final byte[] trailer;
+        public long remaining;
+
+        public StreamedSend(JmsOutboundMessageDispatch envelope, AsyncResult request, Delivery delivery, AmqpBodySourceReader reader, long length, byte[] trailer) {
+            this.envelope = envelope;
+            this.request = request;
+            this.delivery = delivery;
+            this.reader = reader;
+            this.remaining = length;
+            this.trailer = trailer;
+        }
+    }
+
     private static class PendingSend {
 
         public JmsOutboundMessageDispatch envelope;
@@ -23,6 +23,11 @@ import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -55,6 +60,8 @@ import org.apache.qpid.jms.provider.ProviderClosedException;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJavaSerializationCodec;
+import org.apache.qpid.jms.provider.amqp.message.AmqpObjectMessageCodecFinder;
 import org.apache.qpid.jms.transports.TransportFactory;
 import org.apache.qpid.jms.transports.TransportListener;
 import org.apache.qpid.jms.util.IOExceptionSupport;
@@ -97,6 +104,8 @@ public class AmqpProvider implements Provider, TransportListener {
     private static final AtomicInteger PROVIDER_SEQUENCE = new AtomicInteger();
     private static final NoOpAsyncResult NOOP_REQUEST = new NoOpAsyncResult();
 
+    private final Set<AmqpFixedProducer> waitingSends = new LinkedHashSet<AmqpFixedProducer>();
+
     private ProviderListener listener;
     private AmqpConnection connection;
     private org.apache.qpid.jms.transports.Transport transport;
@@ -105,6 +114,9 @@ public class AmqpProvider implements Provider, TransportListener {
     private boolean traceBytes;
     private boolean presettleConsumers;
     private boolean presettleProducers;
+    private boolean lazyMessageDecode;
+    private String objectMessageCodec = AmqpJavaSerializationCodec.NAME;
+    private int largeMessageThreshold;
     private long connectTimeout = JmsConnectionInfo.DEFAULT_CONNECT_TIMEOUT;
     private long closeTimeout = JmsConnectionInfo.DEFAULT_CLOSE_TIMEOUT;
     private long requestTimeout = JmsConnectionInfo.DEFAULT_REQUEST_TIMEOUT;
@@ -119,6 +131,7 @@ public class AmqpProvider implements Provider, TransportListener {
     private final Collector protonCollector = new CollectorImpl();
 
     private ScheduledFuture<?> nextIdleTimeoutCheck;
+    private ExecutorService bodySourceReaders;
 
     /**
      * Create a new instance of an AmqpProvider bonded to the given remote URI.
@@ -218,6 +231,11 @@ public class AmqpProvider implements Provider, TransportListener {
                 }
 
                 serializer.shutdown();
+                synchronized (this) {
+                    if (bodySourceReaders != null) {
+                        bodySourceReaders.shutdownNow();
+                    }
+                }
             }
         }
     }
@@ -488,19 +506,42 @@ public class AmqpProvider implements Provider, TransportListener {
                 try {
                     checkClosed();
 
-                    JmsConsumerId consumerId = envelope.getConsumerId();
-                    AmqpConsumer consumer = null;
+                    AmqpConsumer consumer = lookupConsumer(envelope.getConsumerId());
+                    consumer.acknowledge(envelope, ackType);
 
-                    if (consumerId.getProviderHint() instanceof AmqpConsumer) {
-                        consumer = (AmqpConsumer) consumerId.getProviderHint();
+                    if (consumer.getSession().isAsyncAck()) {
+                        request.onSuccess();
+                        pumpToProtonTransport(request);
                     } else {
-                        AmqpSession session = connection.getSession(consumerId.getParentId());
-                        consumer = session.getConsumer(consumerId);
+                        pumpToProtonTransport(request);
+                        request.onSuccess();
                     }
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
 
-                    consumer.acknowledge(envelope, ackType);
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
 
-                    if (consumer.getSession().isAsyncAck()) {
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+
+                    boolean asyncAck = true;
+                    for (JmsInboundMessageDispatch envelope : envelopes) {
+                        AmqpConsumer consumer = lookupConsumer(envelope.getConsumerId());
+                        consumer.acknowledge(envelope, ackType);
+                        asyncAck &= consumer.getSession().isAsyncAck();
+                    }
+
+                    // All dispositions are written to the transport in one pass.
+                    if (asyncAck) {
                         request.onSuccess();
                         pumpToProtonTransport(request);
                     } else {
@@ -591,7 +632,7 @@ public class AmqpProvider implements Provider, TransportListener {
     }
 
     @Override
-    public void pull(final JmsConsumerId consumerId, final long timeout, final AsyncResult request) throws IOException {
+    public void pull(final JmsConsumerId consumerId, final long timeout, final int count, final AsyncResult request) throws IOException {
         checkClosed();
         serializer.execute(new Runnable() {
 
@@ -599,18 +640,9 @@ public class AmqpProvider implements Provider, TransportListener {
             public void run() {
                 try {
                     checkClosed();
-                    AmqpConsumer consumer = null;
-
-                    if (consumerId.getProviderHint() instanceof AmqpConsumer) {
-                        consumer = (AmqpConsumer) consumerId.getProviderHint();
-                    } else {
-                        AmqpSession session = connection.getSession(consumerId.getParentId());
-                        consumer = session.getConsumer(consumerId);
-                    }
-
-                    consumer.pull(timeout);
+                    AmqpConsumer consumer = lookupConsumer(consumerId);
+                    consumer.pull(timeout, count, request);
                     pumpToProtonTransport(request);
-                    request.onSuccess();
                 } catch (Exception error) {
                     request.onFailure(error);
                 }
@@ -666,10 +698,34 @@ public class AmqpProvider implements Provider, TransportListener {
                 // any pending updates to the Broker.
                 processUpdates();
                 pumpToProtonTransport(NOOP_REQUEST);
+
+                // New data may have opened the session window for a waiting streamed send.
+                if (resumeWaitingSends()) {
+                    pumpToProtonTransport(NOOP_REQUEST);
+                }
             }
         });
     }
 
+    /**
+     * Callback method for the Transport to report that it has written out the data it had
+     * buffered, any streamed sends that were held back by it are resumed.
+     */
+    @Override
+    public void onTransportWritable() {
+        if (!serializer.isShutdown()) {
+            serializer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (resumeWaitingSends()) {
+                        pumpToProtonTransport(NOOP_REQUEST);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Callback method for the Transport to report connection errors.  When called
      * the method will queue a new task to fire the failure error back to the listener.
@@ -719,6 +775,99 @@ public class AmqpProvider implements Provider, TransportListener {
         }
     }
 
+    /*
+     * Has the given consumer resume a delivery that was waiting on the application, the
+     * work is done on the provider thread and anything it produces is written out.
+     */
+    void resumeDelivery(final AmqpConsumer consumer) {
+        if (!serializer.isShutdown()) {
+            serializer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        consumer.resumeStreamedDelivery(AmqpProvider.this);
+                    } catch (Exception ex) {
+                        LOG.warn("Caught Exception while resuming delivery: {}", ex.getMessage(), ex);
+                        fireProviderException(ex);
+                    }
+
+                    pumpToProtonTransport(NOOP_REQUEST);
+                }
+            });
+        }
+    }
+
+    /*
+     * Has the given producer send the next chunk of a streamed send, the work is queued
+     * behind any other pending work and what the producer sends is then written out.
+     */
+    void resumeSend(final AmqpFixedProducer producer) {
+        if (!serializer.isShutdown()) {
+            serializer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    producer.processStreamedSend();
+                    pumpToProtonTransport(NOOP_REQUEST);
+                }
+            });
+        }
+    }
+
+    /*
+     * Reads the body of a streamed send on a thread of its own, the threads are only created
+     * once a streamed send is made and go away again when left idle.
+     */
+    synchronized void readBodySource(AmqpBodySourceReader reader) {
+        if (closed.get()) {
+            reader.cancel();
+            return;
+        }
+
+        if (bodySourceReaders == null) {
+            bodySourceReaders = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runner) {
+                    Thread reader = new Thread(runner);
+                    reader.setDaemon(true);
+                    reader.setName(AmqpProvider.this.getClass().getSimpleName() + ":BodySourceReader:[" +
+                                   getRemoteURI() + "]");
+                    return reader;
+                }
+            });
+        }
+
+        bodySourceReaders.execute(reader);
+    }
+
+    /*
+     * Holds a streamed send until the remote opens the session window or the transport
+     * becomes writable again.
+     */
+    void awaitSendResume(AmqpFixedProducer producer) {
+        waitingSends.add(producer);
+    }
+
+    boolean isTransportWritable() {
+        return transport != null && transport.isWritable();
+    }
+
+    private boolean resumeWaitingSends() {
+        if (waitingSends.isEmpty()) {
+            return false;
+        }
+
+        List<AmqpFixedProducer> producers = new ArrayList<AmqpFixedProducer>(waitingSends);
+        waitingSends.clear();
+        for (AmqpFixedProducer producer : producers) {
+            producer.processStreamedSend();
+        }
+
+        return true;
+    }
+
     private void processUpdates() {
         try {
             Event protonEvent = null;
@@ -826,6 +975,25 @@ public class AmqpProvider implements Provider, TransportListener {
         }
     }
 
+    /*
+     * Drops the connection when the remote holds part of a delivery that cannot be finished,
+     * the remote discards an incomplete transfer when the connection it arrived on is lost.
+     */
+    void failConnection(IOException error) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (Exception e) {
+                LOG.debug("Caught exception while closing down Transport: {}", e.getMessage());
+            }
+        }
+
+        fireProviderException(error);
+        if (connection != null) {
+            connection.closed();
+        }
+    }
+
     void fireProviderException(Throwable ex) {
         ProviderListener listener = this.listener;
         if (listener != null) {
@@ -840,6 +1008,15 @@ public class AmqpProvider implements Provider, TransportListener {
         }
     }
 
+    private AmqpConsumer lookupConsumer(JmsConsumerId consumerId) {
+        if (consumerId.getProviderHint() instanceof AmqpConsumer) {
+            return (AmqpConsumer) consumerId.getProviderHint();
+        } else {
+            AmqpSession session = connection.getSession(consumerId.getParentId());
+            return session.getConsumer(consumerId);
+        }
+    }
+
     private void checkClosed() throws ProviderClosedException {
         if (closed.get()) {
             throw new ProviderClosedException("This Provider is already closed");
@@ -926,6 +1103,84 @@ public class AmqpProvider implements Provider, TransportListener {
         this.presettleProducers = presettle;
     }
 
+    public boolean isLazyMessageDecode() {
+        return lazyMessageDecode;
+    }
+
+    /**
+     * Controls whether incoming messages are fully decoded on arrival or if each section
+     * of the message is only decoded when first accessed.  Lazy decoding retains the encoded
+     * form of the message which avoids decoding sections such as the body for messages whose
+     * content is never read.
+     *
+     * The saving only reaches the application when the connection also uses zero copy
+     * delivery (jms.zeroCopyDelivery), otherwise each message is copied before it is
+     * delivered and the copy reads every section, so decoding is only deferred until then.
+     *
+     * @param lazyMessageDecode
+     *        true if incoming messages should be decoded on demand.
+     */
+    public void setLazyMessageDecode(boolean lazyMessageDecode) {
+        this.lazyMessageDecode = lazyMessageDecode;
+    }
+
+    /**
+     * @return the name of the codec used to store the body of ObjectMessages that are sent.
+     */
+    public String getObjectMessageCodec() {
+        return objectMessageCodec;
+    }
+
+    /**
+     * Selects the codec used to store the body of ObjectMessages sent on this connection
+     * when they are not sent as AMQP typed values.  The codec's content type is set on
+     * each message so that receivers can read it with the same codec.
+     *
+     * @param objectMessageCodec
+     *        the name of the codec to use.
+     *
+     * @throws IllegalArgumentException if no codec with the given name can be found.
+     */
+    public void setObjectMessageCodec(String objectMessageCodec) {
+        AmqpObjectMessageCodecFinder.findCodec(objectMessageCodec);
+        this.objectMessageCodec = objectMessageCodec;
+    }
+
+    /**
+     * @return the size in bytes at which the body of an incoming BytesMessage is streamed, zero if disabled.
+     */
+    public int getLargeMessageThreshold() {
+        return largeMessageThreshold;
+    }
+
+    /**
+     * Sets the size in bytes that a partially received message must reach before the body
+     * of an incoming BytesMessage is handed to the application as a stream instead of being
+     * buffered in full.  The message is dispatched as soon as the threshold is reached and
+     * reading the body blocks until the rest of it arrives, the remote is held back from
+     * sending more than the threshold ahead of the reader.  Only consumers in an auto or
+     * dups-ok acknowledge session stream messages.  The body must be read before the
+     * listener returns or the consumer's next receive, any of it not read by then is
+     * discarded.  A value of zero disables streaming.
+     * <p>
+     * The remote is held back through the incoming window of the session, which AMQP
+     * applies to all of its links, so while a streamed body waits on its reader every
+     * other consumer in the same session waits as well.  Consumers of large messages are
+     * best given a session of their own.
+     *
+     * @param largeMessageThreshold
+     *        the size in bytes at which message bodies are streamed, or zero to disable.
+     *
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void setLargeMessageThreshold(int largeMessageThreshold) {
+        if (largeMessageThreshold < 0) {
+            throw new IllegalArgumentException("Large message threshold cannot be negative");
+        }
+
+        this.largeMessageThreshold = largeMessageThreshold;
+    }
+
     /**
      * @return the currently set Max Frame Size value.
      */
@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.messaging.Source;
 import org.slf4j.Logger;
@@ -51,15 +52,21 @@ public class AmqpQueueBrowser extends AmqpConsumer {
      *
      * @param timeout
      *        ignored in this context.
+     * @param count
+     *        ignored in this context, the drain is always for the browser prefetch.
+     * @param request
+     *        the request to signal once the drain has been initiated.
      */
     @Override
-    public void pull(long timeout) {
+    public void pull(long timeout, int count, AsyncResult request) {
         if (!getEndpoint().getDrain() && getEndpoint().current() == null && getEndpoint().getUnsettled() == 0) {
             LOG.trace("QueueBrowser {} will try to drain remote.", getConsumerId());
             getEndpoint().drain(resource.getPrefetchSize());
         } else {
             getEndpoint().setDrain(false);
         }
+
+        request.onSuccess();
     }
 
     @Override
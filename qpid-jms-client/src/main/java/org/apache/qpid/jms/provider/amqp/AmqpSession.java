@@ -16,6 +16,7 @@
  */
 package org.apache.qpid.jms.provider.amqp;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -65,7 +66,17 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> {
 
     @Override
     protected void doOpen() {
-        this.getEndpoint().setIncomingCapacity(Integer.MAX_VALUE);
+        int largeMessageThreshold = connection.getLargeMessageThreshold();
+        if (largeMessageThreshold > 0) {
+            // Bound what Proton holds so that a streamed message body arrives no faster than
+            // it is read, the capacity must allow at least one frame for the window to open.
+            // The window covers every link in the session, a link cannot be held back alone
+            // part way through a delivery, so other consumers here wait on the reader too.
+            int maxFrameSize = connection.getProvider().getMaxFrameSize();
+            this.getEndpoint().setIncomingCapacity(Math.max(largeMessageThreshold, maxFrameSize * 2));
+        } else {
+            this.getEndpoint().setIncomingCapacity(Integer.MAX_VALUE);
+        }
         this.connection.addSession(this);
         super.doOpen();
     }
@@ -86,6 +97,19 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> {
         }
     }
 
+    /**
+     * Fails any message body that a consumer in this Session is still streaming to the
+     * application as the rest of it will not arrive.
+     *
+     * @param error
+     *        the cause of the failure.
+     */
+    void failStreamedDeliveries(IOException error) {
+        for (AmqpConsumer consumer : consumers.values()) {
+            consumer.failStreamedDelivery(error);
+        }
+    }
+
     /**
      * Perform re-send of all delivered but not yet acknowledged messages for all consumers
      * active in this Session.
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.io.ObjectInput;
+import java.util.Map;
+
+import javax.naming.NamingException;
+import javax.naming.Reference;
+
+import org.apache.qpid.jms.JmsQueue;
+import org.apache.qpid.jms.JmsTopic;
+import org.apache.qpid.jms.jndi.JNDIReferenceFactory;
+import org.apache.qpid.jms.util.ConcurrentLRUCache;
+
+/**
+ * A bounded cache of the queue and topic destinations named by incoming messages, so
+ * that messages arriving on a connection from the same few addresses share destination
+ * instances rather than each creating their own.  The cache may be used from any thread.
+ *
+ * The cached destinations are read-only, as a change made through one message would
+ * otherwise be seen on every later message from the same address.  Attempts to rename
+ * them or to set their properties throw UnsupportedOperationException.  They equal the
+ * queues and topics of the same name and are serialized and bound in JNDI as those.
+ *
+ * Temporary destinations are not cached as each instance tracks its own deleted state.
+ */
+public class AmqpDestinationCache {
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 256;
+
+    private final ConcurrentLRUCache<String, JmsQueue> queues;
+    private final ConcurrentLRUCache<String, JmsTopic> topics;
+
+    public AmqpDestinationCache() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new cache that holds no more than the given number of each destination type.
+     *
+     * @param maxCacheSize
+     *        the number of queues and of topics that are kept, must be positive.
+     */
+    public AmqpDestinationCache(int maxCacheSize) {
+        this.queues = new ConcurrentLRUCache<String, JmsQueue>(maxCacheSize);
+        this.topics = new ConcurrentLRUCache<String, JmsTopic>(maxCacheSize);
+    }
+
+    /**
+     * @param name
+     *        the name of the queue.
+     *
+     * @return the cached queue with the given name, created if not yet cached.
+     */
+    public JmsQueue getQueue(String name) {
+        JmsQueue queue = queues.get(name);
+        if (queue == null) {
+            queue = new CachedQueue(name);
+            queues.put(name, queue);
+        }
+
+        return queue;
+    }
+
+    /**
+     * @param name
+     *        the name of the topic.
+     *
+     * @return the cached topic with the given name, created if not yet cached.
+     */
+    public JmsTopic getTopic(String name) {
+        JmsTopic topic = topics.get(name);
+        if (topic == null) {
+            topic = new CachedTopic(name);
+            topics.put(name, topic);
+        }
+
+        return topic;
+    }
+
+    /**
+     * @return the number of destinations currently cached.
+     */
+    public int size() {
+        return queues.size() + topics.size();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Destination of a received message cannot be modified");
+    }
+
+    private static final class CachedQueue extends JmsQueue {
+
+        public CachedQueue(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        protected Map<String, String> buildFromProperties(Map<String, String> props) {
+            throw readOnly();
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) {
+            throw readOnly();
+        }
+
+        @Override
+        public Reference getReference() throws NamingException {
+            return JNDIReferenceFactory.createReference(JmsQueue.class.getName(), this);
+        }
+
+        private Object writeReplace() {
+            return new JmsQueue(getName());
+        }
+    }
+
+    private static final class CachedTopic extends JmsTopic {
+
+        public CachedTopic(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        protected Map<String, String> buildFromProperties(Map<String, String> props) {
+            throw readOnly();
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) {
+            throw readOnly();
+        }
+
+        @Override
+        public Reference getReference() throws NamingException {
+            return JNDIReferenceFactory.createReference(JmsTopic.class.getName(), this);
+        }
+
+        private Object writeReplace() {
+            return new JmsTopic(getName());
+        }
+    }
+}
@@ -67,9 +67,10 @@ public class AmqpDestinationHelper {
             typeByte = getTypeByte(message, AmqpMessageSupport.LEGACY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
         }
 
-        String name = stripPrefixIfNecessary(to, message.getConnection(), typeByte, consumerDestination);
+        AmqpConnection conn = message.getConnection();
+        String name = stripPrefixIfNecessary(to, conn, typeByte, consumerDestination);
 
-        return createDestination(name, typeByte, consumerDestination, false);
+        return createDestination(name, typeByte, conn, consumerDestination, false);
     }
 
     public JmsDestination getJmsReplyTo(AmqpJmsMessageFacade message, JmsDestination consumerDestination) {
@@ -80,9 +81,10 @@ public class AmqpDestinationHelper {
             typeByte = getTypeByte(message, AmqpMessageSupport.LEGACY_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
         }
 
-        String name = stripPrefixIfNecessary(replyTo, message.getConnection(), typeByte, consumerDestination);
+        AmqpConnection conn = message.getConnection();
+        String name = stripPrefixIfNecessary(replyTo, conn, typeByte, consumerDestination);
 
-        return createDestination(name, typeByte, consumerDestination, true);
+        return createDestination(name, typeByte, conn, consumerDestination, true);
     }
 
     private String stripPrefixIfNecessary(String address, AmqpConnection conn, byte typeByte, JmsDestination consumerDestination) {
@@ -115,7 +117,7 @@ public class AmqpDestinationHelper {
         return address;
     }
 
-    private JmsDestination createDestination(String address, byte typeByte, JmsDestination consumerDestination, boolean useConsumerDestForTypeOnly) {
+    private JmsDestination createDestination(String address, byte typeByte, AmqpConnection conn, JmsDestination consumerDestination, boolean useConsumerDestForTypeOnly) {
         if (address == null) {
             return useConsumerDestForTypeOnly ? null : consumerDestination;
         }
@@ -123,9 +125,9 @@ public class AmqpDestinationHelper {
         if (typeByte != UNKNOWN_TYPE) {
             switch (typeByte) {
             case QUEUE_TYPE:
-                return new JmsQueue(address);
+                return createQueue(address, conn);
             case TOPIC_TYPE:
-                return new JmsTopic(address);
+                return createTopic(address, conn);
             case TEMP_QUEUE_TYPE:
                 return new JmsTemporaryQueue(address);
             case TEMP_TOPIC_TYPE:
@@ -137,18 +139,28 @@ public class AmqpDestinationHelper {
             if (consumerDestination.isTemporary()) {
                 return new JmsTemporaryQueue(address);
             } else {
-                return new JmsQueue(address);
+                return createQueue(address, conn);
             }
         } else if (consumerDestination.isTopic()) {
             if (consumerDestination.isTemporary()) {
                 return new JmsTemporaryTopic(address);
             } else {
-                return new JmsTopic(address);
+                return createTopic(address, conn);
             }
         }
 
         // fall back to a Queue Destination since we need a real JMS destination
-        return new JmsQueue(address);
+        return createQueue(address, conn);
+    }
+
+    private JmsQueue createQueue(String address, AmqpConnection conn) {
+        AmqpDestinationCache cache = conn != null ? conn.getDestinationCache() : null;
+        return cache != null ? cache.getQueue(address) : new JmsQueue(address);
+    }
+
+    private JmsTopic createTopic(String address, AmqpConnection conn) {
+        AmqpDestinationCache cache = conn != null ? conn.getDestinationCache() : null;
+        return cache != null ? cache.getTopic(address) : new JmsTopic(address);
     }
 
     public void setToAddressFromDestination(AmqpJmsMessageFacade message, JmsDestination destination) {
@@ -245,12 +257,22 @@ public class AmqpDestinationHelper {
 
         HashSet<String> typeSet = new HashSet<String>();
 
-        // Split string on commas and their surrounding whitespace
-        for (String attr : typeString.split("\\s*,\\s*")) {
+        // Split string on commas and trim the whitespace around each value
+        int length = typeString.length();
+        int start = 0;
+        while (start <= length) {
+            int end = typeString.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            String attr = typeString.substring(start, end).trim();
             // ignore empty values
-            if (!attr.equals("")) {
+            if (!attr.isEmpty()) {
                 typeSet.add(attr);
             }
+
+            start = end + 1;
         }
 
         return typeSet;
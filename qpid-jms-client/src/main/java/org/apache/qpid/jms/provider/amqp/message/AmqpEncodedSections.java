@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.JMS_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.QUEUE_TYPE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.TEMP_TOPIC_TYPE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MESSAGE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MSG_TYPE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_TEXT_MESSAGE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+
+/**
+ * The encoded forms of the header and message annotations sections that nearly every
+ * outgoing message carries.  A plain header differs only in its durable flag and the
+ * annotations hold just the message type and the destination types, so there are few
+ * enough variations to encode each once and copy it into the encoded message instead of
+ * encoding those sections again for every send.
+ */
+public final class AmqpEncodedSections {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final Symbol MSG_TYPE = AmqpMessageSupport.getSymbol(JMS_MSG_TYPE);
+    private static final Symbol DEST_TYPE = AmqpMessageSupport.getSymbol(JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
+    private static final Symbol REPLY_TO_TYPE = AmqpMessageSupport.getSymbol(JMS_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
+
+    private static final int MSG_TYPE_COUNT = JMS_TEXT_MESSAGE - JMS_MESSAGE + 1;
+    // The destination types plus one for when the annotation is absent.
+    private static final int DEST_TYPE_COUNT = TEMP_TOPIC_TYPE - QUEUE_TYPE + 2;
+
+    private static final byte[] DURABLE_HEADER = encodeHeader(true);
+    private static final byte[] NON_DURABLE_HEADER = encodeHeader(false);
+
+    private static final AtomicReferenceArray<byte[]> ANNOTATIONS =
+        new AtomicReferenceArray<byte[]>(MSG_TYPE_COUNT * DEST_TYPE_COUNT * DEST_TYPE_COUNT);
+
+    private AmqpEncodedSections() {
+    }
+
+    /**
+     * Returns the encoded form of the given header if it is one of the common forms.
+     *
+     * @param header
+     *        the header section of the message, may be null.
+     *
+     * @return the encoded header, an empty array if there is none, or null if the header must be encoded.
+     */
+    public static byte[] getEncodedHeader(Header header) {
+        if (header == null) {
+            return EMPTY;
+        }
+
+        if (header.getDurable() == null || header.getPriority() != null || header.getTtl() != null ||
+            header.getFirstAcquirer() != null || header.getDeliveryCount() != null) {
+            return null;
+        }
+
+        return header.getDurable() ? DURABLE_HEADER : NON_DURABLE_HEADER;
+    }
+
+    /**
+     * Returns the encoded form of the given message annotations if they hold only the
+     * message type and destination type annotations.
+     *
+     * @param annotations
+     *        the message annotations section of the message, may be null.
+     *
+     * @return the encoded annotations, an empty array if there are none, or null if they must be encoded.
+     */
+    public static byte[] getEncodedMessageAnnotations(MessageAnnotations annotations) {
+        if (annotations == null) {
+            return EMPTY;
+        }
+
+        Map<Symbol, Object> values = annotations.getValue();
+        if (values == null || values.isEmpty() || values.size() > 3) {
+            return null;
+        }
+
+        int msgType = indexOf(values.get(MSG_TYPE), JMS_MESSAGE, MSG_TYPE_COUNT);
+        if (msgType < 0) {
+            return null;
+        }
+
+        int expected = 1;
+        int destType = 0;
+        if (values.containsKey(DEST_TYPE)) {
+            destType = indexOf(values.get(DEST_TYPE), QUEUE_TYPE, DEST_TYPE_COUNT - 1);
+            if (destType < 0) {
+                return null;
+            }
+            destType++;
+            expected++;
+        }
+
+        int replyToType = 0;
+        if (values.containsKey(REPLY_TO_TYPE)) {
+            replyToType = indexOf(values.get(REPLY_TO_TYPE), QUEUE_TYPE, DEST_TYPE_COUNT - 1);
+            if (replyToType < 0) {
+                return null;
+            }
+            replyToType++;
+            expected++;
+        }
+
+        if (values.size() != expected) {
+            return null;
+        }
+
+        int index = (msgType * DEST_TYPE_COUNT + destType) * DEST_TYPE_COUNT + replyToType;
+        byte[] encoded = ANNOTATIONS.get(index);
+        if (encoded == null) {
+            encoded = encodeAnnotations(msgType + JMS_MESSAGE, destType - 1 + QUEUE_TYPE, replyToType - 1 + QUEUE_TYPE,
+                                        destType > 0, replyToType > 0);
+            ANNOTATIONS.set(index, encoded);
+        }
+
+        return encoded;
+    }
+
+    private static int indexOf(Object value, byte first, int count) {
+        if (!(value instanceof Byte)) {
+            return -1;
+        }
+
+        int index = (Byte) value - first;
+        return index >= 0 && index < count ? index : -1;
+    }
+
+    private static byte[] encodeHeader(boolean durable) {
+        Header header = new Header();
+        header.setDurable(durable);
+
+        Message message = Proton.message();
+        message.setHeader(header);
+        return encode(message);
+    }
+
+    private static byte[] encodeAnnotations(int msgType, int destType, int replyToType, boolean hasDestType, boolean hasReplyToType) {
+        Map<Symbol, Object> values = new LinkedHashMap<Symbol, Object>();
+        values.put(MSG_TYPE, (byte) msgType);
+        if (hasDestType) {
+            values.put(DEST_TYPE, (byte) destType);
+        }
+        if (hasReplyToType) {
+            values.put(REPLY_TO_TYPE, (byte) replyToType);
+        }
+
+        Message message = Proton.message();
+        message.setMessageAnnotations(new MessageAnnotations(values));
+        return encode(message);
+    }
+
+    private static byte[] encode(Message message) {
+        byte[] buffer = new byte[256];
+        int length = message.encode(buffer, 0, buffer.length);
+        byte[] encoded = new byte[length];
+        System.arraycopy(buffer, 0, encoded, 0, length);
+        return encoded;
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.qpid.jms.util.ClassLoadingAwareObjectInputStream;
+import org.apache.qpid.jms.util.ConcurrentLRUCache;
+import org.apache.qpid.proton.amqp.Binary;
+
+/**
+ * An ObjectMessage codec that writes Externalizable objects directly through their
+ * writeExternal method, recording only the class name ahead of the object data.
+ *
+ * This avoids the stream header, class descriptors and reflective field access of
+ * Java serialization.  The class found for each class name is cached per class loader
+ * so that later reads of the same type do not search for the class again.  The cache
+ * holds class loaders and classes only weakly, so it does not keep an application that
+ * has been undeployed from being unloaded.  Values and nested objects that are not
+ * Externalizable are stored using Java serialization.
+ *
+ * An Externalizable object that is written more than once is stored once and referenced
+ * after that, so shared and cyclic references come back as they were sent.  Java
+ * serialization keeps its own references, so when an Externalizable object writes a
+ * nested object that is neither Externalizable nor a String or boxed primitive the
+ * whole value is stored using Java serialization instead.
+ */
+public class AmqpExternalizableCodec implements AmqpObjectMessageCodec {
+
+    public static final String NAME = "externalizable";
+    public static final String CONTENT_TYPE = "application/x-java-externalized-object";
+
+    private static final int DEFAULT_CLASS_CACHE_SIZE = 256;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte EXTERNALIZED_VALUE = 1;
+    private static final byte SERIALIZED_VALUE = 2;
+    private static final byte REFERENCE_VALUE = 3;
+
+    private static final ClassLoader FALLBACK_CLASS_LOADER = AmqpExternalizableCodec.class.getClassLoader();
+
+    // Held by the class itself so that it goes away along with the class.
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException | SecurityException e) {
+                return null;
+            }
+        }
+    };
+
+    private final Map<ClassLoader, ConcurrentLRUCache<String, WeakReference<Class<?>>>> classes =
+        new WeakHashMap<ClassLoader, ConcurrentLRUCache<String, WeakReference<Class<?>>>>();
+    private int classCacheSize = DEFAULT_CLASS_CACHE_SIZE;
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Binary encode(Serializable value) throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+
+        try (ExternalizableOutput output = new ExternalizableOutput(new ByteBufOutputStream(buffer))) {
+            output.writeObject(value);
+            if (output.isSerializationRequired()) {
+                buffer.clear();
+                output.writeSerialized(value);
+            }
+        }
+
+        return new Binary(buffer.array(), buffer.arrayOffset(), buffer.readableBytes());
+    }
+
+    @Override
+    public Serializable decode(Binary encoded) throws IOException, ClassNotFoundException {
+        try (ExternalizableInput input = new ExternalizableInput(
+                new ByteArrayInputStream(encoded.getArray(), encoded.getArrayOffset(), encoded.getLength()))) {
+
+            Object value = input.readObject();
+            if (value != null && !(value instanceof Serializable)) {
+                throw new InvalidClassException(value.getClass().getName(), "Decoded value is not Serializable");
+            }
+
+            return (Serializable) value;
+        }
+    }
+
+    /**
+     * @return the number of classes retained for reuse for each class loader.
+     */
+    public int getClassCacheSize() {
+        synchronized (classes) {
+            return classCacheSize;
+        }
+    }
+
+    /**
+     * @param size
+     *        the number of classes retained for reuse for each class loader.
+     */
+    public void setClassCacheSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than zero");
+        }
+
+        synchronized (classes) {
+            classCacheSize = size;
+            for (ConcurrentLRUCache<String, WeakReference<Class<?>>> cache : classes.values()) {
+                cache.setMaxCacheSize(size);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+    //----- Class resolution -------------------------------------------------//
+
+    private Externalizable newInstance(String className) throws IOException, ClassNotFoundException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        ConcurrentLRUCache<String, WeakReference<Class<?>>> cache = getClassCache(loader);
+
+        WeakReference<Class<?>> cached = cache.get(className);
+        Class<?> clazz = cached != null ? cached.get() : null;
+        if (clazz == null) {
+            clazz = load(className, loader);
+            if (!Externalizable.class.isAssignableFrom(clazz)) {
+                throw new InvalidClassException(className, "Class is not Externalizable");
+            }
+
+            cache.put(className, new WeakReference<Class<?>>(clazz));
+        }
+
+        Constructor<?> constructor = CONSTRUCTORS.get(clazz);
+        if (constructor == null) {
+            throw new InvalidClassException(className, "No public no-arg constructor");
+        }
+
+        try {
+            return (Externalizable) constructor.newInstance();
+        } catch (Exception e) {
+            InvalidClassException ice = new InvalidClassException(className, "Failed to create instance");
+            ice.initCause(e);
+            throw ice;
+        }
+    }
+
+    private ConcurrentLRUCache<String, WeakReference<Class<?>>> getClassCache(ClassLoader loader) {
+        synchronized (classes) {
+            ConcurrentLRUCache<String, WeakReference<Class<?>>> cache = classes.get(loader);
+            if (cache == null) {
+                cache = new ConcurrentLRUCache<String, WeakReference<Class<?>>>(classCacheSize);
+                classes.put(loader, cache);
+            }
+
+            return cache;
+        }
+    }
+
+    private static Class<?> load(String className, ClassLoader loader) throws ClassNotFoundException {
+        if (loader != null) {
+            try {
+                return Class.forName(className, false, loader);
+            } catch (ClassNotFoundException e) {
+            }
+        }
+
+        return Class.forName(className, false, FALLBACK_CLASS_LOADER);
+    }
+
+    //----- Stream implementations -------------------------------------------//
+
+    private static final class ExternalizableOutput extends DataOutputStream implements ObjectOutput {
+
+        private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+        private int depth;
+        private boolean serializationRequired;
+
+        public ExternalizableOutput(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * @return true if a nested object was found that only Java serialization can store
+         *         along with the references it holds, what was written must then be discarded.
+         */
+        public boolean isSerializationRequired() {
+            return serializationRequired;
+        }
+
+        @Override
+        public void writeObject(Object value) throws IOException {
+            if (serializationRequired) {
+                return;
+            }
+
+            Integer handle = value != null ? handles.get(value) : null;
+            if (value == null) {
+                writeByte(NULL_VALUE);
+            } else if (handle != null) {
+                writeByte(REFERENCE_VALUE);
+                writeInt(handle);
+            } else if (value instanceof Externalizable) {
+                handles.put(value, handles.size());
+                writeByte(EXTERNALIZED_VALUE);
+                writeUTF(value.getClass().getName());
+
+                depth++;
+                try {
+                    ((Externalizable) value).writeExternal(this);
+                } finally {
+                    depth--;
+                }
+            } else if (depth > 0 && !isImmutableValue(value)) {
+                serializationRequired = true;
+            } else {
+                writeSerialized(value);
+            }
+        }
+
+        public void writeSerialized(Object value) throws IOException {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+                oos.writeObject(value);
+            }
+
+            writeByte(SERIALIZED_VALUE);
+            writeInt(serialized.size());
+            serialized.writeTo(this);
+        }
+
+        private static boolean isImmutableValue(Object value) {
+            return value instanceof String || value instanceof Integer || value instanceof Long ||
+                   value instanceof Boolean || value instanceof Double || value instanceof Float ||
+                   value instanceof Short || value instanceof Byte || value instanceof Character;
+        }
+    }
+
+    private final class ExternalizableInput extends DataInputStream implements ObjectInput {
+
+        private final List<Object> handles = new ArrayList<Object>();
+
+        public ExternalizableInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public Object readObject() throws ClassNotFoundException, IOException {
+            byte type = readByte();
+            switch (type) {
+                case NULL_VALUE:
+                    return null;
+                case EXTERNALIZED_VALUE:
+                    Externalizable value = newInstance(readUTF());
+                    handles.add(value);
+                    value.readExternal(this);
+                    return value;
+                case REFERENCE_VALUE:
+                    int handle = readInt();
+                    if (handle < 0 || handle >= handles.size()) {
+                        throw new StreamCorruptedException("Invalid reference to encoded value: " + handle);
+                    }
+
+                    return handles.get(handle);
+                case SERIALIZED_VALUE:
+                    // The length is checked against what is left so a corrupt one cannot exhaust memory.
+                    int length = readInt();
+                    if (length < 0 || length > available()) {
+                        throw new StreamCorruptedException("Invalid serialized value length: " + length);
+                    }
+
+                    byte[] serialized = new byte[length];
+                    readFully(serialized);
+
+                    try (ClassLoadingAwareObjectInputStream objIn =
+                            new ClassLoadingAwareObjectInputStream(new ByteArrayInputStream(serialized))) {
+                        return objIn.readObject();
+                    }
+                default:
+                    throw new StreamCorruptedException("Unknown encoded value type: " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * An InputStream over the body of an incoming message that is still being received.
+ *
+ * The provider writes the body into the stream as it arrives and the application reads
+ * it from another thread, a read blocks until more of the body is available.  The stream
+ * buffers no more than its capacity, once full the provider stops taking bytes from the
+ * delivery until the application has read at least half of what is buffered, at which
+ * point the given callback is run to have the provider resume.  Closing the stream
+ * discards the remainder of the body.
+ */
+public class AmqpIncomingBodyStream extends InputStream {
+
+    private final long length;
+    private final int capacity;
+    private final Runnable resume;
+
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+    private byte[] current;
+    private int position;
+    private int buffered;
+
+    private boolean complete;
+    private boolean closed;
+    private boolean awaitingSpace;
+    private IOException failure;
+
+    /**
+     * Creates a new stream for a body of the given length.
+     *
+     * @param length
+     *        the number of bytes in the message body.
+     * @param capacity
+     *        the number of bytes that are buffered before the provider must wait.
+     * @param resume
+     *        the task that has the provider resume writing, run on the reading thread.
+     */
+    public AmqpIncomingBodyStream(long length, int capacity, Runnable resume) {
+        this.length = length;
+        this.capacity = capacity;
+        this.resume = resume;
+    }
+
+    /**
+     * @return the number of bytes in the message body.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    //----- Provider side ----------------------------------------------------//
+
+    /**
+     * Returns the number of bytes that can be written before the stream is full, when
+     * zero the resume task is run once the application has made room.  A closed stream
+     * accepts and discards any amount.
+     *
+     * @return the number of bytes the stream can currently take.
+     */
+    public synchronized int getFreeSpace() {
+        if (closed) {
+            return Integer.MAX_VALUE;
+        }
+
+        int free = capacity - buffered;
+        if (free <= 0) {
+            awaitingSpace = true;
+            return 0;
+        }
+
+        return free;
+    }
+
+    /**
+     * Appends a copy of the given bytes to the stream.
+     *
+     * @param data
+     *        the array holding the bytes.
+     * @param offset
+     *        the offset of the first byte to append.
+     * @param count
+     *        the number of bytes to append.
+     */
+    public synchronized void write(byte[] data, int offset, int count) {
+        if (closed || count <= 0) {
+            return;
+        }
+
+        byte[] chunk = new byte[count];
+        System.arraycopy(data, offset, chunk, 0, count);
+        chunks.addLast(chunk);
+        buffered += count;
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the body, readers see end of stream once all buffered bytes are read.
+     */
+    public synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Fails the stream, readers receive the given error once all buffered bytes are read.
+     *
+     * @param error
+     *        the reason the remainder of the body will not arrive.
+     */
+    public synchronized void fail(IOException error) {
+        if (!complete && failure == null) {
+            failure = error;
+            notifyAll();
+        }
+    }
+
+    //----- Application side -------------------------------------------------//
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int count = read(single, 0, 1);
+        return count < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        boolean wake = false;
+
+        synchronized (this) {
+            while (!closed && buffered == 0 && !complete && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the message body");
+                }
+            }
+
+            if (closed) {
+                throw new IOException("Stream has been closed");
+            }
+
+            if (buffered == 0) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return -1;
+            }
+
+            while (total < count && buffered > 0) {
+                if (current == null || position == current.length) {
+                    current = chunks.pollFirst();
+                    position = 0;
+                }
+
+                int taken = Math.min(count - total, current.length - position);
+                System.arraycopy(current, position, target, offset + total, taken);
+                position += taken;
+                total += taken;
+                buffered -= taken;
+            }
+
+            if (awaitingSpace && buffered <= capacity / 2) {
+                awaitingSpace = false;
+                wake = true;
+            }
+        }
+
+        if (wake) {
+            resume.run();
+        }
+
+        return total;
+    }
+
+    @Override
+    public synchronized int available() {
+        return buffered;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            chunks.clear();
+            current = null;
+            buffered = 0;
+            awaitingSpace = false;
+            notifyAll();
+        }
+
+        // The provider discards the rest of the body so it may need to be woken.
+        resume.run();
+    }
+}
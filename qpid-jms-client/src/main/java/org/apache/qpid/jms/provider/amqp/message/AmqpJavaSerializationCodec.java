@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.qpid.jms.util.ClassLoadingAwareObjectInputStream;
+import org.apache.qpid.proton.amqp.Binary;
+
+/**
+ * The default ObjectMessage codec which stores the object using standard Java
+ * serialization.
+ */
+public class AmqpJavaSerializationCodec implements AmqpObjectMessageCodec {
+
+    public static final String NAME = "java";
+    public static final String CONTENT_TYPE = AmqpMessageSupport.SERIALIZED_JAVA_OBJECT_CONTENT_TYPE;
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public Binary encode(Serializable value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(value);
+        }
+
+        return new Binary(baos.toByteArray());
+    }
+
+    @Override
+    public Serializable decode(Binary encoded) throws IOException, ClassNotFoundException {
+        try (ClassLoadingAwareObjectInputStream objIn = new ClassLoadingAwareObjectInputStream(
+                new ByteArrayInputStream(encoded.getArray(), encoded.getArrayOffset(), encoded.getLength()))) {
+
+            return (Serializable) objIn.readObject();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
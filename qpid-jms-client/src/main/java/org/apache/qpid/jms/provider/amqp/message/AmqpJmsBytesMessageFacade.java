@@ -30,6 +30,7 @@ import java.io.OutputStream;
 
 import javax.jms.IllegalStateException;
 import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
 
 import org.apache.qpid.jms.message.facade.JmsBytesMessageFacade;
 import org.apache.qpid.jms.provider.amqp.AmqpConnection;
@@ -47,10 +48,15 @@ import org.apache.qpid.proton.message.Message;
 public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements JmsBytesMessageFacade {
 
     private static final Binary EMPTY_BINARY = new Binary(new byte[0]);
+    private static final long MAX_DATA_LENGTH = 0xFFFFFFFFL;
     private static final Data EMPTY_BODY = new Data(EMPTY_BINARY);
 
     private transient ByteBufInputStream bytesIn;
     private transient ByteBufOutputStream bytesOut;
+    private transient AmqpIncomingBodyStream streamedBody;
+    private transient InputStream bodySource;
+    private transient long bodySourceLength;
+    private transient boolean bodySourceTaken;
 
     /**
      * Creates a new facade instance
@@ -79,11 +85,31 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
     }
 
     @Override
-    public AmqpJmsBytesMessageFacade copy() {
+    public AmqpJmsBytesMessageFacade copy() throws JMSException {
+        if (bodySourceTaken) {
+            throw new IllegalStateException("The body stream of this message has already been sent, it can only be sent once.");
+        }
+
         reset();
         AmqpJmsBytesMessageFacade copy = new AmqpJmsBytesMessageFacade(connection);
         copyInto(copy);
 
+        if (streamedBody != null) {
+            // A streamed body can only be read once so the copy takes over the stream.
+            copy.message.setBody(EMPTY_BODY);
+            copy.streamedBody = streamedBody;
+            return copy;
+        }
+
+        if (bodySource != null) {
+            // The stream can only be read once so the copy takes over the stream.
+            copy.message.setBody(EMPTY_BODY);
+            copy.bodySource = bodySource;
+            copy.bodySourceLength = bodySourceLength;
+            bodySourceTaken = true;
+            return copy;
+        }
+
         Binary payload = getBinaryFromBody();
         if (payload.getLength() > 0) {
             byte[] result = new byte[payload.getLength()];
@@ -103,11 +129,27 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
 
     @Override
     public boolean isEmpty() {
-        return getBinaryFromBody().getLength() == 0;
+        return getBodyLength() == 0;
+    }
+
+    @Override
+    public void onConsumed() {
+        // Whatever the application has not read of a streamed body is discarded so that
+        // the delivery can complete, later reads of the body fail.
+        if (streamedBody != null) {
+            streamedBody.close();
+        }
     }
 
     @Override
     public void clearBody() {
+        if (streamedBody != null) {
+            streamedBody.close();
+            streamedBody = null;
+        }
+        bodySource = null;
+        bodySourceLength = 0;
+        bodySourceTaken = false;
         if (bytesIn != null) {
             try {
                 bytesIn.close();
@@ -133,6 +175,14 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
             throw new IllegalStateException("Body is being written to, cannot perform a read.");
         }
 
+        if (streamedBody != null) {
+            return streamedBody;
+        }
+
+        if (bodySource != null) {
+            throw new IllegalStateException("Body is read from a stream when sent, cannot perform a read.");
+        }
+
         if (bytesIn == null) {
             Binary body = getBinaryFromBody();
             // Duplicate the content buffer to allow for getBodyLength() validity.
@@ -149,6 +199,10 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
             throw new IllegalStateException("Body is being read from, cannot perform a write.");
         }
 
+        if (bodySource != null) {
+            throw new IllegalStateException("Body is read from a stream when sent, cannot perform a write.");
+        }
+
         if (bytesOut == null) {
             bytesOut = new ByteBufOutputStream(Unpooled.buffer());
             message.setBody(EMPTY_BODY);
@@ -178,10 +232,67 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
     }
 
     @Override
-    public int getBodyLength() {
+    public long getBodyLength() {
+        if (streamedBody != null) {
+            return streamedBody.getLength();
+        }
+
+        if (bodySource != null) {
+            return bodySourceLength;
+        }
+
+        return getBinaryFromBody().getLength();
+    }
+
+    @Override
+    public int getEncodedBodySizeHint() {
+        if (bytesOut != null) {
+            return bytesOut.buffer().readableBytes();
+        }
+
         return getBinaryFromBody().getLength();
     }
 
+    @Override
+    public void setBodyStream(InputStream stream, long length) throws JMSException {
+        if (length > MAX_DATA_LENGTH) {
+            throw new MessageFormatException("Body length " + length + " is larger than an AMQP Data section can hold");
+        }
+
+        clearBody();
+        bodySource = stream;
+        bodySourceLength = length;
+    }
+
+    /**
+     * @return the stream the body is read from when this message is sent, or null if the body is held in the message.
+     */
+    public InputStream getBodySource() {
+        return bodySource;
+    }
+
+    /**
+     * @return the number of bytes to be read from the body source.
+     */
+    public long getBodySourceLength() {
+        return bodySourceLength;
+    }
+
+    /**
+     * @return true if the body of this received message is still arriving and is read as a stream.
+     */
+    public boolean isBodyStreamed() {
+        return streamedBody != null;
+    }
+
+    /*
+     * Replaces the body of a received message with a stream that is fed as the rest of
+     * the delivery arrives, the stream can be read only once.
+     */
+    void setStreamedBody(AmqpIncomingBodyStream streamedBody) {
+        this.streamedBody = streamedBody;
+    }
+
     /**
      * Get the underlying Binary object from the body, or
      * {@link EMPTY_BINARY} if there is none. Never returns null.
@@ -222,6 +333,10 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
 
     @Override
     public void onSend(boolean disableMsgId, boolean disableTimestamp, long producerTtl) throws JMSException {
+        if (streamedBody != null) {
+            throw new IllegalStateException("A message with a streamed body cannot be sent, its body is not held in memory.");
+        }
+
         super.onSend(disableMsgId, disableTimestamp, producerTtl);
 
         reset();
@@ -39,7 +39,9 @@ import org.apache.qpid.proton.message.Message;
  */
 public class AmqpJmsMapMessageFacade extends AmqpJmsMessageFacade implements JmsMapMessageFacade {
 
+    // The map is decoded on first use, copies share it until one of them writes to it.
     private Map<String,Object> messageBodyMap;
+    private boolean bodyShared;
 
     /**
      * Create a new facade ready for sending.
@@ -62,24 +64,11 @@ public class AmqpJmsMapMessageFacade extends AmqpJmsMessageFacade implements Jms
      * @param message
      *        the incoming Message instance that is being wrapped.
      */
-    @SuppressWarnings("unchecked")
     public AmqpJmsMapMessageFacade(AmqpConsumer consumer, Message message) {
         super(consumer, message);
 
-        Section body = getAmqpMessage().getBody();
-        if (body == null) {
-            initializeEmptyBody();
-        } else if (body instanceof AmqpValue) {
-            Object o = ((AmqpValue) body).getValue();
-            if (o == null) {
-                initializeEmptyBody();
-            } else if (o instanceof Map) {
-                messageBodyMap = (Map<String, Object>) o;
-            } else {
-                throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
-            }
-        } else {
-            throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
+        if (!isBodyEncoded()) {
+            decodeBody();
         }
     }
 
@@ -95,28 +84,36 @@ public class AmqpJmsMapMessageFacade extends AmqpJmsMessageFacade implements Jms
     public AmqpJmsMapMessageFacade copy() {
         AmqpJmsMapMessageFacade copy = new AmqpJmsMapMessageFacade(connection);
         copyInto(copy);
-        copy.messageBodyMap.putAll(messageBodyMap);
+
+        Map<String, Object> map = getBodyMap();
+        if (!map.isEmpty()) {
+            copy.messageBodyMap = map;
+            copy.getAmqpMessage().setBody(new AmqpValue(map));
+            copy.bodyShared = true;
+            bodyShared = true;
+        }
+
         return copy;
     }
 
     @Override
     public Enumeration<String> getMapNames() {
-        return Collections.enumeration(messageBodyMap.keySet());
+        return Collections.enumeration(getBodyMap().keySet());
     }
 
     @Override
     public boolean itemExists(String key) {
-        return messageBodyMap.containsKey(key);
+        return getBodyMap().containsKey(key);
     }
 
     @Override
     public boolean isEmpty() {
-        return messageBodyMap.isEmpty();
+        return getBodyMap().isEmpty();
     }
 
     @Override
     public Object get(String key) {
-        Object value = messageBodyMap.get(key);
+        Object value = getBodyMap().get(key);
         if (value instanceof Binary) {
             // Copy to a byte[], ensure we copy only the required portion.
             Binary bin = ((Binary) value);
@@ -133,23 +130,67 @@ public class AmqpJmsMapMessageFacade extends AmqpJmsMessageFacade implements Jms
             entry = new Binary((byte[]) value);
         }
 
-        messageBodyMap.put(key, entry);
+        getWritableBodyMap().put(key, entry);
     }
 
     @Override
     public Object remove(String key) {
-        return messageBodyMap.remove(key);
+        return getWritableBodyMap().remove(key);
     }
 
     @Override
     public void clearBody() {
-        messageBodyMap.clear();
+        if (messageBodyMap == null || bodyShared) {
+            initializeEmptyBody();
+        } else {
+            getBodyMap().clear();
+        }
+    }
+
+    private Map<String, Object> getBodyMap() {
+        if (messageBodyMap == null) {
+            decodeBody();
+        }
+
+        return messageBodyMap;
+    }
+
+    private Map<String, Object> getWritableBodyMap() {
+        Map<String, Object> map = getBodyMap();
+        if (bodyShared) {
+            map = new LinkedHashMap<String, Object>(map);
+            messageBodyMap = map;
+            bodyShared = false;
+            getAmqpMessage().setBody(new AmqpValue(map));
+        }
+
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void decodeBody() {
+        Section body = getAmqpMessage().getBody();
+        if (body == null) {
+            initializeEmptyBody();
+        } else if (body instanceof AmqpValue) {
+            Object o = ((AmqpValue) body).getValue();
+            if (o == null) {
+                initializeEmptyBody();
+            } else if (o instanceof Map) {
+                messageBodyMap = (Map<String, Object>) o;
+            } else {
+                throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
+            }
+        } else {
+            throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
+        }
     }
 
     private void initializeEmptyBody() {
         // Using LinkedHashMap because AMQP map equality considers order,
         // so we should behave in as predictable a manner as possible
         messageBodyMap = new LinkedHashMap<String, Object>();
+        bodyShared = false;
         getAmqpMessage().setBody(new AmqpValue(messageBodyMap));
     }
 }
@@ -126,6 +126,8 @@ public class AmqpJmsMessageBuilder {
                 return createBytesMessage(consumer, message);
             } else if (isContentType(SERIALIZED_JAVA_OBJECT_CONTENT_TYPE, message)) {
                 return createObjectMessage(consumer, message);
+            } else if (AmqpObjectMessageCodecFinder.findCodecForContentType(message.getContentType()) != null) {
+                return createObjectMessage(consumer, message);
             }
 
             // TODO: should this situation throw an exception, or just become a bytes message?
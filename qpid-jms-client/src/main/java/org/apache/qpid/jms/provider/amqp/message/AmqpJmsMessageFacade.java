@@ -108,10 +108,6 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
             messageAnnotationsMap = message.getMessageAnnotations().getValue();
         }
 
-        if (message.getApplicationProperties() != null) {
-            applicationPropertiesMap = message.getApplicationProperties().getValue();
-        }
-
         Long ttl = getTtl();
         Long absoluteExpiryTime = getAbsoluteExpiryTime();
         if (absoluteExpiryTime == null && ttl != null) {
@@ -126,6 +122,16 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         return JMS_MESSAGE;
     }
 
+    /**
+     * Returns an estimate of the number of bytes the message body occupies once encoded
+     * so that a buffer large enough for the whole message can be made ready up front.
+     *
+     * @return the estimated encoded size of the body, or zero if there is no estimate.
+     */
+    public int getEncodedBodySizeHint() {
+        return 0;
+    }
+
     /**
      * The annotation value for the JMS Message content type.  For a generic JMS message this
      * value is omitted so we return null here, subclasses should override this to return the
@@ -152,6 +158,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public boolean applicationPropertyExists(String key) throws JMSException {
+        Map<String, Object> applicationPropertiesMap = getApplicationPropertiesMap();
         if (applicationPropertiesMap != null) {
             return applicationPropertiesMap.containsKey(key);
         }
@@ -172,6 +179,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public Set<String> getApplicationPropertyNames(Set<String> propertyNames) {
+        Map<String, Object> applicationPropertiesMap = getApplicationPropertiesMap();
         if (applicationPropertiesMap != null) {
             propertyNames.addAll(applicationPropertiesMap.keySet());
         }
@@ -185,6 +193,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     public Object getApplicationProperty(String key) throws JMSException {
+        Map<String, Object> applicationPropertiesMap = getApplicationPropertiesMap();
         if (applicationPropertiesMap != null) {
             return applicationPropertiesMap.get(key);
         }
@@ -242,6 +251,10 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     public void onDispatch() throws JMSException {
     }
 
+    @Override
+    public void onConsumed() {
+    }
+
     @Override
     public void clearBody() {
         message.setBody(null);
@@ -259,6 +272,13 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         return copy;
     }
 
+    @Override
+    public void release() {
+        if (connection != null && message instanceof AmqpLazyMessage) {
+            connection.getLazyMessagePool().release((AmqpLazyMessage) message);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected void copyInto(AmqpJmsMessageFacade target) {
         if (consumerDestination != null) {
@@ -325,6 +345,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
             targetMsg.setFooter(new Footer(newDeliveryAnnotations));
         }
 
+        Map<String, Object> applicationPropertiesMap = getApplicationPropertiesMap();
         if (applicationPropertiesMap != null) {
             target.lazyCreateApplicationProperties();
             target.applicationPropertiesMap.putAll(applicationPropertiesMap);
@@ -747,6 +768,13 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         return this.message;
     }
 
+    /**
+     * @return true if the body of the underlying message is still in its encoded form.
+     */
+    protected boolean isBodyEncoded() {
+        return message instanceof AmqpLazyMessage && ((AmqpLazyMessage) message).isBodyEncoded();
+    }
+
     /**
      * The AmqpConnection instance that is associated with this Message.
      * @return the connection
@@ -894,8 +922,21 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         }
     }
 
+    /*
+     * The application properties of an incoming message are only looked up on first
+     * use so that the section need not be decoded for messages that never read them.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getApplicationPropertiesMap() {
+        if (applicationPropertiesMap == null && message.getApplicationProperties() != null) {
+            applicationPropertiesMap = message.getApplicationProperties().getValue();
+        }
+
+        return applicationPropertiesMap;
+    }
+
     private void lazyCreateApplicationProperties() {
-        if (applicationPropertiesMap == null) {
+        if (getApplicationPropertiesMap() == null) {
             applicationPropertiesMap = new HashMap<String, Object>();
             message.setApplicationProperties(new ApplicationProperties(applicationPropertiesMap));
         }
@@ -38,6 +38,7 @@ import org.apache.qpid.jms.util.TypeConversionSupport;
 public class AmqpJmsMessagePropertyIntercepter {
 
     private static final Map<String, PropertyIntercepter> PROPERTY_INTERCEPTERS = new HashMap<String, PropertyIntercepter>();
+    private static final String JMS_AMQP_PREFIX = "JMS_AMQP_";
 
     /**
      * Interface for a Property intercepter object used to write JMS style
@@ -191,6 +192,18 @@ public class AmqpJmsMessagePropertyIntercepter {
         });
     }
 
+    /*
+     * All intercepted names begin with the JMS_AMQP_ prefix, checking for that first
+     * allows application property names to go straight to the application properties.
+     */
+    private static PropertyIntercepter findIntercepter(String name) {
+        if (name == null || !name.startsWith(JMS_AMQP_PREFIX)) {
+            return null;
+        }
+
+        return PROPERTY_INTERCEPTERS.get(name);
+    }
+
     /**
      * Static get method that takes a property name and gets the value either via
      * a registered property get object or through the AmqpJmsMessageFacade getProperty
@@ -208,7 +221,7 @@ public class AmqpJmsMessagePropertyIntercepter {
     public static Object getProperty(AmqpJmsMessageFacade message, String name) throws JMSException {
         Object value = null;
 
-        PropertyIntercepter propertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter propertyExpression = findIntercepter(name);
         if (propertyExpression != null) {
             value = propertyExpression.getProperty(message);
         } else {
@@ -233,7 +246,7 @@ public class AmqpJmsMessagePropertyIntercepter {
      * @throws JMSException if an error occurs while writing the defined property.
      */
     public static void setProperty(AmqpJmsMessageFacade message, String name, Object value) throws JMSException {
-        PropertyIntercepter propertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter propertyExpression = findIntercepter(name);
         if (propertyExpression != null) {
             propertyExpression.setProperty(message, value);
         } else {
@@ -254,7 +267,7 @@ public class AmqpJmsMessagePropertyIntercepter {
      * @throws JMSException if an error occurs while inspecting the defined property.
      */
     public static boolean propertyExists(AmqpJmsMessageFacade message, String name) throws JMSException {
-        PropertyIntercepter propertyExpression = PROPERTY_INTERCEPTERS.get(name);
+        PropertyIntercepter propertyExpression = findIntercepter(name);
         if (propertyExpression != null) {
             return propertyExpression.propertyExists(message);
         } else {
@@ -47,10 +47,24 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
      *        controls the type used to encode the body.
      */
     public AmqpJmsObjectMessageFacade(AmqpConnection connection, boolean isAmqpTypeEncoded) {
+        this(connection, isAmqpTypeEncoded, connection.getObjectMessageCodec());
+    }
+
+    /**
+     * Creates a new facade instance
+     *
+     * @param connection
+     *        the AmqpConnection that under which this facade was created.
+     * @param isAmqpTypeEncoded
+     *        controls the type used to encode the body.
+     * @param codec
+     *        the codec used to store the object when it is not AMQP type encoded.
+     */
+    public AmqpJmsObjectMessageFacade(AmqpConnection connection, boolean isAmqpTypeEncoded, AmqpObjectMessageCodec codec) {
         super(connection);
         setMessageAnnotation(JMS_MSG_TYPE, JMS_OBJECT_MESSAGE);
 
-        initDelegate(isAmqpTypeEncoded);
+        initDelegate(isAmqpTypeEncoded, codec);
     }
 
     /**
@@ -65,8 +79,8 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
     public AmqpJmsObjectMessageFacade(AmqpConsumer consumer, Message message) {
         super(consumer, message);
 
-        boolean javaSerialized = AmqpMessageSupport.SERIALIZED_JAVA_OBJECT_CONTENT_TYPE.equals(message.getContentType());
-        initDelegate(!javaSerialized);
+        AmqpObjectMessageCodec codec = AmqpObjectMessageCodecFinder.findCodecForContentType(message.getContentType());
+        initDelegate(codec == null, codec);
     }
 
     /**
@@ -89,7 +103,7 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
 
     @Override
     public AmqpJmsObjectMessageFacade copy() throws JMSException {
-        AmqpJmsObjectMessageFacade copy = new AmqpJmsObjectMessageFacade(connection, isAmqpTypedEncoding());
+        AmqpJmsObjectMessageFacade copy = new AmqpJmsObjectMessageFacade(connection, isAmqpTypedEncoding(), getCodec());
         copyInto(copy);
 
         try {
@@ -134,7 +148,7 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
                 if (useAmqpTypedEncoding) {
                     newDelegate = new AmqpTypedObjectDelegate(message);
                 } else {
-                    newDelegate = new AmqpSerializedObjectDelegate(message);
+                    newDelegate = new AmqpSerializedObjectDelegate(message, getCodec());
                 }
 
                 newDelegate.setObject(existingObject);
@@ -146,14 +160,27 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
         }
     }
 
-    private void initDelegate(boolean useAmqpTypes) {
+    private void initDelegate(boolean useAmqpTypes, AmqpObjectMessageCodec codec) {
         if (!useAmqpTypes) {
-            delegate = new AmqpSerializedObjectDelegate(getAmqpMessage());
+            if (codec == null) {
+                codec = AmqpObjectMessageCodecFinder.getDefaultCodec();
+            }
+            delegate = new AmqpSerializedObjectDelegate(getAmqpMessage(), codec);
         } else {
             delegate = new AmqpTypedObjectDelegate(getAmqpMessage());
         }
     }
 
+    private AmqpObjectMessageCodec getCodec() {
+        if (delegate instanceof AmqpSerializedObjectDelegate) {
+            return ((AmqpSerializedObjectDelegate) delegate).getCodec();
+        } else if (connection != null && connection.getObjectMessageCodec() != null) {
+            return connection.getObjectMessageCodec();
+        }
+
+        return AmqpObjectMessageCodecFinder.getDefaultCodec();
+    }
+
     AmqpObjectTypeDelegate getDelegate() {
         return delegate;
     }
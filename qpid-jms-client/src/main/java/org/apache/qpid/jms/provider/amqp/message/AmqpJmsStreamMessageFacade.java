@@ -40,7 +40,9 @@ import org.apache.qpid.proton.message.Message;
  */
 public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements JmsStreamMessageFacade {
 
+    // The list is decoded on first use, copies share it until one of them writes to it.
     private List<Object> list;
+    private boolean bodyShared;
     private int position = 0;
 
     /**
@@ -64,33 +66,11 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
      * @param message
      *        the incoming Message instance that is being wrapped.
      */
-    @SuppressWarnings("unchecked")
     public AmqpJmsStreamMessageFacade(AmqpConsumer consumer, Message message) {
         super(consumer, message);
 
-        Section body = getAmqpMessage().getBody();
-        if (body == null) {
-            list = initializeEmptyBodyList(true);
-        } else if (body instanceof AmqpValue) {
-            Object value = ((AmqpValue) body).getValue();
-
-            if (value == null) {
-                list = initializeEmptyBodyList(false);
-            } else if (value instanceof List) {
-                list = (List<Object>) value;
-            } else {
-                throw new IllegalStateException("Unexpected amqp-value body content type: " + value.getClass().getSimpleName());
-            }
-        } else if (body instanceof AmqpSequence) {
-            List<?> value = ((AmqpSequence) body).getValue();
-
-            if (value == null) {
-                list = initializeEmptyBodyList(true);
-            } else {
-                list = (List<Object>) value;
-            }
-        } else {
-            throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
+        if (!isBodyEncoded()) {
+            list = decodeBody();
         }
     }
 
@@ -98,7 +78,15 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
     public AmqpJmsStreamMessageFacade copy() {
         AmqpJmsStreamMessageFacade copy = new AmqpJmsStreamMessageFacade(connection);
         copyInto(copy);
-        copy.list.addAll(list);
+
+        List<Object> source = getBodyList();
+        if (!source.isEmpty()) {
+            copy.list = source;
+            copy.message.setBody(new AmqpSequence(source));
+            copy.bodyShared = true;
+            bodyShared = true;
+        }
+
         return copy;
     }
 
@@ -112,11 +100,13 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
 
     @Override
     public boolean hasNext() {
+        List<Object> list = getBodyList();
         return !list.isEmpty() && position < list.size();
     }
 
     @Override
     public Object peek() throws MessageEOFException {
+        List<Object> list = getBodyList();
         if (list.isEmpty() || position >= list.size()) {
             throw new MessageEOFException("Attempt to read past end of stream");
         }
@@ -133,6 +123,7 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
 
     @Override
     public void pop() throws MessageEOFException {
+        List<Object> list = getBodyList();
         if (list.isEmpty() || position >= list.size()) {
             throw new MessageEOFException("Attempt to read past end of stream");
         }
@@ -147,7 +138,7 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
             entry = new Binary((byte[]) value);
         }
 
-        list.add(entry);
+        getWritableBodyList().add(entry);
     }
 
     @Override
@@ -157,13 +148,70 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
 
     @Override
     public void clearBody() {
-        list.clear();
+        if (list == null || bodyShared) {
+            list = initializeEmptyBodyList(true);
+        } else {
+            list.clear();
+        }
         position = 0;
     }
 
     @Override
     public boolean isEmpty() {
-        return list.isEmpty();
+        return getBodyList().isEmpty();
+    }
+
+    private List<Object> getBodyList() {
+        if (list == null) {
+            list = decodeBody();
+        }
+
+        return list;
+    }
+
+    private List<Object> getWritableBodyList() {
+        List<Object> current = getBodyList();
+        if (bodyShared) {
+            current = new ArrayList<Object>(current);
+            if (message.getBody() instanceof AmqpValue) {
+                message.setBody(new AmqpValue(current));
+            } else {
+                message.setBody(new AmqpSequence(current));
+            }
+
+            list = current;
+            bodyShared = false;
+        }
+
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> decodeBody() {
+        Section body = getAmqpMessage().getBody();
+        if (body == null) {
+            return initializeEmptyBodyList(true);
+        } else if (body instanceof AmqpValue) {
+            Object value = ((AmqpValue) body).getValue();
+
+            if (value == null) {
+                return initializeEmptyBodyList(false);
+            } else if (value instanceof List) {
+                return (List<Object>) value;
+            } else {
+                throw new IllegalStateException("Unexpected amqp-value body content type: " + value.getClass().getSimpleName());
+            }
+        } else if (body instanceof AmqpSequence) {
+            List<?> value = ((AmqpSequence) body).getValue();
+
+            if (value == null) {
+                return initializeEmptyBodyList(true);
+            } else {
+                return (List<Object>) value;
+            }
+        } else {
+            throw new IllegalStateException("Unexpected message body type: " + body.getClass().getSimpleName());
+        }
     }
 
     private List<Object> initializeEmptyBodyList(boolean useSequenceBody) {
@@ -175,6 +223,7 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
             message.setBody(new AmqpValue(emptyList));
         }
 
+        bodyShared = false;
         return emptyList;
     }
 }
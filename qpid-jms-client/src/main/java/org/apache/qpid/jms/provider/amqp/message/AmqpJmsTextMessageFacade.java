@@ -51,7 +51,18 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
      */
     public static final String CONTENT_TYPE = "text/plain";
 
-    private final CharsetDecoder decoder =  Charset.forName(UTF_8).newDecoder();
+    // Decoders hold state while decoding so each thread is given its own to share.
+    private static final ThreadLocal<CharsetDecoder> DECODER = new ThreadLocal<CharsetDecoder>() {
+
+        @Override
+        protected CharsetDecoder initialValue() {
+            return Charset.forName(UTF_8).newDecoder();
+        }
+    };
+
+    // The text decoded from a Data body section and the section it was decoded from.
+    private Section decodedBody;
+    private String decodedText;
 
     /**
      * Create a new AMQP Message facade ready for sending.
@@ -105,12 +116,18 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
             if (data.getValue() == null || data.getValue().getLength() == 0) {
                 return "";
             } else {
+                if (decodedBody == body) {
+                    return decodedText;
+                }
+
                 Binary b = data.getValue();
                 ByteBuffer buf = ByteBuffer.wrap(b.getArray(), b.getArrayOffset(), b.getLength());
 
                 try {
-                    CharBuffer chars = decoder.decode(buf);
-                    return String.valueOf(chars);
+                    CharBuffer chars = DECODER.get().decode(buf);
+                    decodedText = String.valueOf(chars);
+                    decodedBody = body;
+                    return decodedText;
                 } catch (CharacterCodingException e) {
                     throw JmsExceptionSupport.create("Cannot decode String in UFT-8", e);
                 }
@@ -130,6 +147,10 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
 
     @Override
     public void setText(String value) {
+        decodedBody = null;
+        decodedText = null;
+
+        // The String is encoded as UTF-8 straight into the outgoing frame when sent.
         AmqpValue body = new AmqpValue(value);
         getAmqpMessage().setBody(body);
     }
@@ -0,0 +1,779 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.codec.WritableBuffer;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.message.MessageError;
+import org.apache.qpid.proton.message.MessageFormat;
+import org.apache.qpid.proton.message.ProtonJMessage;
+
+/**
+ * A Proton Message implementation that retains the encoded form of an incoming
+ * message and only decodes each of the message sections on first access.
+ *
+ * On creation the encoded bytes are scanned to locate the boundaries of each section,
+ * no section values are decoded until one of the accessors that depends on it is called.
+ * Once decoded a section is handed to a standard Proton Message which then services all
+ * further requests for that section.  If the encoded message has a layout that the scan
+ * does not understand the whole message is decoded eagerly as Proton would have done.
+ */
+public class AmqpLazyMessage implements ProtonJMessage {
+
+    static final int HEADER = 0;
+    static final int DELIVERY_ANNOTATIONS = 1;
+    static final int MESSAGE_ANNOTATIONS = 2;
+    static final int PROPERTIES = 3;
+    static final int APPLICATION_PROPERTIES = 4;
+    static final int BODY = 5;
+    static final int FOOTER = 6;
+    static final int SECTION_COUNT = 7;
+    static final int UNKNOWN = -1;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    static final long HEADER_CODE = 0x70L;
+    static final long DATA_CODE = 0x75L;
+    static final long FOOTER_CODE = 0x78L;
+
+    private static final Symbol[] SECTION_SYMBOLS = new Symbol[] {
+        Symbol.valueOf("amqp:header:list"),
+        Symbol.valueOf("amqp:delivery-annotations:map"),
+        Symbol.valueOf("amqp:message-annotations:map"),
+        Symbol.valueOf("amqp:properties:list"),
+        Symbol.valueOf("amqp:application-properties:map"),
+        Symbol.valueOf("amqp:data:binary"),
+        Symbol.valueOf("amqp:amqp-sequence:list"),
+        Symbol.valueOf("amqp:value:*"),
+        Symbol.valueOf("amqp:footer:map")
+    };
+
+    private static final ThreadLocal<DecoderImpl> DECODER = new ThreadLocal<DecoderImpl>() {
+
+        @Override
+        protected DecoderImpl initialValue() {
+            DecoderImpl decoder = new DecoderImpl();
+            EncoderImpl encoder = new EncoderImpl(decoder);
+            AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+            return decoder;
+        }
+    };
+
+    private final Message delegate = Message.Factory.create();
+
+    private byte[] encoded;
+    private byte[] storage;
+    private final int[] sectionOffsets = new int[SECTION_COUNT];
+    private final int[] sectionLengths = new int[SECTION_COUNT];
+
+    // Guarded by the pool that holds this message.
+    boolean pooled;
+
+    /**
+     * Creates a new lazily decoded message from the given encoded bytes.  The array
+     * is retained by the message and must not be modified by the caller afterwards.
+     *
+     * @param encoded
+     *        the encoded bytes of the incoming message.
+     *
+     * @return a new message instance that will decode its sections on demand.
+     */
+    public static AmqpLazyMessage create(byte[] encoded) {
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.storage = encoded;
+        message.decodeStorage(encoded.length);
+        return message;
+    }
+
+    /**
+     * @return true if any section of this message still remains in its encoded form.
+     */
+    public boolean isPartiallyDecoded() {
+        return encoded != null;
+    }
+
+    /**
+     * @return true if the body section of this message has not yet been decoded.
+     */
+    public boolean isBodyEncoded() {
+        return encoded != null && sectionLengths[BODY] != 0;
+    }
+
+    //----- Header section accessors -----------------------------------------//
+
+    @Override
+    public boolean isDurable() {
+        ensureDecoded(HEADER);
+        return delegate.isDurable();
+    }
+
+    @Override
+    public long getDeliveryCount() {
+        ensureDecoded(HEADER);
+        return delegate.getDeliveryCount();
+    }
+
+    @Override
+    public short getPriority() {
+        ensureDecoded(HEADER);
+        return delegate.getPriority();
+    }
+
+    @Override
+    public boolean isFirstAcquirer() {
+        ensureDecoded(HEADER);
+        return delegate.isFirstAcquirer();
+    }
+
+    @Override
+    public long getTtl() {
+        ensureDecoded(HEADER);
+        return delegate.getTtl();
+    }
+
+    @Override
+    public void setDurable(boolean durable) {
+        ensureDecoded(HEADER);
+        delegate.setDurable(durable);
+    }
+
+    @Override
+    public void setTtl(long ttl) {
+        ensureDecoded(HEADER);
+        delegate.setTtl(ttl);
+    }
+
+    @Override
+    public void setDeliveryCount(long deliveryCount) {
+        ensureDecoded(HEADER);
+        delegate.setDeliveryCount(deliveryCount);
+    }
+
+    @Override
+    public void setFirstAcquirer(boolean firstAcquirer) {
+        ensureDecoded(HEADER);
+        delegate.setFirstAcquirer(firstAcquirer);
+    }
+
+    @Override
+    public void setPriority(short priority) {
+        ensureDecoded(HEADER);
+        delegate.setPriority(priority);
+    }
+
+    //----- Properties section accessors -------------------------------------//
+
+    @Override
+    public Object getMessageId() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getMessageId();
+    }
+
+    @Override
+    public long getGroupSequence() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getGroupSequence();
+    }
+
+    @Override
+    public String getReplyToGroupId() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getReplyToGroupId();
+    }
+
+    @Override
+    public long getCreationTime() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getCreationTime();
+    }
+
+    @Override
+    public String getAddress() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getAddress();
+    }
+
+    @Override
+    public byte[] getUserId() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getUserId();
+    }
+
+    @Override
+    public String getReplyTo() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getReplyTo();
+    }
+
+    @Override
+    public String getGroupId() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getGroupId();
+    }
+
+    @Override
+    public String getContentType() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getContentType();
+    }
+
+    @Override
+    public long getExpiryTime() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getExpiryTime();
+    }
+
+    @Override
+    public Object getCorrelationId() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getCorrelationId();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getContentEncoding();
+    }
+
+    @Override
+    public String getSubject() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getSubject();
+    }
+
+    @Override
+    public void setGroupSequence(long groupSequence) {
+        ensureDecoded(PROPERTIES);
+        delegate.setGroupSequence(groupSequence);
+    }
+
+    @Override
+    public void setUserId(byte[] userId) {
+        ensureDecoded(PROPERTIES);
+        delegate.setUserId(userId);
+    }
+
+    @Override
+    public void setCreationTime(long creationTime) {
+        ensureDecoded(PROPERTIES);
+        delegate.setCreationTime(creationTime);
+    }
+
+    @Override
+    public void setSubject(String subject) {
+        ensureDecoded(PROPERTIES);
+        delegate.setSubject(subject);
+    }
+
+    @Override
+    public void setGroupId(String groupId) {
+        ensureDecoded(PROPERTIES);
+        delegate.setGroupId(groupId);
+    }
+
+    @Override
+    public void setAddress(String to) {
+        ensureDecoded(PROPERTIES);
+        delegate.setAddress(to);
+    }
+
+    @Override
+    public void setExpiryTime(long absoluteExpiryTime) {
+        ensureDecoded(PROPERTIES);
+        delegate.setExpiryTime(absoluteExpiryTime);
+    }
+
+    @Override
+    public void setReplyToGroupId(String replyToGroupId) {
+        ensureDecoded(PROPERTIES);
+        delegate.setReplyToGroupId(replyToGroupId);
+    }
+
+    @Override
+    public void setContentEncoding(String contentEncoding) {
+        ensureDecoded(PROPERTIES);
+        delegate.setContentEncoding(contentEncoding);
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        ensureDecoded(PROPERTIES);
+        delegate.setContentType(contentType);
+    }
+
+    @Override
+    public void setReplyTo(String replyTo) {
+        ensureDecoded(PROPERTIES);
+        delegate.setReplyTo(replyTo);
+    }
+
+    @Override
+    public void setCorrelationId(Object correlationId) {
+        ensureDecoded(PROPERTIES);
+        delegate.setCorrelationId(correlationId);
+    }
+
+    @Override
+    public void setMessageId(Object messageId) {
+        ensureDecoded(PROPERTIES);
+        delegate.setMessageId(messageId);
+    }
+
+    //----- Section accessors ------------------------------------------------//
+
+    @Override
+    public Header getHeader() {
+        ensureDecoded(HEADER);
+        return delegate.getHeader();
+    }
+
+    @Override
+    public DeliveryAnnotations getDeliveryAnnotations() {
+        ensureDecoded(DELIVERY_ANNOTATIONS);
+        return delegate.getDeliveryAnnotations();
+    }
+
+    @Override
+    public MessageAnnotations getMessageAnnotations() {
+        ensureDecoded(MESSAGE_ANNOTATIONS);
+        return delegate.getMessageAnnotations();
+    }
+
+    @Override
+    public Properties getProperties() {
+        ensureDecoded(PROPERTIES);
+        return delegate.getProperties();
+    }
+
+    @Override
+    public ApplicationProperties getApplicationProperties() {
+        ensureDecoded(APPLICATION_PROPERTIES);
+        return delegate.getApplicationProperties();
+    }
+
+    @Override
+    public Section getBody() {
+        ensureDecoded(BODY);
+        return delegate.getBody();
+    }
+
+    @Override
+    public Footer getFooter() {
+        ensureDecoded(FOOTER);
+        return delegate.getFooter();
+    }
+
+    @Override
+    public void setHeader(Header header) {
+        discard(HEADER);
+        delegate.setHeader(header);
+    }
+
+    @Override
+    public void setDeliveryAnnotations(DeliveryAnnotations deliveryAnnotations) {
+        discard(DELIVERY_ANNOTATIONS);
+        delegate.setDeliveryAnnotations(deliveryAnnotations);
+    }
+
+    @Override
+    public void setMessageAnnotations(MessageAnnotations messageAnnotations) {
+        discard(MESSAGE_ANNOTATIONS);
+        delegate.setMessageAnnotations(messageAnnotations);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        discard(PROPERTIES);
+        delegate.setProperties(properties);
+    }
+
+    @Override
+    public void setApplicationProperties(ApplicationProperties applicationProperties) {
+        discard(APPLICATION_PROPERTIES);
+        delegate.setApplicationProperties(applicationProperties);
+    }
+
+    @Override
+    public void setBody(Section body) {
+        discard(BODY);
+        delegate.setBody(body);
+    }
+
+    @Override
+    public void setFooter(Footer footer) {
+        discard(FOOTER);
+        delegate.setFooter(footer);
+    }
+
+    //----- Encode and Decode ------------------------------------------------//
+
+    /**
+     * Replaces the contents of this message with the given encoded message.  The bytes
+     * are copied into a buffer held by this message, which is reused by later calls when
+     * it is large enough, so the caller is free to modify the array afterwards.
+     */
+    @Override
+    public int decode(byte[] data, int offset, int length) {
+        if (storage == null || storage.length < length) {
+            storage = new byte[length];
+        }
+
+        System.arraycopy(data, offset, storage, 0, length);
+        return decodeStorage(length);
+    }
+
+    @Override
+    public int encode(byte[] data, int offset, int length) {
+        ensureFullyDecoded();
+        return delegate.encode(data, offset, length);
+    }
+
+    @Override
+    public int encode2(byte[] data, int offset, int length) {
+        ensureFullyDecoded();
+        return ((ProtonJMessage) delegate).encode2(data, offset, length);
+    }
+
+    @Override
+    public int encode(WritableBuffer buffer) {
+        ensureFullyDecoded();
+        return ((ProtonJMessage) delegate).encode(buffer);
+    }
+
+    @Override
+    public void load(Object data) {
+        ensureFullyDecoded();
+        delegate.load(data);
+    }
+
+    @Override
+    public Object save() {
+        ensureFullyDecoded();
+        return delegate.save();
+    }
+
+    @Override
+    public String toAMQPFormat(Object value) {
+        return delegate.toAMQPFormat(value);
+    }
+
+    @Override
+    public Object parseAMQPFormat(String value) {
+        return delegate.parseAMQPFormat(value);
+    }
+
+    @Override
+    public void setMessageFormat(MessageFormat format) {
+        delegate.setMessageFormat(format);
+    }
+
+    @Override
+    public MessageFormat getMessageFormat() {
+        return delegate.getMessageFormat();
+    }
+
+    @Override
+    public void clear() {
+        encoded = null;
+        delegate.clear();
+    }
+
+    @Override
+    public MessageError getError() {
+        return delegate.getError();
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    /*
+     * Drops every section of the message, the buffer used for encoded bytes is kept.
+     */
+    void reset() {
+        encoded = null;
+        delegate.setHeader(null);
+        delegate.setDeliveryAnnotations(null);
+        delegate.setMessageAnnotations(null);
+        delegate.setProperties(null);
+        delegate.setApplicationProperties(null);
+        delegate.setBody(null);
+        delegate.setFooter(null);
+    }
+
+    private int decodeStorage(int length) {
+        reset();
+
+        if (!scanSections(storage, length)) {
+            encoded = null;
+            return delegate.decode(storage, 0, length);
+        }
+
+        return length;
+    }
+
+    private void ensureFullyDecoded() {
+        if (encoded != null) {
+            for (int i = 0; i < SECTION_COUNT; ++i) {
+                ensureDecoded(i);
+            }
+        }
+    }
+
+    private void ensureDecoded(int section) {
+        if (encoded == null || sectionLengths[section] == 0) {
+            return;
+        }
+
+        DecoderImpl decoder = DECODER.get();
+        decoder.setByteBuffer(ByteBuffer.wrap(encoded, sectionOffsets[section], sectionLengths[section]));
+        Object value;
+        try {
+            value = decoder.readObject();
+        } finally {
+            decoder.setByteBuffer(null);
+        }
+
+        discard(section);
+
+        switch (section) {
+            case HEADER:
+                delegate.setHeader((Header) value);
+                break;
+            case DELIVERY_ANNOTATIONS:
+                delegate.setDeliveryAnnotations((DeliveryAnnotations) value);
+                break;
+            case MESSAGE_ANNOTATIONS:
+                delegate.setMessageAnnotations((MessageAnnotations) value);
+                break;
+            case PROPERTIES:
+                delegate.setProperties((Properties) value);
+                break;
+            case APPLICATION_PROPERTIES:
+                delegate.setApplicationProperties((ApplicationProperties) value);
+                break;
+            case BODY:
+                delegate.setBody((Section) value);
+                break;
+            case FOOTER:
+                delegate.setFooter((Footer) value);
+                break;
+        }
+    }
+
+    /*
+     * Drops the encoded form of the given section, once all sections are either decoded
+     * or replaced the encoded bytes are released.
+     */
+    private void discard(int section) {
+        if (encoded == null) {
+            return;
+        }
+
+        sectionLengths[section] = 0;
+        for (int i = 0; i < SECTION_COUNT; ++i) {
+            if (sectionLengths[i] != 0) {
+                return;
+            }
+        }
+
+        encoded = null;
+    }
+
+    /*
+     * Walks the encoded message recording the location of each section.  Sections must
+     * appear in the order that the specification defines and there can be only a single
+     * body section, otherwise false is returned and the message should be decoded eagerly.
+     */
+    private boolean scanSections(byte[] data, int limit) {
+        for (int i = 0; i < SECTION_COUNT; ++i) {
+            sectionLengths[i] = 0;
+        }
+
+        int position = 0;
+        int lastSection = -1;
+
+        try {
+            while (position < limit) {
+                int start = position;
+                if (data[position++] != 0x00) {
+                    return false;
+                }
+
+                int descriptorEnd = skipValue(data, position);
+                if (descriptorEnd > limit) {
+                    return false;
+                }
+
+                int section = toSection(data, position, limit);
+                if (section == UNKNOWN || section <= lastSection) {
+                    return false;
+                }
+
+                position = skipValue(data, descriptorEnd);
+                if (position > limit) {
+                    return false;
+                }
+
+                sectionOffsets[section] = start;
+                sectionLengths[section] = position - start;
+                lastSection = section;
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            return false;
+        }
+
+        encoded = lastSection != -1 ? data : null;
+        return true;
+    }
+
+    /*
+     * Returns the section index for the descriptor that begins at the given position
+     * or UNKNOWN if the descriptor is not one of the defined section types.
+     */
+    static int toSection(byte[] data, int position, int limit) {
+        long code = descriptorCode(data, position, limit);
+        if (code < HEADER_CODE || code > FOOTER_CODE) {
+            return UNKNOWN;
+        }
+
+        int index = (int) (code - HEADER_CODE);
+        if (index <= APPLICATION_PROPERTIES) {
+            return index;
+        } else if (code == FOOTER_CODE) {
+            return FOOTER;
+        } else {
+            return BODY;
+        }
+    }
+
+    /*
+     * Returns the numeric code of the section descriptor that begins at the given position,
+     * symbolic descriptors are mapped to their code, or -1 if the descriptor is not known.
+     */
+    static long descriptorCode(byte[] data, int position, int limit) {
+        long code = -1;
+        int constructor = data[position] & 0xFF;
+
+        switch (constructor) {
+            case 0x44:
+                code = 0;
+                break;
+            case 0x53:
+                code = data[position + 1] & 0xFF;
+                break;
+            case 0x80:
+                code = readInt(data, position + 1);
+                if (code != 0) {
+                    return -1;
+                }
+                code = readInt(data, position + 5) & 0xFFFFFFFFL;
+                break;
+            case 0xA3:
+            case 0xB3:
+                Symbol symbol = readSymbol(data, position, limit);
+                for (int i = 0; i < SECTION_SYMBOLS.length; ++i) {
+                    if (SECTION_SYMBOLS[i].equals(symbol)) {
+                        code = HEADER_CODE + i;
+                        break;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+
+        return code;
+    }
+
+    private static Symbol readSymbol(byte[] data, int position, int limit) {
+        int length;
+        int start;
+        if ((data[position] & 0xFF) == 0xA3) {
+            length = data[position + 1] & 0xFF;
+            start = position + 2;
+        } else {
+            length = readInt(data, position + 1);
+            start = position + 5;
+        }
+
+        if (start + length > limit) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return Symbol.valueOf(new String(data, start, length, ASCII));
+    }
+
+    /*
+     * Returns the position immediately following the encoded value that begins at the
+     * given position, described types are skipped as descriptor plus value.
+     */
+    static int skipValue(byte[] data, int position) {
+        int constructor = data[position++] & 0xFF;
+        if (constructor == 0x00) {
+            return skipValue(data, skipValue(data, position));
+        }
+
+        switch (constructor >> 4) {
+            case 0x4:
+                return position;
+            case 0x5:
+                return position + 1;
+            case 0x6:
+                return position + 2;
+            case 0x7:
+                return position + 4;
+            case 0x8:
+                return position + 8;
+            case 0x9:
+                return position + 16;
+            case 0xA:
+            case 0xC:
+            case 0xE:
+                return position + 1 + (data[position] & 0xFF);
+            case 0xB:
+            case 0xD:
+            case 0xF:
+                int size = readInt(data, position);
+                if (size < 0) {
+                    throw new IndexOutOfBoundsException();
+                }
+                return position + 4 + size;
+            default:
+                throw new IndexOutOfBoundsException();
+        }
+    }
+
+    static int readInt(byte[] data, int position) {
+        return ((data[position] & 0xFF) << 24) |
+               ((data[position + 1] & 0xFF) << 16) |
+               ((data[position + 2] & 0xFF) << 8) |
+               (data[position + 3] & 0xFF);
+    }
+}
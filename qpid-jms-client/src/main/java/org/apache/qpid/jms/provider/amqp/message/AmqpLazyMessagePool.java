@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded pool of lazily decoded message instances that have been released by the
+ * consumers they were delivered to.  Instances are taken from the pool on the provider
+ * thread and may be returned to it from any thread.
+ *
+ * A pooled message keeps the buffer that held its last encoded form so that decoding a
+ * later message of the same or a smaller size does not need a new buffer.
+ */
+public class AmqpLazyMessagePool {
+
+    public static final int DEFAULT_MAX_POOL_SIZE = 256;
+
+    private final ArrayDeque<AmqpLazyMessage> pool;
+    private final int maxPoolSize;
+
+    public AmqpLazyMessagePool() {
+        this(DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * Creates a new pool that holds no more than the given number of messages.
+     *
+     * @param maxPoolSize
+     *        the number of released messages that are kept for reuse, must be positive.
+     */
+    public AmqpLazyMessagePool(int maxPoolSize) {
+        if (maxPoolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be greater than zero");
+        }
+
+        this.maxPoolSize = maxPoolSize;
+        this.pool = new ArrayDeque<AmqpLazyMessage>(Math.min(maxPoolSize, 16));
+    }
+
+    /**
+     * Decodes the given bytes into a message taken from the pool, or into a new message
+     * if the pool is empty.  The bytes are copied so the caller may reuse the array.
+     *
+     * @param data
+     *        the array that holds the encoded message.
+     * @param offset
+     *        the offset into the array where the encoded message starts.
+     * @param length
+     *        the length of the encoded message.
+     *
+     * @return a message that decodes its sections from the given bytes on demand.
+     */
+    public AmqpLazyMessage decode(byte[] data, int offset, int length) {
+        AmqpLazyMessage message;
+        synchronized (pool) {
+            message = pool.pollLast();
+            if (message != null) {
+                message.pooled = false;
+            }
+        }
+
+        if (message == null) {
+            message = new AmqpLazyMessage();
+        }
+
+        message.decode(data, offset, length);
+        return message;
+    }
+
+    /**
+     * Returns a message that will no longer be accessed to the pool.  A message that is
+     * already pooled is ignored, as is any message that would take the pool over its limit.
+     *
+     * @param message
+     *        the released message.
+     */
+    public void release(AmqpLazyMessage message) {
+        synchronized (pool) {
+            if (!message.pooled && pool.size() < maxPoolSize) {
+                message.reset();
+                message.pooled = true;
+                pool.offerLast(message);
+            }
+        }
+    }
+
+    /**
+     * @return the number of released messages currently held for reuse.
+     */
+    public int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.qpid.proton.amqp.Binary;
+
+/**
+ * Interface for the codecs that convert the value of an ObjectMessage to and from
+ * the bytes carried in the Data section of the AMQP message.
+ *
+ * Each codec is identified by the content type it writes into the message so that the
+ * receiver can select the matching codec.  Codec instances are shared by all connections
+ * and must be safe for use from multiple threads.
+ */
+public interface AmqpObjectMessageCodec {
+
+    /**
+     * @return the content type set on messages whose body this codec has encoded.
+     */
+    String getContentType();
+
+    /**
+     * Encodes the given object into the bytes that will form the message body.
+     *
+     * @param value
+     *        the object to encode, never null.
+     *
+     * @return a Binary holding the encoded object.
+     *
+     * @throws IOException if an error occurs while encoding the object.
+     */
+    Binary encode(Serializable value) throws IOException;
+
+    /**
+     * Decodes an object from the bytes of a message body that this codec encoded.
+     *
+     * @param encoded
+     *        the Binary holding the encoded object, never null.
+     *
+     * @return the decoded object.
+     *
+     * @throws IOException if an error occurs while decoding the object.
+     * @throws ClassNotFoundException if no class can be found for the stored type.
+     */
+    Serializable decode(Binary encoded) throws IOException, ClassNotFoundException;
+
+}
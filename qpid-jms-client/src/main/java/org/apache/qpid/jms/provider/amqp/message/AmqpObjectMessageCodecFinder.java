@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.qpid.jms.util.FactoryFinder;
+import org.apache.qpid.jms.util.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Locates the AmqpObjectMessageCodec used to write ObjectMessage bodies by name, and
+ * the codec used to read a received ObjectMessage by the content type of the message.
+ *
+ * The built in codecs are named {@value AmqpJavaSerializationCodec#NAME} and
+ * {@value AmqpExternalizableCodec#NAME}.  Other codecs are found by searching the
+ * class path for a META-INF/services/org/apache/qpid/jms/codec/ entry with the codec
+ * name, and are readable from the time they are first found.
+ */
+public final class AmqpObjectMessageCodecFinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpObjectMessageCodecFinder.class);
+
+    private static final FactoryFinder<AmqpObjectMessageCodec> CODEC_FINDER =
+        new FactoryFinder<AmqpObjectMessageCodec>(AmqpObjectMessageCodec.class,
+            "META-INF/services/org/apache/qpid/jms/codec/");
+
+    private static final AmqpObjectMessageCodec DEFAULT_CODEC = new AmqpJavaSerializationCodec();
+
+    private static final ConcurrentMap<String, AmqpObjectMessageCodec> CODECS_BY_NAME =
+        new ConcurrentHashMap<String, AmqpObjectMessageCodec>();
+    private static final ConcurrentMap<String, AmqpObjectMessageCodec> CODECS_BY_CONTENT_TYPE =
+        new ConcurrentHashMap<String, AmqpObjectMessageCodec>();
+
+    static {
+        register(AmqpJavaSerializationCodec.NAME, DEFAULT_CODEC);
+        register(AmqpExternalizableCodec.NAME, new AmqpExternalizableCodec());
+    }
+
+    private AmqpObjectMessageCodecFinder() {}
+
+    /**
+     * @return the codec used when no other codec has been configured.
+     */
+    public static AmqpObjectMessageCodec getDefaultCodec() {
+        return DEFAULT_CODEC;
+    }
+
+    /**
+     * Finds the codec with the given name.
+     *
+     * @param name
+     *        the name of the codec to find.
+     *
+     * @return the codec with the given name.
+     *
+     * @throws IllegalArgumentException if no codec with the given name can be found.
+     */
+    public static AmqpObjectMessageCodec findCodec(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("No ObjectMessage codec name was specified");
+        }
+
+        AmqpObjectMessageCodec codec = CODECS_BY_NAME.get(name);
+        if (codec == null) {
+            try {
+                codec = register(name, CODEC_FINDER.newInstance(name));
+            } catch (ResourceNotFoundException rnfe) {
+                throw new IllegalArgumentException("Unknown ObjectMessage codec: [" + name + "]");
+            } catch (Exception e) {
+                LOG.warn("Caught exception while finding ObjectMessage codec {}: {}", name, e.getMessage());
+                throw new IllegalArgumentException("Failed to create ObjectMessage codec: [" + name + "]", e);
+            }
+        }
+
+        return codec;
+    }
+
+    /**
+     * Finds a previously found codec that reads bodies with the given content type.
+     *
+     * @param contentType
+     *        the content type of a received message.
+     *
+     * @return the codec for the content type, or null if there is none.
+     */
+    public static AmqpObjectMessageCodec findCodecForContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        return CODECS_BY_CONTENT_TYPE.get(contentType);
+    }
+
+    private static AmqpObjectMessageCodec register(String name, AmqpObjectMessageCodec codec) {
+        AmqpObjectMessageCodec existing = CODECS_BY_NAME.putIfAbsent(name, codec);
+        if (existing != null) {
+            return existing;
+        }
+
+        CODECS_BY_CONTENT_TYPE.putIfAbsent(codec.getContentType(), codec);
+        return codec;
+    }
+}
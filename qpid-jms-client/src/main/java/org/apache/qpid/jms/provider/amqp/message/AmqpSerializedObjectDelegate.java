@@ -16,13 +16,9 @@
  */
 package org.apache.qpid.jms.provider.amqp.message;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
-import org.apache.qpid.jms.util.ClassLoadingAwareObjectInputStream;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Section;
@@ -37,6 +33,7 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
     public static final String CONTENT_TYPE = "application/x-java-serialized-object";
 
     private final Message message;
+    private final AmqpObjectMessageCodec codec;
 
     /**
      * Create a new delegate that uses Java serialization to store the message content.
@@ -45,8 +42,21 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
      *        the AMQP message instance where the object is to be stored / read.
      */
     public AmqpSerializedObjectDelegate(Message message) {
+        this(message, AmqpObjectMessageCodecFinder.getDefaultCodec());
+    }
+
+    /**
+     * Create a new delegate that uses the given codec to store the message content.
+     *
+     * @param message
+     *        the AMQP message instance where the object is to be stored / read.
+     * @param codec
+     *        the codec that encodes and decodes the object.
+     */
+    public AmqpSerializedObjectDelegate(Message message, AmqpObjectMessageCodec codec) {
         this.message = message;
-        this.message.setContentType(CONTENT_TYPE);
+        this.codec = codec;
+        this.message.setContentType(codec.getContentType());
     }
 
     @Override
@@ -65,15 +75,7 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
         if (bin == null) {
             return null;
         } else {
-            Serializable serialized = null;
-
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(bin.getArray(), bin.getArrayOffset(), bin.getLength());
-                 ClassLoadingAwareObjectInputStream objIn = new ClassLoadingAwareObjectInputStream(bais)) {
-
-                serialized = (Serializable) objIn.readObject();
-            }
-
-            return serialized;
+            return codec.decode(bin);
         }
     }
 
@@ -84,26 +86,24 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
             //       send a serialized null instead if it isn't
             message.setBody(null);
         } else {
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                 ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-
-               oos.writeObject(value);
-               oos.flush();
-               oos.close();
-
-               byte[] bytes = baos.toByteArray();
-               message.setBody(new Data(new Binary(bytes)));
-            }
+            message.setBody(new Data(codec.encode(value)));
         }
     }
 
     @Override
     public void onSend() {
-        this.message.setContentType(CONTENT_TYPE);
+        this.message.setContentType(codec.getContentType());
     }
 
     @Override
     public boolean isAmqpTypeEncoded() {
         return false;
     }
+
+    /**
+     * @return the codec used to store the object in the message.
+     */
+    public AmqpObjectMessageCodec getCodec() {
+        return codec;
+    }
 }
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessage.BODY;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessage.DATA_CODE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessage.FOOTER;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpLazyMessage.UNKNOWN;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.message.Message;
+
+/**
+ * An incoming BytesMessage whose body is handed to the application while the delivery
+ * that carries it is still arriving.
+ *
+ * A message can be streamed when the sections that precede its body have all arrived and
+ * the body is a Data section.  The message is then created from those sections and the
+ * bytes of the Data section are fed to the body stream of its facade as they are written
+ * here.  Anything that follows the body must be a footer, which is discarded.
+ */
+public final class AmqpStreamedMessage {
+
+    private static final Data EMPTY_BODY = new Data(new Binary(new byte[0]));
+
+    // Enough to hold the longest form of a section descriptor.
+    private static final int TRAILER_HEAD_SIZE = 32;
+
+    private final JmsMessage message;
+    private final AmqpIncomingBodyStream body;
+    private long bodyRemaining;
+
+    private final byte[] trailerHead = new byte[TRAILER_HEAD_SIZE];
+    private int trailerLength;
+
+    private AmqpStreamedMessage(JmsMessage message, AmqpIncomingBodyStream body) {
+        this.message = message;
+        this.body = body;
+        this.bodyRemaining = body.getLength();
+    }
+
+    /**
+     * Attempts to create a streamed message from the leading bytes of a delivery.
+     *
+     * @param consumer
+     *        the consumer that is receiving the delivery.
+     * @param data
+     *        the bytes of the delivery that have arrived so far.
+     * @param length
+     *        the number of bytes in the array that have arrived.
+     * @param capacity
+     *        the number of body bytes to buffer before waiting on the application.
+     * @param resume
+     *        the task that has the provider resume once the application has read.
+     *
+     * @return the streamed message, or null if the delivery cannot be streamed.
+     */
+    public static AmqpStreamedMessage create(AmqpConsumer consumer, byte[] data, int length, int capacity, Runnable resume) {
+        int position = 0;
+        int lastSection = -1;
+
+        try {
+            while (position < length) {
+                int start = position;
+                if (data[position++] != 0x00) {
+                    return null;
+                }
+
+                int descriptorEnd = AmqpLazyMessage.skipValue(data, position);
+                if (descriptorEnd >= length) {
+                    return null;
+                }
+
+                int section = AmqpLazyMessage.toSection(data, position, length);
+                if (section == UNKNOWN || section == FOOTER || section <= lastSection) {
+                    return null;
+                }
+
+                if (section == BODY) {
+                    if (AmqpLazyMessage.descriptorCode(data, position, length) != DATA_CODE) {
+                        return null;
+                    }
+
+                    return create(consumer, data, length, start, descriptorEnd, capacity, resume);
+                }
+
+                position = AmqpLazyMessage.skipValue(data, descriptorEnd);
+                if (position > length) {
+                    return null;
+                }
+
+                lastSection = section;
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            return null;
+        }
+
+        return null;
+    }
+
+    private static AmqpStreamedMessage create(AmqpConsumer consumer, byte[] data, int length, int bodyStart, int valueStart, int capacity, Runnable resume) {
+        long bodyLength;
+        int payloadStart;
+
+        switch (data[valueStart] & 0xFF) {
+            case 0xA0:
+                bodyLength = data[valueStart + 1] & 0xFF;
+                payloadStart = valueStart + 2;
+                break;
+            case 0xB0:
+                if (valueStart + 5 > length) {
+                    return null;
+                }
+                bodyLength = AmqpLazyMessage.readInt(data, valueStart + 1) & 0xFFFFFFFFL;
+                payloadStart = valueStart + 5;
+                break;
+            default:
+                return null;
+        }
+
+        JmsMessage message;
+        try {
+            Message protonMessage = Message.Factory.create();
+            if (bodyStart > 0) {
+                protonMessage.decode(data, 0, bodyStart);
+            }
+            protonMessage.setBody(EMPTY_BODY);
+
+            message = AmqpJmsMessageBuilder.createJmsMessage(consumer, protonMessage);
+        } catch (IOException | RuntimeException e) {
+            // Left for the buffered path to decode and report.
+            return null;
+        }
+
+        if (!(message.getFacade() instanceof AmqpJmsBytesMessageFacade)) {
+            return null;
+        }
+
+        AmqpIncomingBodyStream body = new AmqpIncomingBodyStream(bodyLength, capacity, resume);
+        ((AmqpJmsBytesMessageFacade) message.getFacade()).setStreamedBody(body);
+
+        AmqpStreamedMessage streamed = new AmqpStreamedMessage(message, body);
+        streamed.write(data, payloadStart, length - payloadStart);
+        return streamed;
+    }
+
+    /**
+     * @return the message whose body is being streamed.
+     */
+    public JmsMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the number of bytes that can currently be written without waiting on the application.
+     */
+    public int getFreeSpace() {
+        if (bodyRemaining == 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        return body.getFreeSpace();
+    }
+
+    /**
+     * Writes the next bytes of the delivery, those beyond the body are held back for checking.
+     *
+     * @param data
+     *        the array that holds the bytes.
+     * @param offset
+     *        the offset of the first byte.
+     * @param count
+     *        the number of bytes.
+     */
+    public void write(byte[] data, int offset, int count) {
+        int toBody = (int) Math.min(count, bodyRemaining);
+        if (toBody > 0) {
+            body.write(data, offset, toBody);
+            bodyRemaining -= toBody;
+        }
+
+        int toTrailer = Math.min(count - toBody, TRAILER_HEAD_SIZE - trailerLength);
+        if (toTrailer > 0) {
+            System.arraycopy(data, offset + toBody, trailerHead, trailerLength, toTrailer);
+            trailerLength += toTrailer;
+        }
+    }
+
+    /**
+     * Called once the whole delivery has arrived to end the body stream.
+     */
+    public void complete() {
+        if (bodyRemaining > 0) {
+            body.fail(new EOFException("Message ended before its body was fully received"));
+        } else if (trailerLength > 0 && !isFooter()) {
+            body.fail(new IOException("Message body has more than one section and cannot be streamed"));
+        } else {
+            body.complete();
+        }
+    }
+
+    /**
+     * Fails the body stream as the rest of the delivery will not arrive.
+     *
+     * @param error
+     *        the cause of the failure.
+     */
+    public void fail(IOException error) {
+        body.fail(error);
+    }
+
+    /**
+     * Discards the remainder of the body, used once the application will not read it.
+     */
+    public void discard() {
+        body.close();
+    }
+
+    private boolean isFooter() {
+        try {
+            return trailerHead[0] == 0x00 &&
+                   AmqpLazyMessage.toSection(trailerHead, 1, trailerLength) == FOOTER;
+        } catch (IndexOutOfBoundsException ex) {
+            return false;
+        }
+    }
+}
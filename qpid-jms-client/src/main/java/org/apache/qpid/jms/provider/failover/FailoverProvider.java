@@ -371,6 +371,30 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         serializer.execute(pending);
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        final FailoverRequest pending = new FailoverRequest(request) {
+            @Override
+            public void doTask() throws Exception {
+                provider.acknowledge(envelopes, ackType, this);
+            }
+
+            @Override
+            public boolean succeedsWhenOffline() {
+                // Allow this to succeed, acks would be stale.
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "batch acknowledge -> " + envelopes.size() + " messages ackType: " + ackType;
+            }
+        };
+
+        serializer.execute(pending);
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -459,12 +483,12 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     }
 
     @Override
-    public void pull(final JmsConsumerId consumerId, final long timeout, final AsyncResult request) throws IOException, UnsupportedOperationException {
+    public void pull(final JmsConsumerId consumerId, final long timeout, final int count, final AsyncResult request) throws IOException, UnsupportedOperationException {
         checkClosed();
         final FailoverRequest pending = new FailoverRequest(request) {
             @Override
             public void doTask() throws Exception {
-                provider.pull(consumerId, timeout, this);
+                provider.pull(consumerId, timeout, count, this);
             }
 
             @Override
@@ -21,11 +21,17 @@ import java.io.StringReader;
 import org.apache.qpid.jms.selector.filter.BooleanExpression;
 import org.apache.qpid.jms.selector.filter.FilterException;
 import org.apache.qpid.jms.selector.parser.SelectorParserImpl;
-import org.apache.qpid.jms.util.LRUCache;
+import org.apache.qpid.jms.util.ConcurrentLRUCache;
 
 public class SelectorParser {
 
-    private static final LRUCache<Object, Object> cache = new LRUCache<Object, Object>(100);
+    public static final String PROPERTY_CACHE_SIZE = "org.apache.qpid.jms.selector.cacheSize";
+
+    private static final int DEFAULT_CACHE_SIZE = 100;
+
+    // Parsed selectors and parse failures, shared by every thread creating consumers.
+    private static final ConcurrentLRUCache<String, Object> cache =
+        new ConcurrentLRUCache<String, Object>(configuredCacheSize());
 
     public static BooleanExpression parse(String sql) throws FilterException {
         Object result = cache.get(sql);
@@ -51,4 +57,41 @@ public class SelectorParser {
     public static void clearCache() {
         cache.clear();
     }
+
+    /**
+     * @return the number of parsed selectors that are cached.
+     */
+    public static int getCacheSize() {
+        return cache.getMaxCacheSize();
+    }
+
+    /**
+     * Sets the number of parsed selectors that are cached.  The initial value is read
+     * from the {@value #PROPERTY_CACHE_SIZE} system property and defaults to 100.
+     *
+     * @param cacheSize
+     *        the number of parsed selectors to cache, must be greater than zero.
+     */
+    public static void setCacheSize(int cacheSize) {
+        cache.setMaxCacheSize(cacheSize);
+    }
+
+    /**
+     * @return the number of parse requests that were answered from the cache.
+     */
+    public static long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * @return the number of parse requests that were not found in the cache.
+     */
+    public static long getCacheMissCount() {
+        return cache.getMissCount();
+    }
+
+    private static int configuredCacheSize() {
+        int size = Integer.getInteger(PROPERTY_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        return size > 0 ? size : DEFAULT_CACHE_SIZE;
+    }
 }
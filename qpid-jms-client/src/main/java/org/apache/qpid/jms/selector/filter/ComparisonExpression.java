@@ -16,6 +16,7 @@
  */
 package org.apache.qpid.jms.selector.filter;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -69,13 +70,28 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
     static class LikeExpression extends UnaryExpression implements BooleanExpression {
 
+        private static final int MATCH_EXACT = 0;
+        private static final int MATCH_PREFIX = 1;
+        private static final int MATCH_SUFFIX = 2;
+        private static final int MATCH_CONTAINS = 3;
+        private static final int MATCH_PATTERN = 4;
+
         Pattern likePattern;
 
+        private final int matchType;
+        private final String literal;
+
         /**
          */
         public LikeExpression(Expression right, String like, int escape) {
             super(right);
 
+            // Literal text between the '%' wildcards, used to avoid the regular
+            // expression for the common exact, prefix, suffix and contains cases.
+            List<String> segments = new ArrayList<String>();
+            StringBuilder segment = new StringBuilder();
+            boolean matchesOne = false;
+
             StringBuffer regexp = new StringBuffer(like.length() * 2);
             regexp.append("\\A"); // The beginning of the input
             for (int i = 0; i < like.length(); i++) {
@@ -90,20 +106,50 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                     char t = like.charAt(i);
                     regexp.append("\\x");
                     regexp.append(Integer.toHexString(0xFFFF & t));
+                    segment.append(t);
                 } else if (c == '%') {
                     regexp.append(".*?"); // Do a non-greedy match
+                    segments.add(segment.toString());
+                    segment.setLength(0);
                 } else if (c == '_') {
                     regexp.append("."); // match one
+                    matchesOne = true;
                 } else if (REGEXP_CONTROL_CHARS.contains(Character.valueOf(c))) {
                     regexp.append("\\x");
                     regexp.append(Integer.toHexString(0xFFFF & c));
+                    segment.append(c);
                 } else {
                     regexp.append(c);
+                    segment.append(c);
                 }
             }
             regexp.append("\\z"); // The end of the input
+            segments.add(segment.toString());
+
+            int type = MATCH_PATTERN;
+            String text = null;
+            if (!matchesOne) {
+                if (segments.size() == 1) {
+                    type = MATCH_EXACT;
+                    text = segments.get(0);
+                } else if (segments.size() == 2 && segments.get(1).isEmpty()) {
+                    type = MATCH_PREFIX;
+                    text = segments.get(0);
+                } else if (segments.size() == 2 && segments.get(0).isEmpty()) {
+                    type = MATCH_SUFFIX;
+                    text = segments.get(1);
+                } else if (segments.size() == 3 && segments.get(0).isEmpty() && segments.get(2).isEmpty()) {
+                    type = MATCH_CONTAINS;
+                    text = segments.get(1);
+                }
+            }
+
+            matchType = type;
+            literal = text;
 
-            likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
+            if (matchType == MATCH_PATTERN) {
+                likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
+            }
         }
 
         /**
@@ -132,7 +178,22 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
                 // identifiers. LIKE attempted on: '" + rv.getClass());
             }
 
-            return likePattern.matcher((String)rv).matches() ? Boolean.TRUE : Boolean.FALSE;
+            return matches((String) rv) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        private boolean matches(String value) {
+            switch (matchType) {
+                case MATCH_EXACT:
+                    return value.equals(literal);
+                case MATCH_PREFIX:
+                    return value.startsWith(literal);
+                case MATCH_SUFFIX:
+                    return value.endsWith(literal);
+                case MATCH_CONTAINS:
+                    return value.contains(literal);
+                default:
+                    return likePattern.matcher(value).matches();
+            }
         }
 
         @Override
@@ -354,6 +415,29 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
     }
 
     protected Boolean compare(Comparable lv, Comparable rv) {
+        // Numbers are compared on primitive values at the wider of the two types
+        // rather than boxing a converted copy of the narrower one.
+        int lr = numericRank(lv);
+        if (lr != NOT_NUMERIC) {
+            int rr = numericRank(rv);
+            if (rr != NOT_NUMERIC) {
+                int answer;
+                switch (Math.max(lr, rr)) {
+                    case INTEGRAL:
+                        answer = Long.compare(((Number) lv).longValue(), ((Number) rv).longValue());
+                        break;
+                    case FLOAT:
+                        answer = Float.compare(((Number) lv).floatValue(), ((Number) rv).floatValue());
+                        break;
+                    default:
+                        answer = Double.compare(((Number) lv).doubleValue(), ((Number) rv).doubleValue());
+                        break;
+                }
+
+                return asBoolean(answer) ? Boolean.TRUE : Boolean.FALSE;
+            }
+        }
+
         Class<? extends Comparable> lc = lv.getClass();
         Class<? extends Comparable> rc = rv.getClass();
         // If the the objects are not of the same type,
@@ -439,6 +523,24 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
     protected abstract boolean asBoolean(int answer);
 
+    private static final int NOT_NUMERIC = -1;
+    private static final int INTEGRAL = 0;
+    private static final int FLOAT = 1;
+    private static final int DOUBLE = 2;
+
+    private static int numericRank(Object value) {
+        Class<?> type = value.getClass();
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+            return INTEGRAL;
+        } else if (type == Double.class) {
+            return DOUBLE;
+        } else if (type == Float.class) {
+            return FLOAT;
+        } else {
+            return NOT_NUMERIC;
+        }
+    }
+
     @Override
     public boolean matches(Filterable message) throws FilterException {
         Object object = evaluate(message);
@@ -69,6 +69,16 @@ public interface Transport {
      */
     void send(ByteBuf output) throws IOException;
 
+    /**
+     * Indicates if the Transport can accept more data without buffering past its limit,
+     * when this returns false the TransportListener is notified once the buffered data
+     * has been written out.  Callers may continue to send while the Transport is not
+     * writable, the data is buffered.
+     *
+     * @return true if the Transport can send more data without buffering it.
+     */
+    boolean isWritable();
+
     /**
      * Gets the currently set TransportListener instance
      *
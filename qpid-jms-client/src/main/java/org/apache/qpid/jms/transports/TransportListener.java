@@ -45,4 +45,10 @@ public interface TransportListener {
      */
     void onTransportError(Throwable cause);
 
+    /**
+     * Called when the Transport has written out enough of its buffered data to become
+     * writable again after it reported that it was not.
+     */
+    void onTransportWritable();
+
 }
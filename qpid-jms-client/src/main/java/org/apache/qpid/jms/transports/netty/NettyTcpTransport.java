@@ -190,6 +190,11 @@ public class NettyTcpTransport implements Transport {
         channel.writeAndFlush(output);
     }
 
+    @Override
+    public boolean isWritable() {
+        return channel != null && channel.isWritable();
+    }
+
     @Override
     public TransportListener getTransportListener() {
         return listener;
@@ -299,6 +304,15 @@ public class NettyTcpTransport implements Transport {
             }
         }
 
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext context) throws Exception {
+            if (context.channel().isWritable() && !closed.get()) {
+                listener.onTransportWritable();
+            }
+
+            super.channelWritabilityChanged(context);
+        }
+
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf buffer) throws Exception {
             LOG.trace("New data read: {} bytes incoming: {}", buffer.readableBytes(), buffer);
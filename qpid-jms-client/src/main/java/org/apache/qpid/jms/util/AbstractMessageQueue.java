@@ -16,34 +16,50 @@
  */
 package org.apache.qpid.jms.util;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 
 /**
  * Abstract Message Queue class used to implement the common functions of a Message Queue
  * instance.
+ *
+ * The Queue is guarded by a ReentrantLock rather than an object monitor so that threads
+ * blocked in dequeue, including virtual threads, wait on a Condition instead of holding
+ * a monitor while parked.
  */
 public abstract class AbstractMessageQueue implements MessageQueue {
 
     protected boolean closed;
     protected boolean running;
-    protected Object lock = new Object();
+    protected final ReentrantLock lock = new ReentrantLock();
+    protected final Condition notEmpty = lock.newCondition();
 
     @Override
     public JmsInboundMessageDispatch peek() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             return peekFirst();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public JmsInboundMessageDispatch dequeue(long timeout) throws InterruptedException {
-        synchronized (lock) {
+        lock.lock();
+        try {
             // Wait until the consumer is ready to deliver messages.
+            long remaining = timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
             while (timeout != 0 && !closed && (isEmpty() || !running)) {
-                if (timeout == -1) {
-                    lock.wait();
+                if (timeout < 0) {
+                    notEmpty.await();
+                } else if (remaining > 0) {
+                    remaining = notEmpty.awaitNanos(remaining);
                 } else {
-                    lock.wait(timeout);
                     break;
                 }
             }
@@ -53,32 +69,58 @@ public abstract class AbstractMessageQueue implements MessageQueue {
             }
 
             return removeFirst();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public JmsInboundMessageDispatch dequeueNoWait() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             if (closed || !running || isEmpty()) {
                 return null;
             }
             return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int dequeueNoWait(List<JmsInboundMessageDispatch> target, int maxMessages) {
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxMessages && !closed && running && !isEmpty()) {
+                target.add(removeFirst());
+                count++;
+            }
+            return count;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void start() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             running = true;
-            lock.notifyAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void stop() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             running = false;
-            lock.notifyAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -89,12 +131,15 @@ public abstract class AbstractMessageQueue implements MessageQueue {
 
     @Override
     public void close() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             if (!closed) {
                 running = false;
                 closed = true;
             }
-            lock.notifyAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache that is safe for use from many threads without locking.
+ *
+ * Lookups never block or reorder the cache.  When an insert takes the cache past its
+ * maximum size the oldest entries are evicted, except that an entry which was read
+ * since it was last considered is given a second chance and moved to the back of the
+ * eviction order.  This approximates least recently used eviction.  The number of
+ * lookups that found or missed an entry is recorded.
+ *
+ * @param <K> the type of the cache keys.
+ * @param <V> the type of the cached values.
+ */
+public class ConcurrentLRUCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+    private final Queue<Entry<K, V>> evictionOrder = new ConcurrentLinkedQueue<Entry<K, V>>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile int maxCacheSize;
+
+    /**
+     * Constructs a ConcurrentLRUCache with a maximum capacity
+     *
+     * @param maximumCacheSize
+     *        the number of entries the cache holds before evicting, must be positive.
+     */
+    public ConcurrentLRUCache(int maximumCacheSize) {
+        setMaxCacheSize(maximumCacheSize);
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     *
+     * @param key
+     *        the key to look up.
+     *
+     * @return the cached value, or null if there is none.
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        entry.accessed = true;
+        return entry.value;
+    }
+
+    /**
+     * Maps the given key to the given value, replacing any existing mapping.
+     *
+     * @param key
+     *        the key to store the value under.
+     * @param value
+     *        the value to store.
+     */
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<K, V>(key, value);
+        Entry<K, V> previous = entries.put(key, entry);
+        if (previous != null) {
+            evictionOrder.remove(previous);
+        }
+        evictionOrder.offer(entry);
+
+        evict();
+    }
+
+    /**
+     * Removes every entry from the cache.  The statistics are left unchanged.
+     */
+    public void clear() {
+        Entry<K, V> entry;
+        while ((entry = evictionOrder.poll()) != null) {
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    /**
+     * @return the number of entries in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of entries the cache holds before evicting.
+     */
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets the number of entries the cache holds, evicting entries if it is now over.
+     *
+     * @param maxCacheSize
+     *        the number of entries the cache holds before evicting, must be positive.
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        if (maxCacheSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than zero");
+        }
+
+        this.maxCacheSize = maxCacheSize;
+        evict();
+    }
+
+    /**
+     * @return the number of lookups that found a cached value.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached value.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Resets the hit and miss counts to zero.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private void evict() {
+        // Each entry is given at most one second chance per pass so the loop ends
+        // even when every entry has been read.
+        int chances = evictionOrder.size();
+        while (entries.size() > maxCacheSize) {
+            Entry<K, V> eldest = evictionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+
+            if (eldest.accessed && chances-- > 0) {
+                eldest.accessed = false;
+                evictionOrder.offer(eldest);
+            } else {
+                entries.remove(eldest.key, eldest);
+            }
+        }
+    }
+
+    private static final class Entry<K, V> {
+
+        private final K key;
+        private final V value;
+        private volatile boolean accessed;
+
+        public Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
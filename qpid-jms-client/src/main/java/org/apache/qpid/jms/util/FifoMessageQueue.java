@@ -17,81 +17,344 @@
 package org.apache.qpid.jms.util;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 
 /**
  * Simple first in / first out Message Queue.
+ *
+ * The Queue does not lock, messages are stored in a ring buffer indexed by an ever
+ * increasing head and tail sequence.  Calls to enqueue and enqueueFirst must come from
+ * a single producer at a time (the owning consumer serializes them) while any number
+ * of threads can remove messages by advancing the head sequence.  The ring is grown by
+ * the producer when full so once it is large enough to hold the consumer's prefetch no
+ * further allocations are made.  Envelopes added with enqueueFirst are rare (recovery)
+ * and are held on a separate stack that is always drained ahead of the ring.
+ *
+ * Threads waiting in dequeue are parked and are unparked whenever a message is added
+ * or the Queue is started, stopped or closed.
  */
-public final class FifoMessageQueue extends AbstractMessageQueue {
+public final class FifoMessageQueue implements MessageQueue {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private volatile AtomicReferenceArray<JmsInboundMessageDispatch> ring;
+
+    private final AtomicReference<FrontNode> front = new AtomicReference<FrontNode>();
+    private final AtomicInteger frontSize = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+    private final Object lock = new Object();
+
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    public FifoMessageQueue() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new Queue whose ring buffer can initially hold the given number of
+     * messages before it needs to be grown.
+     *
+     * @param initialCapacity
+     *        the number of messages the Queue can hold before growing.
+     */
+    public FifoMessageQueue(int initialCapacity) {
+        int capacity = 1;
+        while (capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
+        }
+
+        this.ring = new AtomicReferenceArray<JmsInboundMessageDispatch>(capacity);
+    }
 
-    protected final LinkedList<JmsInboundMessageDispatch> list = new LinkedList<JmsInboundMessageDispatch>();
+    @Override
+    public void enqueue(JmsInboundMessageDispatch envelope) {
+        long sequence = tail;
+        AtomicReferenceArray<JmsInboundMessageDispatch> buffer = ensureCapacity(sequence);
+        buffer.set(index(sequence, buffer), envelope);
+        tail = sequence + 1;
+
+        signalWaiters();
+    }
 
     @Override
     public void enqueueFirst(JmsInboundMessageDispatch envelope) {
-        synchronized (lock) {
-            list.addFirst(envelope);
-            lock.notify();
+        FrontNode node = new FrontNode(envelope);
+        do {
+            node.next = front.get();
+        } while (!front.compareAndSet(node.next, node));
+        frontSize.incrementAndGet();
+
+        signalWaiters();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return front.get() == null && head.get() >= tail;
+    }
+
+    @Override
+    public JmsInboundMessageDispatch peek() {
+        FrontNode top = front.get();
+        if (top != null) {
+            return top.envelope;
+        }
+
+        while (true) {
+            long sequence = head.get();
+            if (sequence >= tail) {
+                return null;
+            }
+
+            AtomicReferenceArray<JmsInboundMessageDispatch> buffer = ring;
+            JmsInboundMessageDispatch envelope = buffer.get(index(sequence, buffer));
+            if (envelope != null && head.get() == sequence) {
+                return envelope;
+            }
         }
     }
 
     @Override
-    public void enqueue(JmsInboundMessageDispatch envelope) {
-        synchronized (lock) {
-            list.addLast(envelope);
-            lock.notify();
+    public JmsInboundMessageDispatch dequeue(long timeout) throws InterruptedException {
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        Thread current = Thread.currentThread();
+
+        while (true) {
+            if (closed) {
+                return null;
+            }
+
+            if (running) {
+                JmsInboundMessageDispatch envelope = removeFirst();
+                if (envelope != null) {
+                    return envelope;
+                }
+            }
+
+            if (timeout == 0) {
+                return null;
+            }
+
+            waiters.add(current);
+            try {
+                // Check again once registered so that an enqueue or start that raced
+                // with us cannot leave this thread parked.
+                if (closed || (running && !isEmpty())) {
+                    continue;
+                }
+
+                if (timeout < 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiters.remove(current);
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
         }
     }
 
     @Override
-    public boolean isEmpty() {
-        synchronized (lock) {
-            return list.isEmpty();
+    public JmsInboundMessageDispatch dequeueNoWait() {
+        if (closed || !running) {
+            return null;
         }
+
+        return removeFirst();
     }
 
     @Override
-    public int size() {
-        synchronized (lock) {
-            return list.size();
+    public int dequeueNoWait(List<JmsInboundMessageDispatch> target, int maxMessages) {
+        int count = 0;
+        JmsInboundMessageDispatch envelope = null;
+        while (count < maxMessages && !closed && running && (envelope = removeFirst()) != null) {
+            target.add(envelope);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        signalWaiters();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        signalWaiters();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            running = false;
+            closed = true;
         }
+        signalWaiters();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int size() {
+        long size = tail - head.get();
+        return (int) Math.max(0, size) + frontSize.get();
     }
 
     @Override
     public void clear() {
-        synchronized (lock) {
-            list.clear();
+        while (removeFirst() != null) {
         }
     }
 
     @Override
     public List<JmsInboundMessageDispatch> removeAll() {
-        synchronized (lock) {
-            ArrayList<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(list.size());
-            for (JmsInboundMessageDispatch entry : list) {
-                rc.add(entry);
-            }
-            list.clear();
-            return rc;
+        ArrayList<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(size());
+        JmsInboundMessageDispatch envelope = null;
+        while ((envelope = removeFirst()) != null) {
+            rc.add(envelope);
         }
+        return rc;
+    }
+
+    /**
+     * The Queue does not lock internally, the returned object is only provided for
+     * compatibility with code that synchronizes on the Queue's lock.
+     *
+     * @return an object private to this Queue.
+     */
+    @Override
+    public Object getLock() {
+        return lock;
     }
 
     @Override
     public String toString() {
-        synchronized (lock) {
-            return list.toString();
+        List<JmsInboundMessageDispatch> snapshot = new ArrayList<JmsInboundMessageDispatch>();
+        for (FrontNode node = front.get(); node != null; node = node.next) {
+            snapshot.add(node.envelope);
         }
+
+        AtomicReferenceArray<JmsInboundMessageDispatch> buffer = ring;
+        for (long sequence = head.get(), last = tail; sequence < last; ++sequence) {
+            JmsInboundMessageDispatch envelope = buffer.get(index(sequence, buffer));
+            if (envelope != null) {
+                snapshot.add(envelope);
+            }
+        }
+
+        return snapshot.toString();
     }
 
-    @Override
-    protected JmsInboundMessageDispatch removeFirst() {
-        return list.removeFirst();
+    //----- Internal implementation ------------------------------------------//
+
+    private JmsInboundMessageDispatch removeFirst() {
+        while (true) {
+            FrontNode top = front.get();
+            if (top == null) {
+                break;
+            }
+
+            if (front.compareAndSet(top, top.next)) {
+                frontSize.decrementAndGet();
+                return top.envelope;
+            }
+        }
+
+        while (true) {
+            long sequence = head.get();
+            if (sequence >= tail) {
+                return null;
+            }
+
+            AtomicReferenceArray<JmsInboundMessageDispatch> buffer = ring;
+            int index = index(sequence, buffer);
+            JmsInboundMessageDispatch envelope = buffer.get(index);
+            if (envelope != null && head.compareAndSet(sequence, sequence + 1)) {
+                // Release the slot unless the producer has already reused it.
+                buffer.compareAndSet(index, envelope, null);
+                return envelope;
+            }
+        }
     }
 
-    @Override
-    protected JmsInboundMessageDispatch peekFirst() {
-        return list.peekFirst();
+    /*
+     * Only called by the producer, grows the ring if the slot for the given tail sequence
+     * could still hold a message that has not been consumed.  Consumers that still hold
+     * the old ring can safely complete their removal as its contents are never modified
+     * by the producer once it has been replaced.
+     */
+    private AtomicReferenceArray<JmsInboundMessageDispatch> ensureCapacity(long sequence) {
+        AtomicReferenceArray<JmsInboundMessageDispatch> buffer = ring;
+        long first = head.get();
+        if (sequence - first < buffer.length()) {
+            return buffer;
+        }
+
+        if (buffer.length() >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Message queue capacity exceeded");
+        }
+
+        AtomicReferenceArray<JmsInboundMessageDispatch> grown =
+            new AtomicReferenceArray<JmsInboundMessageDispatch>(buffer.length() << 1);
+        for (long i = first; i < sequence; ++i) {
+            grown.set(index(i, grown), buffer.get(index(i, buffer)));
+        }
+
+        ring = grown;
+        return grown;
+    }
+
+    private void signalWaiters() {
+        if (!waiters.isEmpty()) {
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    private static int index(long sequence, AtomicReferenceArray<?> buffer) {
+        return (int) (sequence & (buffer.length() - 1));
+    }
+
+    private static final class FrontNode {
+
+        private final JmsInboundMessageDispatch envelope;
+        private FrontNode next;
+
+        public FrontNode(JmsInboundMessageDispatch envelope) {
+            this.envelope = envelope;
+        }
     }
 }
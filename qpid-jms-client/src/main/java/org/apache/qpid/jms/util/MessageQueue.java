@@ -74,6 +74,19 @@ public interface MessageQueue {
      */
     JmsInboundMessageDispatch dequeueNoWait();
 
+    /**
+     * Removes up to the given number of enqueued Messages without waiting and adds them
+     * to the given list in the order they would have been returned from dequeue.
+     *
+     * @param target
+     *        the list to add the removed Messages to.
+     * @param maxMessages
+     *        the maximum number of Messages to remove.
+     *
+     * @return the number of Messages that were removed, zero if the Queue is not running.
+     */
+    int dequeueNoWait(List<JmsInboundMessageDispatch> target, int maxMessages);
+
     /**
      * Starts the Message Queue.  An non-started Queue will always return null for
      * any of the Queue accessor methods.
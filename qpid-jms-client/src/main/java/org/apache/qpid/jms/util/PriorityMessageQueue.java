@@ -17,7 +17,6 @@
 package org.apache.qpid.jms.util;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import javax.jms.JMSException;
@@ -28,104 +27,193 @@ import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
  * Simple Message Priority ordered Queue.  Message envelopes are stored in the
  * Queue based on their priority value, except where {@link #enqueueFirst} is
  * used.
+ *
+ * Each priority is held in its own array backed ring and a bitmap records which
+ * of the rings are non-empty so the highest waiting priority is found without
+ * scanning.  An optional starvation limit allows lower priority messages to make
+ * progress when higher priority messages arrive continuously.
  */
 public final class PriorityMessageQueue extends AbstractMessageQueue {
 
     // There are 10 priorities, values 0-9
     private static final Integer MAX_PRIORITY = 9;
 
-    private final LinkedList<JmsInboundMessageDispatch>[] lists;
+    private static final int DEFAULT_RING_CAPACITY = 8;
+
+    private final Ring[] rings;
+    private final int starvationLimit;
+    private int nonEmpty;
     private int size = 0;
+    private int dispatchedAhead;
 
-    @SuppressWarnings("unchecked")
     public PriorityMessageQueue() {
-        this.lists = new LinkedList[MAX_PRIORITY + 1];
+        this(0);
+    }
+
+    /**
+     * Creates a priority Queue that, when the starvation limit is greater than zero,
+     * dispatches the oldest message of the lowest waiting priority after that many
+     * messages have been dispatched ahead of it from higher priorities.
+     *
+     * @param starvationLimit
+     *        the number of higher priority messages dispatched before a lower priority
+     *        message is given a turn, or zero to always dispatch in strict priority order.
+     */
+    public PriorityMessageQueue(int starvationLimit) {
+        this.starvationLimit = Math.max(0, starvationLimit);
+        this.rings = new Ring[MAX_PRIORITY + 1];
         for (int i = 0; i <= MAX_PRIORITY; i++) {
-            lists[i] = new LinkedList<JmsInboundMessageDispatch>();
+            rings[i] = new Ring(DEFAULT_RING_CAPACITY);
         }
     }
 
     @Override
     public void enqueue(JmsInboundMessageDispatch envelope) {
-        synchronized (lock) {
-            getList(envelope).addLast(envelope);
+        lock.lock();
+        try {
+            int priority = getPriority(envelope);
+            rings[priority].addLast(envelope);
+            nonEmpty |= 1 << priority;
             this.size++;
-            lock.notify();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void enqueueFirst(JmsInboundMessageDispatch envelope) {
-        synchronized (lock) {
-            getList(MAX_PRIORITY).addFirst(envelope);
+        lock.lock();
+        try {
+            rings[MAX_PRIORITY].addFirst(envelope);
+            nonEmpty |= 1 << MAX_PRIORITY;
             this.size++;
-            lock.notify();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public boolean isEmpty() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             return size == 0;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public int size() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             return size;
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * @return the number of higher priority messages dispatched before a waiting lower
+     *         priority message is given a turn, zero if strict priority order is used.
+     */
+    public int getStarvationLimit() {
+        return starvationLimit;
+    }
+
     @Override
     public void clear() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             for (int i = 0; i <= MAX_PRIORITY; i++) {
-                lists[i].clear();
+                rings[i].clear();
             }
+            this.nonEmpty = 0;
             this.size = 0;
+            this.dispatchedAhead = 0;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public List<JmsInboundMessageDispatch> removeAll() {
-        synchronized (lock) {
-            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size());
+        lock.lock();
+        try {
+            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size);
             for (int i = MAX_PRIORITY; i >= 0; i--) {
-                List<JmsInboundMessageDispatch> list = lists[i];
-                result.addAll(list);
-                size -= list.size();
-                list.clear();
+                rings[i].drainTo(result);
             }
+            this.nonEmpty = 0;
+            this.size = 0;
+            this.dispatchedAhead = 0;
             return result;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    protected JmsInboundMessageDispatch removeFirst() {
-        if (this.size > 0) {
+    public String toString() {
+        lock.lock();
+        try {
+            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size);
             for (int i = MAX_PRIORITY; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    this.size--;
-                    return list.removeFirst();
-                }
+                rings[i].copyTo(result);
             }
+            return result.toString();
+        } finally {
+            lock.unlock();
         }
-        return null;
+    }
+
+    @Override
+    protected JmsInboundMessageDispatch removeFirst() {
+        if (nonEmpty == 0) {
+            return null;
+        }
+
+        int priority = selectPriority();
+        if (priority == highestPriority()) {
+            dispatchedAhead = priority != lowestPriority() ? dispatchedAhead + 1 : 0;
+        } else {
+            dispatchedAhead = 0;
+        }
+
+        Ring ring = rings[priority];
+        JmsInboundMessageDispatch envelope = ring.removeFirst();
+        if (ring.isEmpty()) {
+            nonEmpty &= ~(1 << priority);
+        }
+        this.size--;
+
+        return envelope;
     }
 
     @Override
     protected JmsInboundMessageDispatch peekFirst() {
-        if (this.size > 0) {
-            for (int i = MAX_PRIORITY; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    return list.peekFirst();
-                }
-            }
+        if (nonEmpty == 0) {
+            return null;
         }
-        return null;
+
+        return rings[selectPriority()].peekFirst();
+    }
+
+    private int selectPriority() {
+        if (starvationLimit > 0 && dispatchedAhead >= starvationLimit) {
+            return lowestPriority();
+        }
+
+        return highestPriority();
+    }
+
+    private int highestPriority() {
+        return 31 - Integer.numberOfLeadingZeros(nonEmpty);
+    }
+
+    private int lowestPriority() {
+        return Integer.numberOfTrailingZeros(nonEmpty);
     }
 
     private int getPriority(JmsInboundMessageDispatch envelope) {
@@ -140,11 +228,81 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
         return priority;
     }
 
-    private LinkedList<JmsInboundMessageDispatch> getList(JmsInboundMessageDispatch envelope) {
-        return getList(getPriority(envelope));
-    }
+    /*
+     * Growable array backed double ended queue for a single priority level, always
+     * accessed under the Queue lock.
+     */
+    private static final class Ring {
+
+        private JmsInboundMessageDispatch[] elements;
+        private int head;
+        private int count;
+
+        public Ring(int capacity) {
+            this.elements = new JmsInboundMessageDispatch[capacity];
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
 
-    private LinkedList<JmsInboundMessageDispatch> getList(int priority) {
-        return lists[priority];
+        public void addLast(JmsInboundMessageDispatch envelope) {
+            ensureCapacity();
+            elements[(head + count) & (elements.length - 1)] = envelope;
+            count++;
+        }
+
+        public void addFirst(JmsInboundMessageDispatch envelope) {
+            ensureCapacity();
+            head = (head - 1) & (elements.length - 1);
+            elements[head] = envelope;
+            count++;
+        }
+
+        public JmsInboundMessageDispatch peekFirst() {
+            return count == 0 ? null : elements[head];
+        }
+
+        public JmsInboundMessageDispatch removeFirst() {
+            if (count == 0) {
+                return null;
+            }
+
+            JmsInboundMessageDispatch envelope = elements[head];
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+            count--;
+            return envelope;
+        }
+
+        public void drainTo(List<JmsInboundMessageDispatch> target) {
+            copyTo(target);
+            clear();
+        }
+
+        public void copyTo(List<JmsInboundMessageDispatch> target) {
+            for (int i = 0; i < count; ++i) {
+                target.add(elements[(head + i) & (elements.length - 1)]);
+            }
+        }
+
+        public void clear() {
+            for (int i = 0; i < count; ++i) {
+                elements[(head + i) & (elements.length - 1)] = null;
+            }
+            head = 0;
+            count = 0;
+        }
+
+        private void ensureCapacity() {
+            if (count == elements.length) {
+                JmsInboundMessageDispatch[] grown = new JmsInboundMessageDispatch[elements.length << 1];
+                for (int i = 0; i < count; ++i) {
+                    grown[i] = elements[(head + i) & (elements.length - 1)];
+                }
+                elements = grown;
+                head = 0;
+            }
+        }
     }
 }
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simple ThreadFactory that creates named threads for the client.
+ *
+ * When asked to use virtual threads and the running JVM supports them the threads
+ * are created from the JVM's virtual thread builder, otherwise platform threads are
+ * created.  The virtual thread builder is located reflectively so the client can still
+ * run on JVMs that predate them.  Virtual threads are always daemon threads.
+ */
+public class QpidJMSThreadFactory implements ThreadFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QpidJMSThreadFactory.class);
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    private final String threadName;
+    private final boolean daemon;
+    private final boolean virtual;
+
+    public QpidJMSThreadFactory(String threadName, boolean daemon) {
+        this(threadName, daemon, false);
+    }
+
+    /**
+     * Creates a new ThreadFactory.
+     *
+     * @param threadName
+     *        the name given to each thread that is created.
+     * @param daemon
+     *        should platform threads be created as daemon threads.
+     * @param virtual
+     *        should virtual threads be created when the JVM supports them.
+     */
+    public QpidJMSThreadFactory(String threadName, boolean daemon, boolean virtual) {
+        this.threadName = threadName;
+        this.daemon = daemon;
+        this.virtual = virtual;
+    }
+
+    @Override
+    public Thread newThread(Runnable runner) {
+        Thread thread = null;
+        if (virtual && VIRTUAL_THREAD_FACTORY != null) {
+            thread = VIRTUAL_THREAD_FACTORY.newThread(runner);
+            thread.setName(threadName);
+        } else {
+            thread = new Thread(runner, threadName);
+            thread.setDaemon(daemon);
+        }
+
+        return thread;
+    }
+
+    /**
+     * @return true if the running JVM is able to create virtual threads.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Throwable error) {
+            LOG.trace("Virtual threads are not available: {}", error.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that runs the tasks given to it one at a time and in the order they were
+ * submitted using the threads of another, possibly shared, Executor.
+ *
+ * At most one task from a SerialExecutor is ever running on the backing Executor so any
+ * number of SerialExecutor instances can share a small pool of threads while each still
+ * provides the ordering guarantees of a dedicated single threaded Executor.  To prevent
+ * a busy instance from holding a pooled thread indefinitely a bounded number of tasks is
+ * run each time before the remainder is resubmitted to the backing Executor.
+ */
+public class SerialExecutor implements Executor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerialExecutor.class);
+
+    private static final int DEFAULT_TASKS_PER_RUN = 64;
+
+    private final Executor target;
+    private final int tasksPerRun;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable runner = new Runnable() {
+
+        @Override
+        public void run() {
+            runTasks();
+        }
+    };
+
+    public SerialExecutor(Executor target) {
+        this(target, DEFAULT_TASKS_PER_RUN);
+    }
+
+    /**
+     * Creates a new SerialExecutor that runs its tasks on the given Executor.
+     *
+     * @param target
+     *        the Executor whose threads are used to run the submitted tasks.
+     * @param tasksPerRun
+     *        the number of tasks run before the pooled thread is yielded back.
+     */
+    public SerialExecutor(Executor target, int tasksPerRun) {
+        if (target == null) {
+            throw new IllegalArgumentException("Target Executor cannot be null");
+        }
+
+        if (tasksPerRun <= 0) {
+            throw new IllegalArgumentException("Tasks per run must be greater than zero");
+        }
+
+        this.target = target;
+        this.tasksPerRun = tasksPerRun;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Task cannot be null");
+        }
+
+        tasks.add(task);
+        schedule();
+    }
+
+    /**
+     * @return the number of tasks that are waiting to be run.
+     */
+    public int getPendingTaskCount() {
+        return tasks.size();
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private void schedule() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                target.execute(runner);
+            } catch (RejectedExecutionException ree) {
+                scheduled.set(false);
+                throw ree;
+            }
+        }
+    }
+
+    private void runTasks() {
+        try {
+            Runnable task = null;
+            for (int i = 0; i < tasksPerRun && (task = tasks.poll()) != null; ++i) {
+                try {
+                    task.run();
+                } catch (Throwable error) {
+                    LOG.warn("Task {} failed: {}", task, error.getMessage());
+                    LOG.trace("Task failure detail:", error);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+
+        // Picks up tasks that were added after the last poll along with any that were
+        // left over once this run used up its share of the pooled thread.
+        try {
+            schedule();
+        } catch (RejectedExecutionException ree) {
+            LOG.debug("Target Executor rejected the remaining {} tasks", tasks.size());
+        }
+    }
+}
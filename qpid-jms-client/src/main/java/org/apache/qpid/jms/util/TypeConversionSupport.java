@@ -21,42 +21,14 @@ import java.util.HashMap;
 
 public final class TypeConversionSupport {
 
-    static class ConversionKey {
-        final Class<?> from;
-        final Class<?> to;
-        final int hashCode;
-
-        public ConversionKey(Class<?> from, Class<?> to) {
-            this.from = from;
-            this.to = to;
-            this.hashCode = from.hashCode() ^ (to.hashCode() << 1);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-
-            if (o == null || o.getClass() != this.getClass()) {
-                return false;
-            }
-
-            ConversionKey x = (ConversionKey) o;
-            return x.from == from && x.to == to;
-        }
-
-        @Override
-        public int hashCode() {
-            return hashCode;
-        }
-    }
-
     interface Converter {
         Object convert(Object value);
     }
 
-    private static final HashMap<ConversionKey, Converter> CONVERSION_MAP = new HashMap<ConversionKey, Converter>();
+    // Converters indexed by source type and then target type so no key object is
+    // created for each lookup.
+    private static final HashMap<Class<?>, HashMap<Class<?>, Converter>> CONVERSION_MAP =
+        new HashMap<Class<?>, HashMap<Class<?>, Converter>>();
 
     static {
         Converter toStringConverter = new Converter() {
@@ -65,51 +37,51 @@ public final class TypeConversionSupport {
                 return value.toString();
             }
         };
-        CONVERSION_MAP.put(new ConversionKey(Boolean.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Byte.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Short.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Integer.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Long.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Float.class, String.class), toStringConverter);
-        CONVERSION_MAP.put(new ConversionKey(Double.class, String.class), toStringConverter);
-
-        CONVERSION_MAP.put(new ConversionKey(String.class, Boolean.class), new Converter() {
+        register(Boolean.class, String.class, toStringConverter);
+        register(Byte.class, String.class, toStringConverter);
+        register(Short.class, String.class, toStringConverter);
+        register(Integer.class, String.class, toStringConverter);
+        register(Long.class, String.class, toStringConverter);
+        register(Float.class, String.class, toStringConverter);
+        register(Double.class, String.class, toStringConverter);
+
+        register(String.class, Boolean.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Boolean.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Byte.class), new Converter() {
+        register(String.class, Byte.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Byte.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Short.class), new Converter() {
+        register(String.class, Short.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Short.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Integer.class), new Converter() {
+        register(String.class, Integer.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Integer.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Long.class), new Converter() {
+        register(String.class, Long.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Long.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Float.class), new Converter() {
+        register(String.class, Float.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Float.valueOf((String) value);
             }
         });
-        CONVERSION_MAP.put(new ConversionKey(String.class, Double.class), new Converter() {
+        register(String.class, Double.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Double.valueOf((String) value);
@@ -122,10 +94,10 @@ public final class TypeConversionSupport {
                 return Long.valueOf(((Number) value).longValue());
             }
         };
-        CONVERSION_MAP.put(new ConversionKey(Byte.class, Long.class), longConverter);
-        CONVERSION_MAP.put(new ConversionKey(Short.class, Long.class), longConverter);
-        CONVERSION_MAP.put(new ConversionKey(Integer.class, Long.class), longConverter);
-        CONVERSION_MAP.put(new ConversionKey(Date.class, Long.class), new Converter() {
+        register(Byte.class, Long.class, longConverter);
+        register(Short.class, Long.class, longConverter);
+        register(Integer.class, Long.class, longConverter);
+        register(Date.class, Long.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Long.valueOf(((Date) value).getTime());
@@ -138,17 +110,17 @@ public final class TypeConversionSupport {
                 return Integer.valueOf(((Number) value).intValue());
             }
         };
-        CONVERSION_MAP.put(new ConversionKey(Byte.class, Integer.class), intConverter);
-        CONVERSION_MAP.put(new ConversionKey(Short.class, Integer.class), intConverter);
+        register(Byte.class, Integer.class, intConverter);
+        register(Short.class, Integer.class, intConverter);
 
-        CONVERSION_MAP.put(new ConversionKey(Byte.class, Short.class), new Converter() {
+        register(Byte.class, Short.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return Short.valueOf(((Number) value).shortValue());
             }
         });
 
-        CONVERSION_MAP.put(new ConversionKey(Float.class, Double.class), new Converter() {
+        register(Float.class, Double.class, new Converter() {
             @Override
             public Object convert(Object value) {
                 return new Double(((Number) value).doubleValue());
@@ -174,7 +146,12 @@ public final class TypeConversionSupport {
             toClass = convertPrimitiveTypeToWrapperType(toClass);
         }
 
-        Converter c = CONVERSION_MAP.get(new ConversionKey(fromClass, toClass));
+        HashMap<Class<?>, Converter> converters = CONVERSION_MAP.get(fromClass);
+        if (converters == null) {
+            return null;
+        }
+
+        Converter c = converters.get(toClass);
         if (c == null) {
             return null;
         }
@@ -182,6 +159,16 @@ public final class TypeConversionSupport {
         return c.convert(value);
     }
 
+    private static void register(Class<?> fromClass, Class<?> toClass, Converter converter) {
+        HashMap<Class<?>, Converter> converters = CONVERSION_MAP.get(fromClass);
+        if (converters == null) {
+            converters = new HashMap<Class<?>, Converter>();
+            CONVERSION_MAP.put(fromClass, converters);
+        }
+
+        converters.put(toClass, converter);
+    }
+
     private static Class<?> convertPrimitiveTypeToWrapperType(Class<?> type) {
         Class<?> rc = type;
         if (type.isPrimitive()) {
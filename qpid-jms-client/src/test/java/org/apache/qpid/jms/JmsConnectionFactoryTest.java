@@ -76,7 +76,13 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
         factory.setAlwaysSyncSend(!factory.isAlwaysSyncSend());
         factory.setForceAsyncSend(!factory.isForceAsyncSend());
         factory.setLocalMessagePriority(!factory.isLocalMessagePriority());
+        factory.setLocalMessagePriorityStarvationLimit(10);
+        factory.setSessionDispatcherPoolSize(4);
+        factory.setUseVirtualThreads(!factory.isUseVirtualThreads());
+        factory.setLocalMessageSelection(!factory.isLocalMessageSelection());
         factory.setSendAcksAsync(!factory.isSendAcksAsync());
+        factory.setZeroCopyDelivery(!factory.isZeroCopyDelivery());
+        factory.setMessageRecycling(!factory.isMessageRecycling());
         factory.setConnectTimeout(TimeUnit.SECONDS.toMillis(30));
         factory.setCloseTimeout(TimeUnit.SECONDS.toMillis(45));
 
@@ -94,7 +100,13 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
         assertEquals(factory.isAlwaysSyncSend(), connection.isAlwaysSyncSend());
         assertEquals(factory.isForceAsyncSend(), connection.isForceAsyncSend());
         assertEquals(factory.isLocalMessagePriority(), connection.isLocalMessagePriority());
+        assertEquals(10, connection.getLocalMessagePriorityStarvationLimit());
+        assertEquals(4, connection.getSessionDispatcherPoolSize());
+        assertEquals(factory.isUseVirtualThreads(), connection.isUseVirtualThreads());
+        assertEquals(factory.isLocalMessageSelection(), connection.isLocalMessageSelection());
         assertEquals(factory.isSendAcksAsync(), connection.isSendAcksAsync());
+        assertEquals(factory.isZeroCopyDelivery(), connection.isZeroCopyDelivery());
+        assertEquals(factory.isMessageRecycling(), connection.isMessageRecycling());
 
         assertEquals(TimeUnit.SECONDS.toMillis(30), connection.getConnectTimeout());
         assertEquals(TimeUnit.SECONDS.toMillis(45), connection.getCloseTimeout());
@@ -27,6 +27,11 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.ExceptionListener;
 import javax.jms.IllegalStateException;
@@ -37,6 +42,7 @@ import javax.jms.TemporaryQueue;
 import javax.jms.TemporaryTopic;
 
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.apache.qpid.jms.meta.JmsConsumerId;
 import org.apache.qpid.jms.provider.mock.MockProvider;
 import org.apache.qpid.jms.provider.mock.MockProviderFactory;
 import org.apache.qpid.jms.util.IdGenerator;
@@ -145,6 +151,37 @@ public class JmsConnectionTest {
         assertTrue(connection.removeConnectionListener(listener));
     }
 
+    @Test(timeout=30000)
+    public void testConnectionListenersReceiveInboundMessagesInOrder() throws Exception {
+        connection = new JmsConnection("ID:TEST:1", provider, clientIdGenerator);
+
+        final int count = 500;
+        final List<JmsInboundMessageDispatch> received =
+            Collections.synchronizedList(new ArrayList<JmsInboundMessageDispatch>());
+        final CountDownLatch done = new CountDownLatch(count);
+
+        connection.addConnectionListener(new JmsDefaultConnectionListener() {
+
+            @Override
+            public void onInboundMessage(JmsInboundMessageDispatch envelope) {
+                received.add(envelope);
+                done.countDown();
+            }
+        });
+
+        JmsConsumerId consumerId = new JmsConsumerId("ID:TEST:1", 1, 1);
+        List<JmsInboundMessageDispatch> sent = new ArrayList<JmsInboundMessageDispatch>();
+        for (int i = 0; i < count; ++i) {
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(i);
+            envelope.setConsumerId(consumerId);
+            sent.add(envelope);
+            connection.onInboundMessage(envelope);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(sent, received);
+    }
+
     @Test(timeout=30000)
     public void testConnectionStart() throws JMSException, IOException {
         connection = new JmsConnection("ID:TEST:1", provider, clientIdGenerator);
@@ -17,9 +17,17 @@
 package org.apache.qpid.jms.consumer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.Queue;
@@ -28,6 +36,9 @@ import javax.jms.QueueSession;
 import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsConnectionTestSupport;
+import org.apache.qpid.jms.JmsDispatchKeyExtractor;
+import org.apache.qpid.jms.JmsMessageConsumer;
+import org.apache.qpid.jms.message.JmsMessage;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -77,4 +88,70 @@ public class JmsQueueReceiverTest extends JmsConnectionTestSupport {
     public void testGetMessageSelector() throws Exception {
         assertNull(receiver.getMessageSelector());
     }
+
+    @Test(timeout = 30000)
+    public void testSetParallelDispatch() throws Exception {
+        JmsMessageConsumer consumer = (JmsMessageConsumer) receiver;
+        assertFalse(consumer.isParallelDispatch());
+        assertNotNull(consumer.getDispatchKeyExtractor());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            consumer.setParallelDispatch(executor, 2);
+            assertTrue(consumer.isParallelDispatch());
+            consumer.setParallelDispatch(null, 0);
+            assertFalse(consumer.isParallelDispatch());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000, expected = JMSException.class)
+    public void testSetParallelDispatchWithInvalidConcurrency() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ((JmsMessageConsumer) receiver).setParallelDispatch(executor, 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000, expected = IllegalStateException.class)
+    public void testSetParallelDispatchInClientAckSession() throws Exception {
+        QueueSession clientAckSession = queueConnection.createQueueSession(false, Session.CLIENT_ACKNOWLEDGE);
+        JmsMessageConsumer consumer = (JmsMessageConsumer) clientAckSession.createReceiver(queue);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            consumer.setParallelDispatch(executor, 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSetDispatchKeyExtractor() throws Exception {
+        JmsMessageConsumer consumer = (JmsMessageConsumer) receiver;
+        JmsDispatchKeyExtractor defaultExtractor = consumer.getDispatchKeyExtractor();
+        JmsDispatchKeyExtractor extractor = new JmsDispatchKeyExtractor() {
+
+            @Override
+            public Object getDispatchKey(JmsMessage message) {
+                return null;
+            }
+        };
+
+        consumer.setDispatchKeyExtractor(extractor);
+        assertSame(extractor, consumer.getDispatchKeyExtractor());
+        consumer.setDispatchKeyExtractor(null);
+        assertSame(defaultExtractor, consumer.getDispatchKeyExtractor());
+    }
+
+    @Test(timeout = 30000)
+    public void testDispatcherHintSetWhileConsumerOpen() throws Exception {
+        JmsMessageConsumer consumer = (JmsMessageConsumer) receiver;
+        assertNotNull(consumer.getConsumerId().getDispatcherHint());
+        consumer.close();
+        assertNull(consumer.getConsumerId().getDispatcherHint());
+    }
 }
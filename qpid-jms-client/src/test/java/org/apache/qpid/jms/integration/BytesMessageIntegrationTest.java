@@ -19,22 +19,35 @@
 package org.apache.qpid.jms.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.BytesMessage;
 import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
 
+import org.apache.qpid.jms.message.JmsBytesMessage;
 import org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
@@ -50,6 +63,7 @@ import org.apache.qpid.jms.test.testpeer.matchers.types.EncodedDataMatcher;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.DescribedType;
 import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.junit.Test;
 
 public class BytesMessageIntegrationTest extends QpidJmsTestCase {
@@ -88,6 +102,249 @@ public class BytesMessageIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testSendBytesMessageWithStreamedBody() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            byte[] content = new byte[150000];
+            for (int i = 0; i < content.length; ++i) {
+                content[i] = (byte) i;
+            }
+
+            MessageAnnotationsSectionMatcher msgAnnotationsMatcher = new MessageAnnotationsSectionMatcher(true);
+            msgAnnotationsMatcher.withEntry(Symbol.valueOf(AmqpMessageSupport.JMS_MSG_TYPE), equalTo(AmqpMessageSupport.JMS_BYTES_MESSAGE));
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true).withDurable(equalTo(true)));
+            messageMatcher.setMessageAnnotationsMatcher(msgAnnotationsMatcher);
+            messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+            messageMatcher.setMessageContentMatcher(new EncodedDataMatcher(new Binary(content)));
+
+            // The leading sections, three chunks of the body and the closing frame.
+            testPeer.expectTransferInFrames(5, messageMatcher);
+
+            JmsBytesMessage message = (JmsBytesMessage) session.createBytesMessage();
+            message.setBodyStream(new ByteArrayInputStream(content), content.length);
+
+            producer.send(message);
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendBytesMessageWithStreamedBodyWaitsForSessionWindow() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttachWithIncomingWindow(UnsignedInteger.ONE);
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            byte[] content = new byte[150000];
+            for (int i = 0; i < content.length; ++i) {
+                content[i] = (byte) i;
+            }
+
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true).withDurable(equalTo(true)));
+            messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+            messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+            messageMatcher.setMessageContentMatcher(new EncodedDataMatcher(new Binary(content)));
+
+            // Each frame is only sent once the remote has opened the window for it.
+            testPeer.expectTransferInFramesOneWindowAtATime(5, messageMatcher);
+
+            JmsBytesMessage message = (JmsBytesMessage) session.createBytesMessage();
+            message.setBodyStream(new ByteArrayInputStream(content), content.length);
+
+            producer.send(message);
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendBytesMessageWithFailingBodyStreamDropsConnection() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            final CountDownLatch connectionFailed = new CountDownLatch(1);
+            connection.setExceptionListener(new ExceptionListener() {
+
+                @Override
+                public void onException(JMSException exception) {
+                    connectionFailed.countDown();
+                }
+            });
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            InputStream failing = new InputStream() {
+
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Body source failed");
+                }
+            };
+
+            // The message is never finished, the connection is dropped instead so that the
+            // remote discards the part of it that was sent.
+            testPeer.expectPartialTransfer(notNullValue(Binary.class));
+
+            JmsBytesMessage message = (JmsBytesMessage) session.createBytesMessage();
+            message.setBodyStream(failing, 1000);
+
+            try {
+                producer.send(message);
+                fail("Send should fail when the body stream cannot be read");
+            } catch (JMSException jmse) {
+            }
+
+            assertTrue("Connection was not dropped", connectionFailed.await(5, TimeUnit.SECONDS));
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendsWaitBehindStreamedSendWithoutHoldingUpConnection() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            final Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            final MessageProducer producer = session.createProducer(queue);
+
+            byte[] content = new byte[1000];
+            Arrays.fill(content, (byte) 'x');
+
+            final CountDownLatch readStarted = new CountDownLatch(1);
+            final CountDownLatch bodyReleased = new CountDownLatch(1);
+            InputStream gated = new ByteArrayInputStream(content) {
+
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    readStarted.countDown();
+                    try {
+                        bodyReleased.await();
+                    } catch (InterruptedException e) {
+                        return -1;
+                    }
+
+                    return super.read(b, off, len);
+                }
+            };
+
+            // The leading sections go out before the body is read and a new session can be
+            // begun while the body read is blocked, the rest of the body and then the next
+            // message follow once the body is released.
+            testPeer.expectPartialTransfer(notNullValue(Binary.class));
+            testPeer.expectBegin(true);
+            testPeer.expectTransferInFrames(2, equalTo(new Binary(content)));
+            testPeer.expectTransfer(new TransferPayloadCompositeMatcher());
+
+            final JmsBytesMessage streamed = (JmsBytesMessage) session.createBytesMessage();
+            streamed.setBodyStream(gated, content.length);
+            final BytesMessage plain = session.createBytesMessage();
+
+            final CountDownLatch streamedSent = new CountDownLatch(1);
+            final CountDownLatch plainSent = new CountDownLatch(1);
+            Thread streamedSender = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        producer.send(streamed);
+                        streamedSent.countDown();
+                    } catch (JMSException e) {
+                    }
+                }
+            });
+            streamedSender.start();
+
+            assertTrue("Body was not read", readStarted.await(5, TimeUnit.SECONDS));
+            connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+            Thread plainSender = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        producer.send(plain);
+                        plainSent.countDown();
+                    } catch (JMSException e) {
+                    }
+                }
+            });
+            plainSender.start();
+
+            assertFalse("Send should wait for the streamed send", plainSent.await(100, TimeUnit.MILLISECONDS));
+
+            bodyReleased.countDown();
+
+            assertTrue("Streamed send did not complete", streamedSent.await(5, TimeUnit.SECONDS));
+            assertTrue("Send did not complete", plainSent.await(5, TimeUnit.SECONDS));
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendBytesMessageWithStreamedBodyTwiceFailsWithoutClosingProducer() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            testPeer.expectBegin(true);
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            byte[] content = new byte[1000];
+            Arrays.fill(content, (byte) 'x');
+
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true).withDurable(equalTo(true)));
+            messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+            messageMatcher.setPropertiesMatcher(new MessagePropertiesSectionMatcher(true));
+            messageMatcher.setMessageContentMatcher(new EncodedDataMatcher(new Binary(content)));
+
+            testPeer.expectTransferInFrames(3, messageMatcher);
+
+            JmsBytesMessage message = (JmsBytesMessage) session.createBytesMessage();
+            message.setBodyStream(new ByteArrayInputStream(content), content.length);
+
+            producer.send(message);
+
+            try {
+                producer.send(message);
+                fail("The body stream should only be sent once");
+            } catch (javax.jms.IllegalStateException ise) {
+            }
+
+            // The producer remains usable.
+            testPeer.expectTransfer(new TransferPayloadCompositeMatcher());
+            producer.send(session.createBytesMessage());
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
     @Test(timeout = 5000)
     public void testReceiveBasicBytesMessageWithContentUsingDataSection() throws Exception {
         try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
@@ -339,4 +596,104 @@ public class BytesMessageIntegrationTest extends QpidJmsTestCase {
             testPeer.waitForAllHandlersToComplete(3000);
         }
     }
+
+    @Test(timeout = 10000)
+    public void testStreamedMessagesCompleteWhenListenerDoesNotReadBody() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.largeMessageThreshold=1024");
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            byte[] body = new byte[8 * 1024];
+            Arrays.fill(body, (byte) 'x');
+
+            // The streamed body is held back through the incoming window of the whole session.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransferInFrames(body, 2, 8,
+                                                              equalTo(UnsignedInteger.valueOf(2)));
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            final CountDownLatch received = new CountDownLatch(2);
+            final AtomicInteger partialReads = new AtomicInteger();
+            MessageConsumer consumer = session.createConsumer(queue);
+            consumer.setMessageListener(new MessageListener() {
+
+                @Override
+                public void onMessage(Message message) {
+                    try {
+                        // The first body is left unread and only a part of the second is read.
+                        if (received.getCount() == 1) {
+                            byte[] part = new byte[16];
+                            if (((BytesMessage) message).readBytes(part) == part.length) {
+                                partialReads.incrementAndGet();
+                            }
+                        }
+                    } catch (JMSException e) {
+                    }
+
+                    received.countDown();
+                }
+            });
+
+            connection.start();
+
+            assertTrue("Messages were not all received", received.await(5, TimeUnit.SECONDS));
+            assertEquals(1, partialReads.get());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStreamedMessageBodyNotReadIsDiscardedOnNextReceive() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.largeMessageThreshold=1024");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            byte[] body = new byte[8 * 1024];
+            Arrays.fill(body, (byte) 'x');
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransferInFrames(body, 2, 8,
+                                                              equalTo(UnsignedInteger.valueOf(2)));
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            BytesMessage first = (BytesMessage) consumer.receive(3000);
+            assertNotNull("First message was not received", first);
+            byte[] part = new byte[16];
+            assertEquals(part.length, first.readBytes(part));
+
+            BytesMessage second = (BytesMessage) consumer.receive(3000);
+            assertNotNull("Second message was not received", second);
+
+            byte[] content = new byte[body.length];
+            int read = 0;
+            int count;
+            while ((count = second.readBytes(content, content.length - read)) > 0) {
+                read += count;
+                if (read == content.length) {
+                    break;
+                }
+            }
+            assertEquals(body.length, read);
+
+            try {
+                first.readBytes(part);
+                fail("The unread remainder of the first body should have been discarded");
+            } catch (JMSException ex) {
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
 }
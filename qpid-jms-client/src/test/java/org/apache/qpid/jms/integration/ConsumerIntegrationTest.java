@@ -18,18 +18,44 @@
  */
 package org.apache.qpid.jms.integration;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javax.jms.Connection;
 import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.Queue;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
+import org.apache.qpid.jms.JmsConnection;
+import org.apache.qpid.jms.JmsMessageConsumer;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.Wait;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.basictypes.AmqpError;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.AmqpValueDescribedType;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.ApplicationPropertiesDescribedType;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.PropertiesDescribedType;
+import org.apache.qpid.jms.test.testpeer.matchers.ModifiedMatcher;
+import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.junit.Test;
 
 public class ConsumerIntegrationTest extends QpidJmsTestCase {
@@ -97,4 +123,652 @@ public class ConsumerIntegrationTest extends QpidJmsTestCase {
             consumer.close();
         }
     }
+
+    @Test(timeout = 10000)
+    public void testRecoverRedeliversOriginalHeadersWithZeroCopyDelivery() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.zeroCopyDelivery=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"));
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            Message message = consumer.receive(3000);
+            assertNotNull("Expected a message to arrive", message);
+            assertNull(message.getJMSType());
+
+            message.setJMSType("changed");
+            message.setJMSCorrelationID("changed");
+            message.setJMSPriority(9);
+
+            session.recover();
+
+            Message redelivered = consumer.receive(3000);
+            assertNotNull("Expected the message to be redelivered", redelivered);
+            assertTrue(redelivered.getJMSRedelivered());
+            assertNull(redelivered.getJMSType());
+            assertNull(redelivered.getJMSCorrelationID());
+            assertEquals(Message.DEFAULT_PRIORITY, redelivered.getJMSPriority());
+            assertEquals("content", ((TextMessage) redelivered).getText());
+
+            // The application's instance keeps its own changes.
+            assertEquals("changed", message.getJMSType());
+
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            redelivered.acknowledge();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveMessagesWithMessageRecycling() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.lazyMessageDecode=true&jms.messageRecycling=true");
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            int messageCount = 5;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            List<Message> received = new ArrayList<Message>();
+            for (int i = 0; i < messageCount; i++) {
+                Message message = consumer.receive(3000);
+                assertNotNull("Expected a message to arrive", message);
+                received.add(message);
+            }
+
+            // The copies handed out must be unaffected by any reuse of the delivered messages.
+            for (Message message : received) {
+                assertTrue(message instanceof TextMessage);
+                assertEquals("content", ((TextMessage) message).getText());
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveBatchOfMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            int messageCount = 3;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+            List<Message> received = new ArrayList<Message>();
+            while (received.size() < messageCount) {
+                List<Message> batch = consumer.receive(messageCount - received.size(), 3000);
+                assertFalse("Expected a message to arrive", batch.isEmpty());
+                received.addAll(batch);
+            }
+
+            assertEquals(messageCount, received.size());
+            for (Message message : received) {
+                assertTrue(message instanceof TextMessage);
+                assertEquals("content", ((TextMessage) message).getText());
+            }
+
+            assertTrue(consumer.receiveNoWait(messageCount).isEmpty());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMessageListenerReceivesAllPrefetchedMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            int messageCount = 10;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            final CountDownLatch received = new CountDownLatch(messageCount);
+            MessageConsumer consumer = session.createConsumer(queue);
+            consumer.setMessageListener(new MessageListener() {
+
+                @Override
+                public void onMessage(Message message) {
+                    received.countDown();
+                }
+            });
+
+            assertTrue("Not all messages were delivered", received.await(5, TimeUnit.SECONDS));
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelDispatchKeepsMessagesWithSameGroupInOrder() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            int messageCount = 10;
+            PropertiesDescribedType properties = new PropertiesDescribedType();
+            properties.setGroupId("account-1");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, properties, null, new AmqpValueDescribedType("content"), messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final CountDownLatch received = new CountDownLatch(messageCount);
+                final AtomicBoolean inListener = new AtomicBoolean();
+                final AtomicBoolean overlapped = new AtomicBoolean();
+
+                JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+                consumer.setParallelDispatch(executor, 4);
+                consumer.setMessageListener(new MessageListener() {
+
+                    @Override
+                    public void onMessage(Message message) {
+                        if (!inListener.compareAndSet(false, true)) {
+                            overlapped.set(true);
+                        }
+                        Thread.yield();
+                        inListener.set(false);
+                        received.countDown();
+                    }
+                });
+
+                assertTrue("Not all messages were delivered", received.await(5, TimeUnit.SECONDS));
+                assertFalse("Messages in the same group were delivered concurrently", overlapped.get());
+
+                testPeer.waitForAllHandlersToComplete(3000);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelDispatchHoldsCreditWhileLanesAreBusy() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(1);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // The first message is handed to a lane and its credit given back, the second
+            // must then wait in the consumer without any more credit being granted.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1,
+                                                       false, false, equalTo(UnsignedInteger.ONE), 2);
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final CountDownLatch release = new CountDownLatch(1);
+                final CountDownLatch received = new CountDownLatch(2);
+
+                JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+                consumer.setParallelDispatch(executor, 2);
+                consumer.setMessageListener(new MessageListener() {
+
+                    @Override
+                    public void onMessage(Message message) {
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                        }
+                        received.countDown();
+                    }
+                });
+
+                testPeer.waitForAllHandlersToComplete(3000);
+
+                // Credit is only granted again once the first lane is done with its message.
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+                testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.ONE));
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+                assertEquals(2, received.getCount());
+                release.countDown();
+
+                assertTrue("Not all messages were delivered", received.await(5, TimeUnit.SECONDS));
+
+                testPeer.waitForAllHandlersToComplete(3000);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseWaitsForParallelDispatchLanes() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final CountDownLatch inListener = new CountDownLatch(1);
+                final CountDownLatch release = new CountDownLatch(1);
+
+                final JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+                consumer.setParallelDispatch(executor, 2);
+                consumer.setMessageListener(new MessageListener() {
+
+                    @Override
+                    public void onMessage(Message message) {
+                        inListener.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                });
+
+                assertTrue("Message was not delivered", inListener.await(5, TimeUnit.SECONDS));
+
+                // The link is only closed once the listener returns, its message is not
+                // accepted and is settled without an outcome as the link goes away.
+                testPeer.expectDetach(true, true, true);
+                testPeer.expectDisposition(true, nullValue());
+
+                final CountDownLatch closed = new CountDownLatch(1);
+                Thread closer = new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            consumer.close();
+                        } catch (JMSException e) {
+                        }
+                        closed.countDown();
+                    }
+                });
+                closer.start();
+
+                assertFalse("Close did not wait for the listener", closed.await(100, TimeUnit.MILLISECONDS));
+                release.countDown();
+                assertTrue("Close did not complete", closed.await(5, TimeUnit.SECONDS));
+
+                testPeer.waitForAllHandlersToComplete(3000);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelDispatchLanesCanStopAndCloseConcurrently() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            final Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // Both messages are unkeyed and so land on different lanes.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 2);
+            testPeer.expectDetach(true, true, true);
+            testPeer.expectDisposition(true, nullValue());
+            testPeer.expectDisposition(true, nullValue());
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final CountDownLatch inListeners = new CountDownLatch(2);
+                final CountDownLatch stopping = new CountDownLatch(1);
+                final CountDownLatch done = new CountDownLatch(2);
+                final AtomicBoolean stopper = new AtomicBoolean(true);
+
+                final JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+                consumer.setParallelDispatch(executor, 2);
+                consumer.setMessageListener(new MessageListener() {
+
+                    @Override
+                    public void onMessage(Message message) {
+                        try {
+                            inListeners.countDown();
+                            inListeners.await(5, TimeUnit.SECONDS);
+
+                            // One lane stops the connection, which waits for the other lane,
+                            // while the other lane closes the consumer and waits in turn.
+                            if (stopper.getAndSet(false)) {
+                                stopping.countDown();
+                                connection.stop();
+                            } else {
+                                stopping.await(5, TimeUnit.SECONDS);
+                                Thread.sleep(50);
+                                consumer.close();
+                            }
+                            done.countDown();
+                        } catch (Exception e) {
+                        }
+                    }
+                });
+
+                assertTrue("Lanes did not both return from stop and close", done.await(5, TimeUnit.SECONDS));
+
+                testPeer.waitForAllHandlersToComplete(3000);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConnectionStopRevokesAndStartRestoresCredit() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlow();
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            // Stopping the connection should drain the consumer's credit
+            testPeer.expectLinkFlow(true, true, greaterThan(UnsignedInteger.ZERO));
+            connection.stop();
+
+            // Starting it again should grant credit so the peer can resume sending
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+            connection.start();
+
+            Message message = consumer.receive(3000);
+            assertNotNull(message);
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMessagesArrivingBeforeStartAreHeldByConsumer() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            int messageCount = 3;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), messageCount);
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            MessageConsumer consumer = session.createConsumer(queue);
+            assertNull(consumer.receiveNoWait());
+
+            connection.start();
+
+            for (int i = 0; i < messageCount; i++) {
+                assertNotNull(consumer.receive(3000));
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConnectionStartRestoresOnlyCreditNotTakenByHeldMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(10);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // Let three messages arrive which the application does not consume yet
+            int messageCount = 3;
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"), messageCount);
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            // Each stop and start cycle should only restore the credit the held messages do not use
+            for (int cycle = 0; cycle < 2; cycle++) {
+                testPeer.expectLinkFlow(true, true, greaterThan(UnsignedInteger.ZERO));
+                connection.stop();
+
+                testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(10 - messageCount)));
+                connection.start();
+
+                testPeer.waitForAllHandlersToComplete(3000);
+            }
+
+            for (int i = 0; i < messageCount; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+            for (int i = 0; i < messageCount; i++) {
+                assertNotNull(consumer.receive(3000));
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testLocalMessageSelectionFiltersNonMatchingMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).setLocalMessageSelection(true);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            ApplicationPropertiesDescribedType appProperties = new ApplicationPropertiesDescribedType();
+            appProperties.setApplicationProperty("color", "blue");
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, appProperties, new AmqpValueDescribedType("content"), 1);
+            testPeer.expectDisposition(true, new ModifiedMatcher().withUndeliverableHere(equalTo(true)));
+
+            MessageConsumer consumer = session.createConsumer(queue, "color = 'red'");
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            assertNull(consumer.receiveNoWait());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testLocalMessageSelectionWithZeroPrefetchRenewsWaitingPull() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).setLocalMessageSelection(true);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(0);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            MessageConsumer consumer = session.createConsumer(queue, "color = 'red'");
+
+            ApplicationPropertiesDescribedType blue = new ApplicationPropertiesDescribedType();
+            blue.setApplicationProperty("color", "blue");
+            ApplicationPropertiesDescribedType red = new ApplicationPropertiesDescribedType();
+            red.setApplicationProperty("color", "red");
+
+            // The filtered message answers the pull while the receive still waits, so it is renewed.
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, blue, new AmqpValueDescribedType("content"),
+                                                       1, false, false, equalTo(UnsignedInteger.ONE), 1);
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, red, new AmqpValueDescribedType("content"),
+                                                       1, false, false, equalTo(UnsignedInteger.ONE), 2);
+            testPeer.expectDisposition(true, new ModifiedMatcher().withUndeliverableHere(equalTo(true)));
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            assertNotNull(consumer.receive(3000));
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testLocalMessageSelectionWithZeroPrefetchDoesNotRenewWithdrawnPull() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).setLocalMessageSelection(true);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(0);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            MessageConsumer consumer = session.createConsumer(queue, "color = 'red'");
+
+            ApplicationPropertiesDescribedType appProperties = new ApplicationPropertiesDescribedType();
+            appProperties.setApplicationProperty("color", "blue");
+
+            // The drain answers with a filtered message, no credit may be granted once it is rejected.
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, appProperties, new AmqpValueDescribedType("content"),
+                                                       1, true, true, equalTo(UnsignedInteger.ONE), 1);
+            testPeer.expectDisposition(true, new ModifiedMatcher().withUndeliverableHere(equalTo(true)));
+
+            assertNull(consumer.receiveNoWait());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTimedReceiveWithZeroPrefetchDrainsCreditOnTimeout() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(0);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.ONE));
+            testPeer.expectLinkFlow(true, true, equalTo(UnsignedInteger.ONE));
+
+            assertNull(consumer.receive(50));
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveNoWaitWithZeroPrefetchDrainsCredit() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(0);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                                                       1, true, true, equalTo(UnsignedInteger.ONE), 1);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            Message message = consumer.receiveNoWait();
+            assertNotNull(message);
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBatchReceiveWithZeroPrefetchRequestsBatchCredit() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer);
+            ((JmsConnection) connection).getPrefetchPolicy().setAll(0);
+            connection.start();
+
+            testPeer.expectBegin(true);
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            testPeer.expectReceiverAttach();
+            JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+            int batchSize = 5;
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                                                       batchSize, true, true, equalTo(UnsignedInteger.valueOf(batchSize)), 1);
+            for (int i = 0; i < batchSize; i++) {
+                testPeer.expectDispositionThatIsAcceptedAndSettled();
+            }
+
+            List<Message> messages = consumer.receiveNoWait(batchSize);
+            assertEquals(batchSize, messages.size());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
 }
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -106,6 +107,22 @@ public class JmsBytesMessageTest {
         assertEquals("Message reports unexpected length", content.length, bytesMessage.getBodyLength());
     }
 
+    @Test
+    public void testRedispatchedMessageReadsFromStartOfBody() throws Exception {
+        byte[] content = "myBytesData".getBytes();
+        JmsDefaultBytesMessageFacade facade = new JmsDefaultBytesMessageFacade(content);
+
+        JmsBytesMessage bytesMessage = new JmsBytesMessage(facade);
+        bytesMessage.onDispatch();
+        bytesMessage.readBytes(new byte[4]);
+
+        bytesMessage.onDispatch();
+
+        byte[] receivedBytes = new byte[content.length];
+        assertEquals(content.length, bytesMessage.readBytes(receivedBytes));
+        assertTrue(Arrays.equals(content, receivedBytes));
+    }
+
     /**
      * Test that attempting to write bytes to a received message (without calling {@link BytesMessage#clearBody()} first)
      * causes a {@link MessageNotWriteableException} to be thrown due to being read-only.
@@ -131,6 +148,44 @@ public class JmsBytesMessageTest {
         bytesMessage.readBytes(receivedBytes);
     }
 
+    /**
+     * Test that the body of a message set from a stream replaces what was written and is
+     * read back once the message is reset.
+     */
+    @Test
+    public void testSetBodyStreamReplacesWrittenContent() throws Exception {
+        byte[] content = "myBytesData".getBytes();
+        JmsBytesMessage bytesMessage = factory.createBytesMessage();
+        bytesMessage.writeBytes("discarded".getBytes());
+        bytesMessage.setBodyStream(new ByteArrayInputStream(content), content.length);
+        bytesMessage.reset();
+
+        assertEquals(content.length, bytesMessage.getBodyLength());
+        byte[] receivedBytes = new byte[content.length];
+        assertEquals(content.length, bytesMessage.readBytes(receivedBytes));
+        assertTrue(Arrays.equals(content, receivedBytes));
+    }
+
+    /**
+     * Test that setting the body of a received message from a stream (without calling
+     * {@link BytesMessage#clearBody()} first) causes a {@link MessageNotWriteableException}.
+     */
+    @Test(expected = MessageNotWriteableException.class)
+    public void testReceivedBytesMessageThrowsMessageNotWriteableExceptionOnSetBodyStream() throws Exception {
+        byte[] content = "myBytesData".getBytes();
+        JmsDefaultBytesMessageFacade facade = new JmsDefaultBytesMessageFacade(content);
+
+        JmsBytesMessage bytesMessage = new JmsBytesMessage(facade);
+        bytesMessage.onDispatch();
+        bytesMessage.setBodyStream(new ByteArrayInputStream(content), content.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetBodyStreamWithNegativeLengthThrows() throws Exception {
+        JmsBytesMessage bytesMessage = factory.createBytesMessage();
+        bytesMessage.setBodyStream(new ByteArrayInputStream(new byte[0]), -1);
+    }
+
     /**
      * Test that calling {@link BytesMessage#clearBody()} causes a received
      * message to become writable
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
+import org.apache.qpid.jms.message.facade.defaults.JmsDefaultMessageFactory;
+import org.apache.qpid.jms.selector.SelectorParser;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class JmsMessageFilterableTest {
+
+    private final JmsMessageFactory factory = new JmsDefaultMessageFactory();
+
+    @Test
+    public void testGetMessage() throws JMSException {
+        JmsMessage message = factory.createMessage();
+        assertSame(message, new JmsMessageFilterable(message).getMessage());
+    }
+
+    @Test
+    public void testGetApplicationProperty() throws JMSException {
+        JmsMessage message = factory.createMessage();
+        message.setStringProperty("color", "red");
+        message.setIntProperty("size", 5);
+
+        JmsMessageFilterable filterable = new JmsMessageFilterable(message);
+        assertEquals("red", filterable.getProperty("color"));
+        assertEquals(5, filterable.getProperty("size"));
+        assertNull(filterable.getProperty("weight"));
+    }
+
+    @Test
+    public void testGetHeaderProperty() throws JMSException {
+        JmsMessage message = factory.createMessage();
+        message.setJMSType("order");
+        message.setJMSPriority(7);
+        message.setJMSDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        JmsMessageFilterable filterable = new JmsMessageFilterable(message);
+        assertEquals("order", filterable.getProperty(JmsMessageSupport.JMS_TYPE));
+        assertEquals(7, filterable.getProperty(JmsMessageSupport.JMS_PRIORITY));
+        assertEquals("NON_PERSISTENT", filterable.getProperty(JmsMessageSupport.JMS_DELIVERY_MODE));
+    }
+
+    @Test
+    public void testGetPropertyThatFailsIsNull() throws JMSException {
+        JmsMessageFacade facade = Mockito.mock(JmsMessageFacade.class);
+        Mockito.when(facade.getProperty(Mockito.anyString())).thenThrow(new JMSException("Expected"));
+
+        JmsMessageFilterable filterable = new JmsMessageFilterable(new JmsMessage(facade));
+        assertNull(filterable.getProperty("color"));
+    }
+
+    @Test
+    public void testSelectorMatches() throws Exception {
+        JmsMessage message = factory.createMessage();
+        message.setStringProperty("color", "red");
+        message.setJMSPriority(7);
+
+        JmsMessageFilterable filterable = new JmsMessageFilterable(message);
+        assertTrue(SelectorParser.parse("color = 'red' AND JMSPriority > 4").matches(filterable));
+        assertFalse(SelectorParser.parse("color = 'blue'").matches(filterable));
+        assertFalse(SelectorParser.parse("size > 1").matches(filterable));
+    }
+}
@@ -81,6 +81,14 @@ public class JmsMessagePropertyIntercepterTest {
         Mockito.verify(message).propertyExists(Mockito.anyString());
     }
 
+    @Test
+    public void testGetPropertyWithJMSPrefixedNonInterceptedNameCallsIntoFacade() throws JMSException {
+        JmsMessageFacade message = Mockito.mock(JmsMessageFacade.class);
+        Mockito.when(message.getProperty("JMSCustomProperty")).thenReturn("value");
+        assertEquals("value", JmsMessagePropertyIntercepter.getProperty(message, "JMSCustomProperty"));
+        Mockito.verify(message).getProperty("JMSCustomProperty");
+    }
+
     //---------- JMSDestination --------------------------------------------------//
 
     @Test
@@ -102,6 +102,70 @@ public class JmsMessageTest {
         assertTrue(msg.isReadOnlyProperties());
     }
 
+    @Test
+    public void testClearBodyCopiesSharedMessageIntoEnvelope() throws Exception {
+        JmsMessage msg = factory.createMessage();
+        msg.setStringProperty("test", "value");
+        msg.onDispatch();
+
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(1);
+        envelope.setMessage(msg);
+        msg.setSharedEnvelope(envelope);
+
+        msg.clearBody();
+
+        JmsMessage copy = envelope.getMessage();
+        assertNotNull(copy);
+        assertFalse(copy == msg);
+        assertTrue(copy.isReadOnlyBody());
+        assertFalse(msg.isReadOnlyBody());
+        assertEquals("value", copy.getStringProperty("test"));
+    }
+
+    @Test
+    public void testClearPropertiesCopiesSharedMessageIntoEnvelope() throws Exception {
+        JmsMessage msg = factory.createMessage();
+        msg.setStringProperty("test", "value");
+        msg.onDispatch();
+
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(1);
+        envelope.setMessage(msg);
+        msg.setSharedEnvelope(envelope);
+
+        msg.clearProperties();
+
+        assertNull(msg.getStringProperty("test"));
+        assertFalse(envelope.getMessage() == msg);
+        assertEquals("value", envelope.getMessage().getStringProperty("test"));
+
+        // Only the first modification should result in a copy.
+        JmsMessage copy = envelope.getMessage();
+        msg.clearBody();
+        assertTrue(copy == envelope.getMessage());
+    }
+
+    @Test
+    public void testHeaderSettersCopySharedMessageIntoEnvelope() throws Exception {
+        JmsMessage msg = factory.createMessage();
+        msg.setJMSType("original");
+        msg.setJMSPriority(4);
+        msg.onDispatch();
+
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(1);
+        envelope.setMessage(msg);
+        msg.setSharedEnvelope(envelope);
+
+        msg.setJMSType("changed");
+        msg.setJMSPriority(9);
+
+        JmsMessage copy = envelope.getMessage();
+        assertFalse(copy == msg);
+        assertEquals("original", copy.getJMSType());
+        assertEquals(4, copy.getJMSPriority());
+        assertEquals("changed", msg.getJMSType());
+        assertEquals(9, msg.getJMSPriority());
+    }
+
     @Test
     public void testToString() throws Exception {
         JmsMessage msg = factory.createMessage();
@@ -28,6 +28,7 @@ import java.io.OutputStream;
 import javax.jms.IllegalStateException;
 import javax.jms.JMSException;
 
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.facade.JmsBytesMessageFacade;
 
 /**
@@ -139,7 +140,25 @@ public final class JmsDefaultBytesMessageFacade extends JmsDefaultMessageFacade
     }
 
     @Override
-    public int getBodyLength() {
+    public long getBodyLength() {
         return content.readableBytes();
     }
+
+    @Override
+    public void setBodyStream(InputStream stream, long length) throws JMSException {
+        clearBody();
+
+        ByteBuf buffer = Unpooled.buffer((int) length);
+        try {
+            while (buffer.readableBytes() < length) {
+                if (buffer.writeBytes(stream, (int) length - buffer.readableBytes()) < 0) {
+                    throw new JMSException("Body stream ended before the given length was read");
+                }
+            }
+        } catch (IOException e) {
+            throw JmsExceptionSupport.create(e);
+        }
+
+        content = buffer;
+    }
 }
@@ -80,6 +80,10 @@ public class JmsDefaultMessageFacade implements JmsMessageFacade {
         return copy;
     }
 
+    @Override
+    public void release() {
+    }
+
     protected void copyInto(JmsDefaultMessageFacade target) {
         target.priority = this.priority;
         target.groupSequence = this.groupSequence;
@@ -135,6 +139,10 @@ public class JmsDefaultMessageFacade implements JmsMessageFacade {
     public void onDispatch() throws JMSException {
     }
 
+    @Override
+    public void onConsumed() {
+    }
+
     @Override
     public boolean isEmpty() {
         return true;
@@ -158,4 +158,18 @@ public class JmsConsumerIdTest {
         assertEquals(id2.hashCode(), id2.hashCode());
         assertFalse(id1.hashCode() == id2.hashCode());
     }
+
+    @Test
+    public void testDispatcherHint() {
+        JmsConsumerId id = new JmsConsumerId(firstId, 1);
+        assertNull(id.getDispatcherHint());
+
+        Object hint = new Object();
+        id.setDispatcherHint(hint);
+        assertSame(hint, id.getDispatcherHint());
+
+        JmsConsumerId copy = new JmsConsumerId(id);
+        assertNull(copy.getDispatcherHint());
+        assertEquals(id, copy);
+    }
 }
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test the handoff of a streamed send body from its reading thread.
+ */
+public class AmqpBodySourceReaderTest extends QpidJmsTestCase {
+
+    @Test(timeout = 10000)
+    public void testBodyIsHandedOverInChunks() throws Exception {
+        byte[] body = new byte[250];
+        for (int i = 0; i < body.length; ++i) {
+            body[i] = (byte) i;
+        }
+
+        final Semaphore readyChunks = new Semaphore(0);
+        AmqpBodySourceReader reader = new AmqpBodySourceReader(new ByteArrayInputStream(body), body.length, 100, new Runnable() {
+
+            @Override
+            public void run() {
+                readyChunks.release();
+            }
+        });
+
+        Thread thread = new Thread(reader);
+        thread.start();
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int[] expectedSizes = new int[] { 100, 100, 50 };
+        for (int expected : expectedSizes) {
+            assertTrue("Chunk was not read", readyChunks.tryAcquire(5, TimeUnit.SECONDS));
+            byte[] chunk = reader.take();
+            assertEquals(expected, chunk.length);
+            received.write(chunk);
+        }
+
+        thread.join(5000);
+        assertNull(reader.take());
+        assertArrayEquals(body, received.toByteArray());
+    }
+
+    @Test(timeout = 10000)
+    public void testReadsOnlyOneChunkAhead() throws Exception {
+        final Semaphore readyChunks = new Semaphore(0);
+        final CountingInputStream source = new CountingInputStream(new byte[500]);
+        AmqpBodySourceReader reader = new AmqpBodySourceReader(source, 500, 100, new Runnable() {
+
+            @Override
+            public void run() {
+                readyChunks.release();
+            }
+        });
+
+        new Thread(reader).start();
+
+        // One chunk is ready to be taken and the next is read and then held back.
+        assertTrue(readyChunks.tryAcquire(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(200, source.getCount());
+
+        reader.take();
+        assertTrue(readyChunks.tryAcquire(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(300, source.getCount());
+
+        reader.cancel();
+        assertTrue(source.isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailureIsReportedOnTake() throws Exception {
+        final CountDownLatch notified = new CountDownLatch(1);
+        AmqpBodySourceReader reader = new AmqpBodySourceReader(new ByteArrayInputStream(new byte[10]), 100, 100, new Runnable() {
+
+            @Override
+            public void run() {
+                notified.countDown();
+            }
+        });
+
+        new Thread(reader).start();
+
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        try {
+            reader.take();
+            fail("Should report the stream ending early");
+        } catch (EOFException eof) {
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelStopsReaderWaitingForTake() throws Exception {
+        final Semaphore readyChunks = new Semaphore(0);
+        CountingInputStream source = new CountingInputStream(new byte[500]);
+        AmqpBodySourceReader reader = new AmqpBodySourceReader(source, 500, 100, new Runnable() {
+
+            @Override
+            public void run() {
+                readyChunks.release();
+            }
+        });
+
+        Thread thread = new Thread(reader);
+        thread.start();
+
+        assertTrue(readyChunks.tryAcquire(5, TimeUnit.SECONDS));
+        reader.cancel();
+        thread.join(5000);
+
+        assertTrue(source.isClosed());
+        assertNull(reader.take());
+    }
+
+    private static class CountingInputStream extends ByteArrayInputStream {
+
+        private boolean closed;
+
+        public CountingInputStream(byte[] content) {
+            super(content);
+        }
+
+        public synchronized int getCount() {
+            return pos;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+        }
+    }
+}
@@ -127,4 +127,40 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
         assertEquals(true, amqpProvider.isPresettleConsumers());
         assertEquals(true, amqpProvider.isPresettleProducers());
     }
+
+    @Test(timeout = 10000)
+    public void testCreateProviderAppliesObjectMessageCodecOption() throws IOException, Exception {
+        URI configuredURI = new URI(peerURI.toString() + "?amqp.objectMessageCodec=externalizable");
+        Provider provider = AmqpProviderFactory.create(configuredURI);
+        assertNotNull(provider);
+        assertTrue(provider instanceof AmqpProvider);
+
+        AmqpProvider amqpProvider = (AmqpProvider) provider;
+
+        assertEquals("externalizable", amqpProvider.getObjectMessageCodec());
+    }
+
+    @Test(timeout = 10000, expected=IllegalArgumentException.class)
+    public void testCreateProviderFailsWithUnknownObjectMessageCodec() throws IOException, Exception {
+        URI configuredURI = new URI(peerURI.toString() + "?amqp.objectMessageCodec=unknown");
+        AmqpProviderFactory.create(configuredURI);
+    }
+
+    @Test(timeout = 10000)
+    public void testCreateProviderAppliesLargeMessageThresholdOption() throws IOException, Exception {
+        URI configuredURI = new URI(peerURI.toString() + "?amqp.largeMessageThreshold=65536");
+        Provider provider = AmqpProviderFactory.create(configuredURI);
+        assertNotNull(provider);
+        assertTrue(provider instanceof AmqpProvider);
+
+        AmqpProvider amqpProvider = (AmqpProvider) provider;
+
+        assertEquals(65536, amqpProvider.getLargeMessageThreshold());
+    }
+
+    @Test(timeout = 10000, expected=IllegalArgumentException.class)
+    public void testCreateProviderFailsWithNegativeLargeMessageThreshold() throws IOException, Exception {
+        URI configuredURI = new URI(peerURI.toString() + "?amqp.largeMessageThreshold=-1");
+        AmqpProviderFactory.create(configuredURI);
+    }
 }
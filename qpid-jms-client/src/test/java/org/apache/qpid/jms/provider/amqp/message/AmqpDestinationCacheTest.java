@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import org.apache.qpid.jms.JmsDestination;
+import org.apache.qpid.jms.JmsQueue;
+import org.apache.qpid.jms.JmsTopic;
+import org.junit.Test;
+
+public class AmqpDestinationCacheTest {
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCreateWithInvalidSize() {
+        new AmqpDestinationCache(0);
+    }
+
+    @Test
+    public void testQueuesAndTopicsAreCachedSeparately() {
+        AmqpDestinationCache cache = new AmqpDestinationCache();
+
+        JmsQueue queue = cache.getQueue("address");
+        JmsTopic topic = cache.getTopic("address");
+
+        assertEquals("address", queue.getName());
+        assertEquals("address", topic.getName());
+        assertSame(queue, cache.getQueue("address"));
+        assertSame(topic, cache.getTopic("address"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        AmqpDestinationCache cache = new AmqpDestinationCache(2);
+
+        JmsQueue first = cache.getQueue("queue-1");
+        cache.getQueue("queue-2");
+        cache.getQueue("queue-3");
+
+        assertEquals(2, cache.size());
+        assertNotSame(first, cache.getQueue("queue-1"));
+    }
+
+    @Test
+    public void testCachedDestinationsCannotBeModified() {
+        AmqpDestinationCache cache = new AmqpDestinationCache();
+
+        doTestCachedDestinationCannotBeModified(cache, cache.getQueue("address"));
+        doTestCachedDestinationCannotBeModified(cache, cache.getTopic("address"));
+    }
+
+    private void doTestCachedDestinationCannotBeModified(AmqpDestinationCache cache, JmsDestination destination) {
+        try {
+            destination.setName("other");
+            fail("Should not be able to rename a cached destination");
+        } catch (UnsupportedOperationException ex) {
+        }
+
+        try {
+            destination.setProperties(Collections.singletonMap("name", "other"));
+            fail("Should not be able to set the properties of a cached destination");
+        } catch (UnsupportedOperationException ex) {
+        }
+
+        assertEquals("address", destination.getName());
+        assertEquals("address", destination.getProperties().get("name"));
+    }
+
+    @Test
+    public void testCachedDestinationsEqualPlainDestinations() {
+        AmqpDestinationCache cache = new AmqpDestinationCache();
+
+        JmsQueue queue = new JmsQueue("address");
+        JmsTopic topic = new JmsTopic("address");
+
+        assertEquals(queue, cache.getQueue("address"));
+        assertEquals(cache.getQueue("address"), queue);
+        assertEquals(queue.hashCode(), cache.getQueue("address").hashCode());
+        assertEquals(topic, cache.getTopic("address"));
+        assertEquals(cache.getTopic("address"), topic);
+
+        assertNotEquals(cache.getQueue("address"), topic);
+        assertNotEquals(cache.getTopic("address"), queue);
+    }
+
+    @Test
+    public void testCachedDestinationsSerializeAsPlainDestinations() throws Exception {
+        AmqpDestinationCache cache = new AmqpDestinationCache();
+
+        Object queue = roundTrip(cache.getQueue("address"));
+        assertEquals(JmsQueue.class, queue.getClass());
+        assertEquals(new JmsQueue("address"), queue);
+
+        Object topic = roundTrip(cache.getTopic("address"));
+        assertEquals(JmsTopic.class, topic.getClass());
+        assertEquals(new JmsTopic("address"), topic);
+
+        ((JmsDestination) queue).setName("other");
+        assertEquals("address", cache.getQueue("address").getName());
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(value);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.LEGAC
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -96,6 +97,48 @@ public class AmqpDestinationHelperTest {
         assertEquals(testAddress, destination.getName());
     }
 
+    @Test
+    public void testGetJmsDestinationReturnsCachedInstances() throws Exception {
+        String testAddress = "testAddress";
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        AmqpConnection conn = Mockito.mock(AmqpConnection.class);
+        Mockito.when(conn.getDestinationCache()).thenReturn(new AmqpDestinationCache());
+        Mockito.when(message.getConnection()).thenReturn(conn);
+        Mockito.when(message.getToAddress()).thenReturn(testAddress);
+        Mockito.when(message.getReplyToAddress()).thenReturn(testAddress);
+        Mockito.when(message.getMessageAnnotation(JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME)).thenReturn(QUEUE_TYPE);
+        Mockito.when(message.getMessageAnnotation(JMS_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME)).thenReturn(TOPIC_TYPE);
+        JmsQueue consumerDestination = new JmsQueue("ConsumerDestination");
+
+        JmsDestination destination = helper.getJmsDestination(message, consumerDestination);
+        assertTrue(destination.isQueue());
+        assertEquals(testAddress, destination.getName());
+        assertSame(destination, helper.getJmsDestination(message, consumerDestination));
+
+        JmsDestination replyTo = helper.getJmsReplyTo(message, consumerDestination);
+        assertTrue(replyTo.isTopic());
+        assertEquals(testAddress, replyTo.getName());
+        assertSame(replyTo, helper.getJmsReplyTo(message, consumerDestination));
+    }
+
+    @Test
+    public void testGetJmsDestinationDoesNotCacheTemporaryDestinations() throws Exception {
+        String testAddress = "testAddress";
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        AmqpConnection conn = Mockito.mock(AmqpConnection.class);
+        AmqpDestinationCache cache = new AmqpDestinationCache();
+        Mockito.when(conn.getDestinationCache()).thenReturn(cache);
+        Mockito.when(message.getConnection()).thenReturn(conn);
+        Mockito.when(message.getToAddress()).thenReturn(testAddress);
+        Mockito.when(message.getMessageAnnotation(JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME)).thenReturn(TEMP_QUEUE_TYPE);
+        JmsQueue consumerDestination = new JmsQueue("ConsumerDestination");
+
+        JmsDestination destination = helper.getJmsDestination(message, consumerDestination);
+        assertTrue(destination.isTemporary());
+        assertNotSame(destination, helper.getJmsDestination(message, consumerDestination));
+        assertEquals(0, cache.size());
+    }
+
     @Test
     public void testGetJmsDestinationWithoutTypeAnnotationWithQueueConsumerDest() throws Exception {
         String testAddress = "testAddress";
@@ -929,5 +972,13 @@ public class AmqpDestinationHelperTest {
         // test consecutive leading commas don't alter produced set
         assertEquals(set, helper.splitAttributesString("," + LEGACY_QUEUE_ATTRIBUTE + ","
                                                      + LEGACY_TEMPORARY_ATTRIBUTE));
+
+        // test whitespace around the separators is not kept
+        assertEquals(set, helper.splitAttributesString(" " + LEGACY_QUEUE_ATTRIBUTE + " , "
+                                                     + LEGACY_TEMPORARY_ATTRIBUTE + " "));
+
+        // test a value without separators produces a single entry
+        assertEquals(1, helper.splitAttributesString(LEGACY_QUEUE_ATTRIBUTE).size());
+        assertTrue(helper.splitAttributesString("").isEmpty());
     }
 }
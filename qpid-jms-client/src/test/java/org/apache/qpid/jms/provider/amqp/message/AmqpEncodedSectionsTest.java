@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpDestinationHelper.JMS_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MSG_TYPE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedByte;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+public class AmqpEncodedSectionsTest {
+
+    private static final Symbol MSG_TYPE = Symbol.valueOf(JMS_MSG_TYPE);
+    private static final Symbol DEST_TYPE = Symbol.valueOf(JMS_DEST_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
+    private static final Symbol REPLY_TO_TYPE = Symbol.valueOf(JMS_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME);
+
+    @Test
+    public void testMissingSectionsEncodeToNothing() {
+        assertEquals(0, AmqpEncodedSections.getEncodedHeader(null).length);
+        assertEquals(0, AmqpEncodedSections.getEncodedMessageAnnotations(null).length);
+    }
+
+    @Test
+    public void testEncodedHeaderMatchesProtonEncoding() {
+        Header header = new Header();
+        header.setDurable(true);
+        assertArrayEquals(encode(header), AmqpEncodedSections.getEncodedHeader(header));
+
+        header.setDurable(false);
+        assertArrayEquals(encode(header), AmqpEncodedSections.getEncodedHeader(header));
+    }
+
+    @Test
+    public void testHeaderWithOtherFieldsIsNotShared() {
+        Header header = new Header();
+        assertNull(AmqpEncodedSections.getEncodedHeader(header));
+
+        header.setDurable(true);
+        header.setPriority(UnsignedByte.valueOf((byte) 7));
+        assertNull(AmqpEncodedSections.getEncodedHeader(header));
+    }
+
+    @Test
+    public void testEncodedAnnotationsMatchProtonEncoding() {
+        for (byte msgType = 0; msgType <= 5; ++msgType) {
+            for (byte destType = -1; destType <= 3; ++destType) {
+                for (byte replyToType = -1; replyToType <= 3; ++replyToType) {
+                    Map<Symbol, Object> values = new LinkedHashMap<Symbol, Object>();
+                    values.put(MSG_TYPE, msgType);
+                    if (destType >= 0) {
+                        values.put(DEST_TYPE, destType);
+                    }
+                    if (replyToType >= 0) {
+                        values.put(REPLY_TO_TYPE, replyToType);
+                    }
+
+                    MessageAnnotations annotations = new MessageAnnotations(values);
+                    byte[] encoded = AmqpEncodedSections.getEncodedMessageAnnotations(annotations);
+                    assertArrayEquals(encode(annotations), encoded);
+                    assertSame(encoded, AmqpEncodedSections.getEncodedMessageAnnotations(annotations));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEncodedAnnotationsIgnoreMapOrder() {
+        Map<Symbol, Object> values = new LinkedHashMap<Symbol, Object>();
+        values.put(REPLY_TO_TYPE, (byte) 1);
+        values.put(MSG_TYPE, (byte) 5);
+
+        byte[] encoded = AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values));
+        assertNotNull(encoded);
+
+        Message decoded = Proton.message();
+        decoded.decode(encoded, 0, encoded.length);
+        assertEquals(values, decoded.getMessageAnnotations().getValue());
+    }
+
+    @Test
+    public void testUncommonAnnotationsAreNotShared() {
+        Map<Symbol, Object> values = new LinkedHashMap<Symbol, Object>();
+        values.put(DEST_TYPE, (byte) 0);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(MSG_TYPE, (byte) 6);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(MSG_TYPE, "5");
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(MSG_TYPE, (byte) 5);
+        values.put(DEST_TYPE, (byte) 4);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(DEST_TYPE, "queue");
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(DEST_TYPE, (byte) 0);
+        values.put(REPLY_TO_TYPE, (byte) -1);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.put(REPLY_TO_TYPE, null);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+
+        values.remove(REPLY_TO_TYPE);
+        values.put(Symbol.valueOf("x-opt-custom"), (byte) 0);
+        assertNull(AmqpEncodedSections.getEncodedMessageAnnotations(new MessageAnnotations(values)));
+    }
+
+    private byte[] encode(Header header) {
+        Message message = Proton.message();
+        message.setHeader(header);
+        return encode(message);
+    }
+
+    private byte[] encode(MessageAnnotations annotations) {
+        Message message = Proton.message();
+        message.setMessageAnnotations(annotations);
+        return encode(message);
+    }
+
+    private byte[] encode(Message message) {
+        byte[] buffer = new byte[256];
+        int length = message.encode(buffer, 0, buffer.length);
+        byte[] encoded = new byte[length];
+        System.arraycopy(buffer, 0, encoded, 0, length);
+        return encoded;
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.proton.amqp.Binary;
+import org.junit.Test;
+
+public class AmqpExternalizableCodecTest {
+
+    private final AmqpExternalizableCodec codec = new AmqpExternalizableCodec();
+
+    @Test
+    public void testEncodeDecodeExternalizable() throws Exception {
+        List<String> tags = new ArrayList<String>();
+        tags.add("a");
+        tags.add("b");
+
+        Order order = new Order(42, "widget", tags);
+        order.child = new Order(43, "gadget", null);
+
+        Serializable decoded = codec.decode(codec.encode(order));
+        assertTrue(decoded instanceof Order);
+        assertEquals(order, decoded);
+        assertEquals(order.child, ((Order) decoded).child);
+    }
+
+    @Test
+    public void testEncodeDecodeCyclicReferences() throws Exception {
+        Node first = new Node("first");
+        Node second = new Node("second");
+        first.next = second;
+        second.next = first;
+
+        Node decoded = (Node) codec.decode(codec.encode(first));
+        assertEquals("first", decoded.name);
+        assertEquals("second", decoded.next.name);
+        assertSame(decoded, decoded.next.next);
+    }
+
+    @Test
+    public void testEncodeDecodeSharedReferences() throws Exception {
+        Node shared = new Node("shared");
+        Node first = new Node("first");
+        Node second = new Node("second");
+        first.next = second;
+        first.other = shared;
+        second.next = shared;
+
+        Node decoded = (Node) codec.decode(codec.encode(first));
+        assertSame(decoded.other, decoded.next.next);
+        assertEquals("shared", decoded.other.name);
+    }
+
+    @Test
+    public void testEncodeDecodeSharedSerializableReferences() throws Exception {
+        List<String> tags = new ArrayList<String>();
+        tags.add("a");
+
+        Order order = new Order(42, "widget", tags);
+        order.child = new Order(43, "gadget", tags);
+
+        Order decoded = (Order) codec.decode(codec.encode(order));
+        assertEquals(order, decoded);
+        assertSame(decoded.tags, decoded.child.tags);
+    }
+
+    @Test
+    public void testEncodeDecodeCycleThroughSerializableValue() throws Exception {
+        List<Object> values = new ArrayList<Object>();
+        Node node = new Node("node");
+        node.value = values;
+        values.add(node);
+
+        Node decoded = (Node) codec.decode(codec.encode(node));
+        assertSame(decoded, ((List<?>) decoded.value).get(0));
+    }
+
+    @Test(expected=StreamCorruptedException.class)
+    public void testDecodeNegativeSerializedLengthFails() throws Exception {
+        codec.decode(encodeSerializedLength(-1));
+    }
+
+    @Test(expected=StreamCorruptedException.class)
+    public void testDecodeSerializedLengthBeyondRemainingBytesFails() throws Exception {
+        codec.decode(encodeSerializedLength(Integer.MAX_VALUE));
+    }
+
+    @Test(expected=StreamCorruptedException.class)
+    public void testDecodeUnknownReferenceFails() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(3);
+        out.writeInt(0);
+        out.close();
+
+        codec.decode(new Binary(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testEncodeDecodeSerializable() throws Exception {
+        List<String> value = new ArrayList<String>();
+        value.add("value");
+
+        assertEquals(value, codec.decode(codec.encode((Serializable) value)));
+    }
+
+    @Test
+    public void testExternalizedFormIsSmallerThanJavaSerialization() throws Exception {
+        Order order = new Order(42, "widget", null);
+
+        Binary externalized = codec.encode(order);
+        Binary serialized = new AmqpJavaSerializationCodec().encode(order);
+        assertTrue(externalized.getLength() < serialized.getLength());
+    }
+
+    @Test(expected=InvalidClassException.class)
+    public void testDecodeNonExternalizableClassFails() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeUTF(String.class.getName());
+        out.close();
+
+        codec.decode(new Binary(bytes.toByteArray()));
+    }
+
+    @Test(timeout=30000)
+    public void testClassCacheDoesNotRetainClassLoader() throws Exception {
+        Binary encoded = codec.encode(new Order(42, "widget", null));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        WeakReference<ClassLoader> loaderRef = new WeakReference<ClassLoader>(loader);
+
+        thread.setContextClassLoader(loader);
+        try {
+            assertTrue(codec.decode(encoded) instanceof Order);
+            assertTrue(codec.decode(encoded) instanceof Order);
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+
+        loader = null;
+        while (loaderRef.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertTrue(codec.decode(encoded) instanceof Order);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSetInvalidClassCacheSize() {
+        codec.setClassCacheSize(0);
+    }
+
+    @Test
+    public void testFinderLocatesBuiltInCodecs() {
+        assertTrue(AmqpObjectMessageCodecFinder.findCodec(AmqpExternalizableCodec.NAME) instanceof AmqpExternalizableCodec);
+        assertTrue(AmqpObjectMessageCodecFinder.findCodec(AmqpJavaSerializationCodec.NAME) instanceof AmqpJavaSerializationCodec);
+        assertSame(AmqpObjectMessageCodecFinder.findCodec(AmqpExternalizableCodec.NAME),
+                   AmqpObjectMessageCodecFinder.findCodecForContentType(AmqpExternalizableCodec.CONTENT_TYPE));
+        assertNull(AmqpObjectMessageCodecFinder.findCodecForContentType("application/unknown"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testFinderRejectsUnknownCodec() {
+        AmqpObjectMessageCodecFinder.findCodec("unknown");
+    }
+
+    private static Binary encodeSerializedLength(int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(2);
+        out.writeInt(length);
+        out.write(new byte[16]);
+        out.close();
+
+        return new Binary(bytes.toByteArray());
+    }
+
+    public static class Node implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+        private Node next;
+        private Node other;
+        private Object value;
+
+        public Node() {
+        }
+
+        public Node(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeUTF(name);
+            out.writeObject(next);
+            out.writeObject(other);
+            out.writeObject(value);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            name = in.readUTF();
+            next = (Node) in.readObject();
+            other = (Node) in.readObject();
+            value = in.readObject();
+        }
+    }
+
+    public static class Order implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int id;
+        private String item;
+        private List<String> tags;
+        private Order child;
+
+        public Order() {
+        }
+
+        public Order(int id, String item, List<String> tags) {
+            this.id = id;
+            this.item = item;
+            this.tags = tags;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(id);
+            out.writeUTF(item);
+            out.writeObject(tags);
+            out.writeObject(child);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            id = in.readInt();
+            item = in.readUTF();
+            tags = (List<String>) in.readObject();
+            child = (Order) in.readObject();
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Order)) {
+                return false;
+            }
+
+            Order order = (Order) other;
+            return id == order.id && item.equals(order.item) &&
+                   (tags == null ? order.tags == null : tags.equals(order.tags));
+        }
+    }
+}
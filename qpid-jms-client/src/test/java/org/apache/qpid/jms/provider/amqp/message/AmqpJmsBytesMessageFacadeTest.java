@@ -22,6 +22,7 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.getSy
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -29,6 +30,7 @@ import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -117,6 +119,19 @@ public class AmqpJmsBytesMessageFacadeTest extends AmqpJmsMessageTypesTestCase {
         assertEquals("Message reports unexpected length", bytes.length, amqpBytesMessageFacade.getBodyLength());
     }
 
+    @Test
+    public void testEncodedBodySizeHintTracksBodyLength() throws Exception {
+        AmqpJmsBytesMessageFacade amqpBytesMessageFacade = createNewBytesMessageFacade();
+        assertEquals(0, amqpBytesMessageFacade.getEncodedBodySizeHint());
+
+        byte[] bytes = new byte[1024 * 64];
+        amqpBytesMessageFacade.getOutputStream().write(bytes);
+        assertEquals(bytes.length, amqpBytesMessageFacade.getEncodedBodySizeHint());
+
+        amqpBytesMessageFacade.reset();
+        assertEquals(bytes.length, amqpBytesMessageFacade.getEncodedBodySizeHint());
+    }
+
     @Test
     public void testGetOutputStreamReturnsSameStream() throws Exception {
         AmqpJmsBytesMessageFacade amqpBytesMessageFacade = createNewBytesMessageFacade();
@@ -175,6 +190,64 @@ public class AmqpJmsBytesMessageFacadeTest extends AmqpJmsMessageTypesTestCase {
         assertDataBodyAsExpected(copy.getAmqpMessage(), 0);
     }
 
+    @Test
+    public void testSetBodyStreamDefersBodyToSend() throws Exception {
+        AmqpJmsBytesMessageFacade amqpBytesMessageFacade = createNewBytesMessageFacade();
+        amqpBytesMessageFacade.getOutputStream().write("discarded".getBytes());
+
+        InputStream source = new ByteArrayInputStream(new byte[100]);
+        amqpBytesMessageFacade.setBodyStream(source, 100);
+
+        assertSame(source, amqpBytesMessageFacade.getBodySource());
+        assertEquals(100, amqpBytesMessageFacade.getBodyLength());
+        assertFalse(amqpBytesMessageFacade.isEmpty());
+        assertDataBodyAsExpected(amqpBytesMessageFacade.getAmqpMessage(), 0);
+
+        try {
+            amqpBytesMessageFacade.getInputStream();
+            fail("Should not be able to read a body that is read from a stream when sent");
+        } catch (javax.jms.IllegalStateException ise) {
+        }
+
+        try {
+            amqpBytesMessageFacade.getOutputStream();
+            fail("Should not be able to write a body that is read from a stream when sent");
+        } catch (javax.jms.IllegalStateException ise) {
+        }
+
+        AmqpJmsBytesMessageFacade copy = amqpBytesMessageFacade.copy();
+        assertSame(source, copy.getBodySource());
+        assertEquals(100, copy.getBodySourceLength());
+
+        amqpBytesMessageFacade.clearBody();
+        assertNull(amqpBytesMessageFacade.getBodySource());
+        assertEquals(0, amqpBytesMessageFacade.getBodyLength());
+    }
+
+    @Test
+    public void testBodyStreamIsOnlyCopiedForSendOnce() throws Exception {
+        AmqpJmsBytesMessageFacade amqpBytesMessageFacade = createNewBytesMessageFacade();
+        amqpBytesMessageFacade.setBodyStream(new ByteArrayInputStream(new byte[100]), 100);
+
+        amqpBytesMessageFacade.copy();
+
+        try {
+            amqpBytesMessageFacade.copy();
+            fail("Should not be able to send a body stream a second time");
+        } catch (javax.jms.IllegalStateException ise) {
+        }
+
+        InputStream source = new ByteArrayInputStream(new byte[10]);
+        amqpBytesMessageFacade.setBodyStream(source, 10);
+        assertSame(source, amqpBytesMessageFacade.copy().getBodySource());
+    }
+
+    @Test(expected = javax.jms.MessageFormatException.class)
+    public void testSetBodyStreamRejectsLengthLargerThanDataSection() throws Exception {
+        AmqpJmsBytesMessageFacade amqpBytesMessageFacade = createNewBytesMessageFacade();
+        amqpBytesMessageFacade.setBodyStream(new ByteArrayInputStream(new byte[0]), 0x100000000L);
+    }
+
     @Test
     public void testClearBodySetsBodyLength0AndCausesEmptyInputStream() throws Exception {
         byte[] bytes = "myBytes".getBytes();
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
@@ -122,6 +123,44 @@ public class AmqpJmsMapMessageFacadeTest extends AmqpJmsMessageTypesTestCase {
         assertTrue(copy.itemExists("entry3"));
     }
 
+    @Test
+    public void testMessageCopyIsIndependentOfOriginalAfterWrites() throws Exception {
+        AmqpJmsMapMessageFacade amqpMapMessageFacade = createNewMapMessageFacade();
+        amqpMapMessageFacade.put("entry1", "value1");
+
+        AmqpJmsMapMessageFacade copy = amqpMapMessageFacade.copy();
+        copy.put("entry2", "value2");
+        amqpMapMessageFacade.remove("entry1");
+
+        assertFalse(amqpMapMessageFacade.itemExists("entry1"));
+        assertFalse(amqpMapMessageFacade.itemExists("entry2"));
+        assertEquals("value1", copy.get("entry1"));
+        assertEquals("value2", copy.get("entry2"));
+
+        AmqpJmsMapMessageFacade second = copy.copy();
+        second.clearBody();
+        assertTrue(second.isEmpty());
+        assertEquals("value1", copy.get("entry1"));
+    }
+
+    @Test
+    public void testReceivedLazyMessageBodyIsDecodedOnFirstAccess() throws Exception {
+        Map<String, Object> bodyMap = new HashMap<String, Object>();
+        bodyMap.put("entry1", "value1");
+
+        Message original = Message.Factory.create();
+        original.setBody(new AmqpValue(bodyMap));
+        byte[] buffer = new byte[1024];
+        int length = original.encode(buffer, 0, buffer.length);
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(Arrays.copyOf(buffer, length));
+        AmqpJmsMapMessageFacade amqpMapMessageFacade = createReceivedMapMessageFacade(createMockAmqpConsumer(), message);
+        assertTrue(message.isBodyEncoded());
+
+        assertEquals("value1", amqpMapMessageFacade.get("entry1"));
+        assertFalse(message.isBodyEncoded());
+    }
+
     // ---------- test handling of received messages -------------------------//
 
     @Test
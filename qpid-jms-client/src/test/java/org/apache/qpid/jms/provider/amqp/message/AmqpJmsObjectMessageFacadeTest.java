@@ -21,6 +21,7 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_O
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.getSymbol;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
@@ -249,4 +250,22 @@ public class AmqpJmsObjectMessageFacadeTest extends AmqpJmsMessageTypesTestCase
             // expected
         }
     }
+
+    @Test
+    public void testSetGetObjectWithExternalizableCodec() throws Exception {
+        AmqpObjectMessageCodec codec = AmqpObjectMessageCodecFinder.findCodec(AmqpExternalizableCodec.NAME);
+        AmqpJmsObjectMessageFacade amqpObjectMessageFacade =
+            new AmqpJmsObjectMessageFacade(createMockAmqpConnection(), false, codec);
+
+        String content = "myStringContent";
+        amqpObjectMessageFacade.setObject(content);
+        amqpObjectMessageFacade.onSend(false, false, 0);
+
+        Message protonMessage = amqpObjectMessageFacade.getAmqpMessage();
+        assertEquals(AmqpExternalizableCodec.CONTENT_TYPE, protonMessage.getContentType());
+
+        AmqpJmsObjectMessageFacade received = createReceivedObjectMessageFacade(createMockAmqpConsumer(), protonMessage);
+        assertFalse(received.isAmqpTypedEncoding());
+        assertEquals(content, received.getObject());
+    }
 }
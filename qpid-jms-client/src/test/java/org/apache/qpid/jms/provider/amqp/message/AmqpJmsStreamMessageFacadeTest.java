@@ -329,4 +329,25 @@ public class AmqpJmsStreamMessageFacadeTest extends AmqpJmsMessageTypesTestCase
         amqpStreamMessageFacade.clearBody();
         amqpStreamMessageFacade.put("myString");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMessageCopyIsIndependentOfOriginalAfterWrites() throws Exception {
+        AmqpJmsStreamMessageFacade amqpStreamMessageFacade = createNewStreamMessageFacade();
+        amqpStreamMessageFacade.put("first");
+
+        AmqpJmsStreamMessageFacade copy = amqpStreamMessageFacade.copy();
+        copy.put("second");
+
+        assertEquals("first", amqpStreamMessageFacade.peek());
+        amqpStreamMessageFacade.pop();
+        assertFalse(amqpStreamMessageFacade.hasNext());
+
+        assertEquals("first", copy.peek());
+        copy.pop();
+        assertEquals("second", copy.peek());
+
+        amqpStreamMessageFacade.clearBody();
+        assertTrue(amqpStreamMessageFacade.isEmpty());
+        assertFalse(copy.isEmpty());
+    }
+}
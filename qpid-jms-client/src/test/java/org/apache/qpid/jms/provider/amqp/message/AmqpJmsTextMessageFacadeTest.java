@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -320,4 +321,33 @@ public class AmqpJmsTextMessageFacadeTest extends AmqpJmsMessageTypesTestCase {
             // expected
         }
     }
+
+    @Test
+    public void testGetTextUsingReceivedMessageWithDataSectionDecodesOnce() throws Exception {
+        String encodedString = "myEncodedString";
+        byte[] encodedBytes = encodedString.getBytes(Charset.forName("UTF-8"));
+
+        Message message = Message.Factory.create();
+        message.setBody(new Data(new Binary(encodedBytes)));
+        AmqpJmsTextMessageFacade amqpTextMessageFacade = createReceivedTextMessageFacade(createMockAmqpConsumer(), message);
+
+        String text = amqpTextMessageFacade.getText();
+        assertEquals(encodedString, text);
+        assertSame(text, amqpTextMessageFacade.getText());
+    }
+
+    @Test
+    public void testGetTextAfterBodyChangedDecodesNewBody() throws Exception {
+        Message message = Message.Factory.create();
+        message.setBody(new Data(new Binary("first".getBytes(Charset.forName("UTF-8")))));
+        AmqpJmsTextMessageFacade amqpTextMessageFacade = createReceivedTextMessageFacade(createMockAmqpConsumer(), message);
+
+        assertEquals("first", amqpTextMessageFacade.getText());
+
+        message.setBody(new Data(new Binary("second".getBytes(Charset.forName("UTF-8")))));
+        assertEquals("second", amqpTextMessageFacade.getText());
+
+        amqpTextMessageFacade.setText("third");
+        assertEquals("third", amqpTextMessageFacade.getText());
+    }
 }
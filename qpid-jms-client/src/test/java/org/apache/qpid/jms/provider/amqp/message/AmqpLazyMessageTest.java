@@ -0,0 +1,313 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
+import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpSequence;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AmqpLazyMessageTest {
+
+    @Test
+    public void testEmptyMessage() {
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(Proton.message()));
+
+        assertNull(message.getHeader());
+        assertNull(message.getProperties());
+        assertNull(message.getBody());
+        assertFalse(message.isPartiallyDecoded());
+    }
+
+    @Test
+    public void testSectionsAreDecodedOnlyWhenAccessed() {
+        Message original = createFullMessage();
+        original.setBody(new AmqpValue("test-body"));
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+
+        assertTrue(message.isPartiallyDecoded());
+        assertEquals(5, message.getPriority());
+        assertEquals("myMessageId", message.getMessageId());
+        assertTrue(message.isPartiallyDecoded());
+
+        assertEquals(Boolean.TRUE, message.getMessageAnnotations().getValue().get(Symbol.valueOf("x-opt-test")));
+        assertEquals("value", message.getApplicationProperties().getValue().get("property"));
+        assertTrue(message.isPartiallyDecoded());
+
+        assertEquals("test-body", ((AmqpValue) message.getBody()).getValue());
+        assertEquals("footer-value", message.getFooter().getValue().get("footer-key"));
+        assertFalse(message.isPartiallyDecoded());
+    }
+
+    @Test
+    public void testDataBodyIsDecodedOnDemand() {
+        byte[] payload = new byte[] { 1, 2, 3, 4, 5 };
+        Message original = Proton.message();
+        original.setContentType("application/octet-stream");
+        original.setBody(new Data(new Binary(payload)));
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+
+        assertEquals("application/octet-stream", message.getContentType());
+        assertTrue(message.isPartiallyDecoded());
+
+        Binary body = ((Data) message.getBody()).getValue();
+        assertArrayEquals(payload, Arrays.copyOfRange(body.getArray(), body.getArrayOffset(), body.getArrayOffset() + body.getLength()));
+    }
+
+    @Test
+    public void testSequenceBodyIsDecodedOnDemand() {
+        List<Object> list = new ArrayList<Object>();
+        list.add("one");
+        list.add(2);
+        Message original = Proton.message();
+        original.setBody(new AmqpSequence(list));
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+
+        assertEquals(list, ((AmqpSequence) message.getBody()).getValue());
+    }
+
+    @Test
+    public void testReplacedSectionIsNotDecoded() {
+        Message original = createFullMessage();
+        original.setBody(new AmqpValue("test-body"));
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+        message.setBody(new AmqpValue("replaced"));
+
+        assertEquals("replaced", ((AmqpValue) message.getBody()).getValue());
+    }
+
+    @Test
+    public void testSetterOnPropertiesRetainsOtherValues() {
+        Message original = createFullMessage();
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+
+        message.setSubject("new-subject");
+
+        assertEquals("new-subject", message.getSubject());
+        assertEquals("myMessageId", message.getMessageId());
+    }
+
+    @Test
+    public void testReEncodeMatchesOriginal() {
+        Message original = createFullMessage();
+        original.setBody(new AmqpValue("test-body"));
+        byte[] encoded = encode(original);
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encoded);
+        message.getHeader();
+
+        assertArrayEquals(encoded, encode(message));
+    }
+
+    @Test
+    public void testDecodeWithOffset() {
+        Message original = createFullMessage();
+        byte[] encoded = encode(original);
+        byte[] padded = new byte[encoded.length + 10];
+        System.arraycopy(encoded, 0, padded, 5, encoded.length);
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        assertEquals(encoded.length, message.decode(padded, 5, encoded.length));
+
+        assertEquals("myMessageId", message.getMessageId());
+        assertEquals("value", message.getApplicationProperties().getValue().get("property"));
+    }
+
+    @Test
+    public void testOutOfOrderSectionsAreDecodedEagerly() {
+        Message properties = Proton.message();
+        properties.setMessageId("myMessageId");
+        Message header = Proton.message();
+        header.setDurable(true);
+
+        byte[] first = encode(properties);
+        byte[] second = encode(header);
+        byte[] encoded = new byte[first.length + second.length];
+        System.arraycopy(first, 0, encoded, 0, first.length);
+        System.arraycopy(second, 0, encoded, first.length, second.length);
+
+        AmqpLazyMessage message = AmqpLazyMessage.create(encoded);
+
+        assertFalse(message.isPartiallyDecoded());
+        assertEquals("myMessageId", message.getMessageId());
+    }
+
+    @Test
+    public void testClear() {
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(createFullMessage()));
+        message.clear();
+
+        assertFalse(message.isPartiallyDecoded());
+        assertNull(message.getProperties());
+        assertNull(message.getApplicationProperties());
+    }
+
+    @Test
+    public void testCreateFacadeFromLazyMessage() throws Exception {
+        Message original = createFullMessage();
+        original.setBody(new AmqpValue("test-body"));
+        AmqpLazyMessage message = AmqpLazyMessage.create(encode(original));
+
+        AmqpJmsTextMessageFacade facade = new AmqpJmsTextMessageFacade(createMockConsumer(), message);
+        assertTrue(message.isPartiallyDecoded());
+
+        assertNotNull(facade.getMessageId());
+        assertEquals("test-body", facade.getText());
+        assertEquals("value", facade.getApplicationProperty("property"));
+    }
+
+    @Test
+    public void testDecodeCopiesTheGivenBytes() {
+        Message original = Proton.message();
+        original.setBody(new AmqpValue("test-body"));
+        byte[] encoded = encode(original);
+
+        AmqpLazyMessage message = new AmqpLazyMessage();
+        message.decode(encoded, 0, encoded.length);
+        Arrays.fill(encoded, (byte) 0);
+
+        assertEquals("test-body", ((AmqpValue) message.getBody()).getValue());
+    }
+
+    @Test
+    public void testPoolReusesReleasedMessage() {
+        AmqpLazyMessagePool pool = new AmqpLazyMessagePool();
+
+        byte[] encoded = encode(createFullMessage());
+        AmqpLazyMessage first = pool.decode(encoded, 0, encoded.length);
+        assertEquals("value", first.getApplicationProperties().getValue().get("property"));
+
+        pool.release(first);
+        assertEquals(1, pool.size());
+
+        Message original = Proton.message();
+        original.setBody(new AmqpValue("test-body"));
+        byte[] smaller = encode(original);
+        byte[] padded = new byte[smaller.length + 4];
+        System.arraycopy(smaller, 0, padded, 2, smaller.length);
+
+        AmqpLazyMessage second = pool.decode(padded, 2, smaller.length);
+        assertSame(first, second);
+        assertEquals(0, pool.size());
+
+        assertNull(second.getHeader());
+        assertNull(second.getMessageAnnotations());
+        assertNull(second.getApplicationProperties());
+        assertNull(second.getFooter());
+        assertEquals("test-body", ((AmqpValue) second.getBody()).getValue());
+    }
+
+    @Test
+    public void testPoolIgnoresDuplicateAndExcessReleases() {
+        AmqpLazyMessagePool pool = new AmqpLazyMessagePool(1);
+        byte[] encoded = encode(createFullMessage());
+
+        AmqpLazyMessage first = pool.decode(encoded, 0, encoded.length);
+        AmqpLazyMessage second = pool.decode(encoded, 0, encoded.length);
+
+        pool.release(first);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.size());
+
+        assertSame(first, pool.decode(encoded, 0, encoded.length));
+        assertNotSame(first, pool.decode(encoded, 0, encoded.length));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCreatePoolWithInvalidSize() {
+        new AmqpLazyMessagePool(0);
+    }
+
+    @Test
+    public void testFacadeReleaseReturnsMessageToPool() throws Exception {
+        AmqpLazyMessagePool pool = new AmqpLazyMessagePool();
+        AmqpConsumer consumer = createMockConsumer();
+        Mockito.when(consumer.getConnection().getLazyMessagePool()).thenReturn(pool);
+
+        byte[] encoded = encode(createFullMessage());
+        AmqpJmsMessageFacade facade = new AmqpJmsMessageFacade(consumer, pool.decode(encoded, 0, encoded.length));
+        facade.release();
+
+        assertEquals(1, pool.size());
+    }
+
+    //----- Test support methods ---------------------------------------------//
+
+    private Message createFullMessage() {
+        Message message = Proton.message();
+        message.setDurable(true);
+        message.setPriority((short) 5);
+        message.setMessageId("myMessageId");
+        message.setSubject("subject");
+
+        Map<Symbol, Object> annotations = new HashMap<Symbol, Object>();
+        annotations.put(Symbol.valueOf("x-opt-test"), Boolean.TRUE);
+        message.setMessageAnnotations(new MessageAnnotations(annotations));
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("property", "value");
+        message.setApplicationProperties(new ApplicationProperties(properties));
+
+        Map<String, Object> footer = new HashMap<String, Object>();
+        footer.put("footer-key", "footer-value");
+        message.setFooter(new Footer(footer));
+
+        return message;
+    }
+
+    private byte[] encode(Message message) {
+        byte[] buffer = new byte[4096];
+        int length = message.encode(buffer, 0, buffer.length);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private AmqpConsumer createMockConsumer() {
+        AmqpConsumer consumer = Mockito.mock(AmqpConsumer.class);
+        Mockito.when(consumer.getConnection()).thenReturn(Mockito.mock(AmqpConnection.class));
+        return consumer;
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.jms.message.JmsBytesMessage;
+import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AmqpStreamedMessageTest extends QpidJmsTestCase {
+
+    private static final int BODY_SIZE = 4096;
+    private static final int PREFIX_SIZE = 1024;
+
+    private AmqpConsumer mockConsumer;
+    private final AtomicInteger resumed = new AtomicInteger();
+    private final Runnable resume = new Runnable() {
+
+        @Override
+        public void run() {
+            resumed.incrementAndGet();
+        }
+    };
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mockConsumer = Mockito.mock(AmqpConsumer.class);
+        resumed.set(0);
+    }
+
+    @Test
+    public void testStreamBodyAcrossWrites() throws Exception {
+        byte[] payload = createPayload(BODY_SIZE);
+        byte[] encoded = encode(new Data(new Binary(payload)), null);
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, encoded.length, resume);
+        assertNotNull(streamed);
+        assertTrue(streamed.getMessage() instanceof JmsBytesMessage);
+
+        JmsBytesMessage message = (JmsBytesMessage) streamed.getMessage();
+        message.onDispatch();
+        AmqpJmsBytesMessageFacade facade = (AmqpJmsBytesMessageFacade) message.getFacade();
+        assertTrue(facade.isBodyStreamed());
+        assertEquals(BODY_SIZE, facade.getBodyLength());
+
+        streamed.write(encoded, PREFIX_SIZE, encoded.length - PREFIX_SIZE);
+        streamed.complete();
+
+        byte[] received = new byte[BODY_SIZE];
+        message.readBytes(received);
+        assertArrayEquals(payload, received);
+        assertEquals(-1, message.readBytes(new byte[1]));
+    }
+
+    @Test
+    public void testStreamBodyFollowedByFooter() throws Exception {
+        byte[] payload = createPayload(BODY_SIZE);
+        Map<Object, Object> footer = new HashMap<Object, Object>();
+        footer.put(Symbol.valueOf("check"), "value");
+        byte[] encoded = encode(new Data(new Binary(payload)), new Footer(footer));
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, encoded.length, resume);
+        assertNotNull(streamed);
+        streamed.write(encoded, PREFIX_SIZE, encoded.length - PREFIX_SIZE);
+        streamed.complete();
+
+        assertArrayEquals(payload, readFully(getBody(streamed), BODY_SIZE));
+    }
+
+    @Test
+    public void testCannotStreamNonDataBody() throws Exception {
+        byte[] encoded = encode(new AmqpValue(new Binary(createPayload(BODY_SIZE))), null);
+        assertNull(AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, encoded.length, resume));
+    }
+
+    @Test
+    public void testCannotStreamBeforeBodyHasStarted() throws Exception {
+        byte[] encoded = encode(new Data(new Binary(createPayload(BODY_SIZE))), null);
+        assertNull(AmqpStreamedMessage.create(mockConsumer, encoded, 8, encoded.length, resume));
+    }
+
+    @Test
+    public void testTruncatedBodyFailsStream() throws Exception {
+        byte[] payload = createPayload(BODY_SIZE);
+        byte[] encoded = encode(new Data(new Binary(payload)), null);
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, encoded.length, resume);
+        assertNotNull(streamed);
+        streamed.complete();
+
+        InputStream body = getBody(streamed);
+        readFully(body, body.available());
+        try {
+            body.read();
+            fail("Should have failed on the missing bytes");
+        } catch (EOFException ex) {
+        }
+    }
+
+    @Test
+    public void testFailedStreamReportsErrorAfterBufferedBytes() throws Exception {
+        byte[] encoded = encode(new Data(new Binary(createPayload(BODY_SIZE))), null);
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, encoded.length, resume);
+        assertNotNull(streamed);
+        streamed.fail(new IOException("Connection lost"));
+
+        InputStream body = getBody(streamed);
+        int buffered = body.available();
+        assertTrue(buffered > 0);
+        assertEquals(buffered, readFully(body, buffered).length);
+        try {
+            body.read();
+            fail("Should have failed with the given error");
+        } catch (IOException ex) {
+            assertEquals("Connection lost", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testBufferIsBoundedUntilRead() throws Exception {
+        byte[] payload = createPayload(BODY_SIZE);
+        byte[] encoded = encode(new Data(new Binary(payload)), null);
+        int capacity = 512;
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, capacity, resume);
+        assertNotNull(streamed);
+        assertEquals(0, streamed.getFreeSpace());
+
+        InputStream body = getBody(streamed);
+        readFully(body, body.available() - capacity / 2);
+        assertEquals(1, resumed.get());
+        assertEquals(capacity / 2, streamed.getFreeSpace());
+    }
+
+    @Test
+    public void testDiscardAcceptsRemainder() throws Exception {
+        byte[] encoded = encode(new Data(new Binary(createPayload(BODY_SIZE))), null);
+
+        AmqpStreamedMessage streamed = AmqpStreamedMessage.create(mockConsumer, encoded, PREFIX_SIZE, 512, resume);
+        assertNotNull(streamed);
+        assertEquals(0, streamed.getFreeSpace());
+
+        streamed.discard();
+        assertEquals(1, resumed.get());
+        assertEquals(Integer.MAX_VALUE, streamed.getFreeSpace());
+        assertEquals(0, getBody(streamed).available());
+    }
+
+    //----- Test support -----------------------------------------------------//
+
+    private InputStream getBody(AmqpStreamedMessage streamed) throws Exception {
+        return ((AmqpJmsBytesMessageFacade) streamed.getMessage().getFacade()).getInputStream();
+    }
+
+    private byte[] readFully(InputStream stream, int length) throws IOException {
+        byte[] result = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int count = stream.read(result, offset, length - offset);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            offset += count;
+        }
+
+        return result;
+    }
+
+    private byte[] createPayload(int size) {
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            payload[i] = (byte) i;
+        }
+
+        return payload;
+    }
+
+    private byte[] encode(Section body, Footer footer) {
+        Message message = Proton.message();
+        Map<Symbol, Object> annotations = new HashMap<Symbol, Object>();
+        annotations.put(Symbol.valueOf(AmqpMessageSupport.JMS_MSG_TYPE), AmqpMessageSupport.JMS_BYTES_MESSAGE);
+        message.setMessageAnnotations(new MessageAnnotations(annotations));
+        message.setBody(body);
+        message.setFooter(footer);
+
+        byte[] buffer = new byte[BODY_SIZE * 2];
+        int length = message.encode(buffer, 0, buffer.length);
+        byte[] encoded = new byte[length];
+        System.arraycopy(buffer, 0, encoded, 0, length);
+        return encoded;
+    }
+}
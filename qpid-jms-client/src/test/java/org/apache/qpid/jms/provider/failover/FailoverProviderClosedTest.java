@@ -136,6 +136,6 @@ public class FailoverProviderClosedTest extends FailoverProviderTestSupport {
     @Test(timeout=30000, expected=IOException.class)
     public void testMessagePull() throws Exception {
         ProviderFuture request = new ProviderFuture();
-        provider.pull(consumer.getConsumerId(), 1, request);
+        provider.pull(consumer.getConsumerId(), 1, 1, request);
     }
 }
@@ -333,6 +333,70 @@ public class SelectorParserTest extends TestCase {
         assertSelector(message, "punctuation LIKE '!#$&()*+,-./:;<=>?@[\\]^`{|}~'", true);
     }
 
+    public void testLikeLiteralPatterns() throws Exception {
+        MockMessage message = createMessage();
+
+        assertSelector(message, "location LIKE 'London'", true);
+        assertSelector(message, "location LIKE 'Lond'", false);
+        assertSelector(message, "location LIKE 'Lon%'", true);
+        assertSelector(message, "location LIKE 'Par%'", false);
+        assertSelector(message, "location LIKE '%don'", true);
+        assertSelector(message, "location LIKE '%ris'", false);
+        assertSelector(message, "location LIKE '%ndo%'", true);
+        assertSelector(message, "location LIKE '%London%'", true);
+        assertSelector(message, "location LIKE '%ari%'", false);
+        assertSelector(message, "location LIKE '%'", true);
+        assertSelector(message, "location LIKE 'L%n'", true);
+        assertSelector(message, "location LIKE 'L%x'", false);
+        assertSelector(message, "location NOT LIKE 'Lon%'", false);
+
+        assertSelector(message, "foo LIKE '!_f%' ESCAPE '!'", true);
+        assertSelector(message, "foo LIKE '%!_f%' ESCAPE '!'", true);
+        assertSelector(message, "foo LIKE '%o!%' ESCAPE '!'", false);
+        assertSelector(message, "punctuation LIKE '!#$&()*%'", true);
+        assertSelector(message, "punctuation LIKE '%{|}~'", true);
+        assertSelector(message, "unknownProp LIKE 'Lon%'", false);
+    }
+
+    public void testMixedNumericComparisons() throws Exception {
+        MockMessage message = createMessage();
+
+        assertSelector(message, "byteProp = shortProp", true);
+        assertSelector(message, "shortProp = intProp", true);
+        assertSelector(message, "intProp = shortProp", true);
+        assertSelector(message, "intProp = longProp", true);
+        assertSelector(message, "longProp = floatProp", true);
+        assertSelector(message, "floatProp = doubleProp", true);
+        assertSelector(message, "byteProp2 < intProp", true);
+        assertSelector(message, "intProp > byteProp2", true);
+        assertSelector(message, "floatProp > 122.5", true);
+        assertSelector(message, "floatProp < 123.5", true);
+        assertSelector(message, "doubleProp >= intProp", true);
+        assertSelector(message, "rank > 122.9 AND rank < 123.1", true);
+        assertSelector(message, "name > 1", false);
+    }
+
+    public void testParsedSelectorIsCached() throws Exception {
+        String selector = "cachedProp = 'cached'";
+        long hits = SelectorParser.getCacheHitCount();
+        long misses = SelectorParser.getCacheMissCount();
+
+        BooleanExpression first = SelectorParser.parse(selector);
+        assertSame(first, SelectorParser.parse(selector));
+        assertEquals(hits + 1, SelectorParser.getCacheHitCount());
+        assertEquals(misses + 1, SelectorParser.getCacheMissCount());
+    }
+
+    public void testSetCacheSize() throws Exception {
+        int size = SelectorParser.getCacheSize();
+        try {
+            SelectorParser.setCacheSize(10);
+            assertEquals(10, SelectorParser.getCacheSize());
+        } finally {
+            SelectorParser.setCacheSize(size);
+        }
+    }
+
     public void testInvalidSelector() throws Exception {
         MockMessage message = createMessage();
         assertInvalidSelector(message, "3+5");
@@ -26,9 +26,11 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -87,6 +89,9 @@ import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.apache.qpid.proton.amqp.UnsignedShort;
 import org.apache.qpid.proton.codec.Data;
 import org.apache.qpid.proton.engine.impl.AmqpHeader;
+import org.apache.qpid.proton.message.Message;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -802,6 +807,20 @@ public class TestAmqpPeer implements AutoCloseable
     }
 
     public void expectSenderAttach(final Matcher<?> sourceMatcher, final Matcher<?> targetMatcher, final boolean refuseLink, boolean deferAttachResponseWrite, Symbol errorType, String errorMessage)
+    {
+        expectSenderAttach(sourceMatcher, targetMatcher, refuseLink, deferAttachResponseWrite, errorType, errorMessage, UnsignedInteger.valueOf(2048));
+    }
+
+    /**
+     * Expects a sender attach and answers it with a flow that opens the session incoming
+     * window to the given number of transfer frames.
+     */
+    public void expectSenderAttachWithIncomingWindow(UnsignedInteger incomingWindow)
+    {
+        expectSenderAttach(notNullValue(), notNullValue(), false, false, null, null, incomingWindow);
+    }
+
+    private void expectSenderAttach(final Matcher<?> sourceMatcher, final Matcher<?> targetMatcher, final boolean refuseLink, boolean deferAttachResponseWrite, Symbol errorType, String errorMessage, UnsignedInteger incomingWindow)
     {
         final AttachMatcher attachMatcher = new AttachMatcher()
                 .withName(notNullValue())
@@ -847,7 +866,7 @@ public class TestAmqpPeer implements AutoCloseable
         }
 
         final FlowFrame flowFrame = new FlowFrame().setNextIncomingId(UnsignedInteger.ONE) //TODO: shouldnt be hard coded
-                .setIncomingWindow(UnsignedInteger.valueOf(2048))
+                .setIncomingWindow(incomingWindow)
                 .setNextOutgoingId(UnsignedInteger.ONE) //TODO: shouldnt be hard coded
                 .setOutgoingWindow(UnsignedInteger.valueOf(2048))
                 .setLinkCredit(UnsignedInteger.valueOf(100));
@@ -1011,6 +1030,11 @@ public class TestAmqpPeer implements AutoCloseable
     }
 
     public void expectDetach(boolean expectClosed, boolean sendResponse, boolean replyClosed)
+    {
+        expectDetach(expectClosed, sendResponse, replyClosed, null);
+    }
+
+    public void expectDetach(boolean expectClosed, boolean sendResponse, boolean replyClosed, Matcher<?> errorMatcher)
     {
         Matcher<Boolean> closeMatcher = null;
         if(expectClosed)
@@ -1023,6 +1047,10 @@ public class TestAmqpPeer implements AutoCloseable
         }
 
         final DetachMatcher detachMatcher = new DetachMatcher().withClosed(closeMatcher);
+        if (errorMatcher != null)
+        {
+            detachMatcher.withError(errorMatcher);
+        }
 
         if (sendResponse)
         {
@@ -1201,6 +1229,66 @@ public class TestAmqpPeer implements AutoCloseable
         addHandler(flowMatcher);
     }
 
+    /**
+     * Expects a link flow and responds with the given number of messages, each of which is
+     * sent over the given number of transfer frames and holds only a Data body section with
+     * the given bytes. The session incoming window carried by the flow must match the given
+     * matcher.
+     */
+    public void expectLinkFlowRespondWithTransferInFrames(final byte[] body, final int count, final int framesPerTransfer,
+                                                          Matcher<?> incomingWindowMatcher)
+    {
+        final FlowMatcher flowMatcher = new FlowMatcher()
+                        .withIncomingWindow(incomingWindowMatcher)
+                        .withLinkCredit(Matchers.greaterThanOrEqualTo(UnsignedInteger.valueOf(count)));
+
+        CompositeAmqpPeerRunnable composite = new CompositeAmqpPeerRunnable();
+
+        for(int i = 0; i < count; i++)
+        {
+            UnsignedInteger deliveryId = UnsignedInteger.valueOf(i + 1);
+            Binary dtag = new Binary(("theDeliveryTag" + deliveryId).getBytes());
+
+            // Encoded through a Message as Data does not encode binaries longer than 255 bytes correctly.
+            Message message = Message.Factory.create();
+            message.setBody(new org.apache.qpid.proton.amqp.messaging.Data(new Binary(body)));
+            byte[] encoded = new byte[body.length + 64];
+            int encodedEnd = message.encode(encoded, 0, encoded.length);
+            int frameSize = (encodedEnd + framesPerTransfer - 1) / framesPerTransfer;
+
+            for(int offset = 0; offset < encodedEnd; offset += frameSize)
+            {
+                int end = Math.min(offset + frameSize, encodedEnd);
+
+                final TransferFrame transferResponse = new TransferFrame()
+                    .setDeliveryId(deliveryId)
+                    .setDeliveryTag(dtag)
+                    .setMessageFormat(UnsignedInteger.ZERO)
+                    .setSettled(false)
+                    .setMore(end < encodedEnd);
+
+                // The response frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
+                final FrameSender transferResponseSender = new FrameSender(this, FrameType.AMQP, -1, transferResponse,
+                                                                           new Binary(Arrays.copyOfRange(encoded, offset, end)));
+                transferResponseSender.setValueProvider(new ValueProvider()
+                {
+                    @Override
+                    public void setValues()
+                    {
+                        transferResponse.setHandle(flowMatcher.getReceivedHandle());
+                        transferResponseSender.setChannel(flowMatcher.getActualChannel());
+                    }
+                });
+
+                composite.add(transferResponseSender);
+            }
+        }
+
+        flowMatcher.onSuccess(composite);
+
+        addHandler(flowMatcher);
+    }
+
     private UnsignedInteger calculateNewDeliveryCount(FlowMatcher flowMatcher) {
         UnsignedInteger dc = (UnsignedInteger) flowMatcher.getReceivedDeliveryCount();
         UnsignedInteger lc = (UnsignedInteger) flowMatcher.getReceivedLinkCredit();
@@ -1295,6 +1383,155 @@ public class TestAmqpPeer implements AutoCloseable
         addHandler(transferMatcher);
     }
 
+    /**
+     * Expects a transfer frame that is followed by more frames of the same message.
+     */
+    public void expectPartialTransfer(Matcher<Binary> expectedPayloadMatcher)
+    {
+        final TransferMatcher partialMatcher = new TransferMatcher();
+        partialMatcher.withMore(equalTo(true));
+        partialMatcher.setPayloadMatcher(expectedPayloadMatcher);
+
+        addHandler(partialMatcher);
+    }
+
+    /**
+     * Expects a message sent as a transfer split over the given number of frames, the payloads
+     * of which are combined and checked against the given matcher once the last arrives.
+     */
+    public void expectTransferInFrames(int frameCount, final Matcher<Binary> expectedPayloadMatcher)
+    {
+        final ByteArrayOutputStream combined = new ByteArrayOutputStream();
+
+        for (int i = 1; i < frameCount; ++i)
+        {
+            TransferMatcher partialMatcher = new TransferMatcher();
+            partialMatcher.withMore(equalTo(true));
+            partialMatcher.setPayloadMatcher(new PayloadCollector(combined, null));
+            addHandler(partialMatcher);
+        }
+
+        final TransferMatcher transferMatcher = new TransferMatcher();
+        transferMatcher.withMore(Matchers.anyOf(equalTo(false), nullValue()));
+        transferMatcher.setPayloadMatcher(new PayloadCollector(combined, expectedPayloadMatcher));
+
+        final DispositionFrame dispositionResponse = new DispositionFrame()
+                                                   .setRole(Role.RECEIVER)
+                                                   .setSettled(true)
+                                                   .setState(new Accepted());
+
+        // The response frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
+        final FrameSender dispositionFrameSender = new FrameSender(this, FrameType.AMQP, -1, dispositionResponse, null);
+        dispositionFrameSender.setValueProvider(new ValueProvider()
+        {
+            @Override
+            public void setValues()
+            {
+                dispositionFrameSender.setChannel(transferMatcher.getActualChannel());
+                dispositionResponse.setFirst(transferMatcher.getReceivedDeliveryId());
+            }
+        });
+        transferMatcher.onSuccess(dispositionFrameSender);
+
+        addHandler(transferMatcher);
+    }
+
+    /**
+     * Expects a message sent as a transfer split over the given number of frames, where the
+     * session incoming window only ever admits one more frame, the window is opened again for
+     * the next frame each time one arrives.  The sender attach should have been answered with
+     * an incoming window of one.
+     */
+    public void expectTransferInFramesOneWindowAtATime(int frameCount, final Matcher<Binary> expectedPayloadMatcher)
+    {
+        final ByteArrayOutputStream combined = new ByteArrayOutputStream();
+
+        for (int i = 1; i < frameCount; ++i)
+        {
+            final TransferMatcher partialMatcher = new TransferMatcher();
+            partialMatcher.withMore(equalTo(true));
+            partialMatcher.setPayloadMatcher(new PayloadCollector(combined, null));
+
+            // The sender's transfer ids start from one, the next expected is one past those received.
+            final FlowFrame flowFrame = new FlowFrame().setNextIncomingId(UnsignedInteger.valueOf(i + 1))
+                    .setIncomingWindow(UnsignedInteger.ONE)
+                    .setNextOutgoingId(UnsignedInteger.ONE)
+                    .setOutgoingWindow(UnsignedInteger.valueOf(2048));
+
+            // The flow frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
+            final FrameSender flowFrameSender = new FrameSender(this, FrameType.AMQP, -1, flowFrame, null);
+            flowFrameSender.setValueProvider(new ValueProvider()
+            {
+                @Override
+                public void setValues()
+                {
+                    flowFrameSender.setChannel(partialMatcher.getActualChannel());
+                }
+            });
+            partialMatcher.onSuccess(flowFrameSender);
+
+            addHandler(partialMatcher);
+        }
+
+        final TransferMatcher transferMatcher = new TransferMatcher();
+        transferMatcher.withMore(Matchers.anyOf(equalTo(false), nullValue()));
+        transferMatcher.setPayloadMatcher(new PayloadCollector(combined, expectedPayloadMatcher));
+
+        final DispositionFrame dispositionResponse = new DispositionFrame()
+                                                   .setRole(Role.RECEIVER)
+                                                   .setSettled(true)
+                                                   .setState(new Accepted());
+
+        // The response frame channel will be dynamically set based on the incoming frame. Using the -1 is an illegal placeholder.
+        final FrameSender dispositionFrameSender = new FrameSender(this, FrameType.AMQP, -1, dispositionResponse, null);
+        dispositionFrameSender.setValueProvider(new ValueProvider()
+        {
+            @Override
+            public void setValues()
+            {
+                dispositionFrameSender.setChannel(transferMatcher.getActualChannel());
+                dispositionResponse.setFirst(transferMatcher.getReceivedDeliveryId());
+            }
+        });
+        transferMatcher.onSuccess(dispositionFrameSender);
+
+        addHandler(transferMatcher);
+    }
+
+    private static class PayloadCollector extends BaseMatcher<Binary>
+    {
+        private final ByteArrayOutputStream combined;
+        private final Matcher<Binary> combinedMatcher;
+
+        public PayloadCollector(ByteArrayOutputStream combined, Matcher<Binary> combinedMatcher)
+        {
+            this.combined = combined;
+            this.combinedMatcher = combinedMatcher;
+        }
+
+        @Override
+        public boolean matches(Object item)
+        {
+            Binary payload = (Binary) item;
+            if (payload != null)
+            {
+                combined.write(payload.getArray(), payload.getArrayOffset(), payload.getLength());
+            }
+
+            return combinedMatcher == null || combinedMatcher.matches(new Binary(combined.toByteArray()));
+        }
+
+        @Override
+        public void describeTo(Description description)
+        {
+            description.appendText("combined payload ");
+            if (combinedMatcher != null)
+            {
+                combinedMatcher.describeTo(description);
+            }
+        }
+    }
+
     public void expectDispositionThatIsAcceptedAndSettled()
     {
         expectDisposition(true, new DescriptorMatcher(Accepted.DESCRIPTOR_CODE, Accepted.DESCRIPTOR_SYMBOL));
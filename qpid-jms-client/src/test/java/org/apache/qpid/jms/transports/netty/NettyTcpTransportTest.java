@@ -501,5 +501,10 @@ public class NettyTcpTransportTest extends QpidJmsTestCase {
             LOG.info("Transport error caught: {}", cause.getMessage(), cause);
             exceptions.add(cause);
         }
+
+        @Override
+        public void onTransportWritable() {
+            LOG.debug("Transport reports that it is writable.");
+        }
     }
 }
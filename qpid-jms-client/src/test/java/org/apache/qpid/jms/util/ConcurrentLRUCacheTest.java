@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentLRUCacheTest {
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCreateWithInvalidSize() {
+        new ConcurrentLRUCache<String, String>(0);
+    }
+
+    @Test
+    public void testGetAndPut() {
+        ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<String, String>(10);
+        assertNull(cache.get("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictsEldestEntry() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>(3);
+        for (int i = 0; i < 4; ++i) {
+            cache.put(i, i);
+        }
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get(0));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    public void testRecentlyReadEntryIsKept() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>(3);
+        for (int i = 0; i < 3; ++i) {
+            cache.put(i, i);
+        }
+
+        assertNotNull(cache.get(0));
+        cache.put(3, 3);
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testReduceMaxCacheSize() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>(10);
+        for (int i = 0; i < 10; ++i) {
+            cache.put(i, i);
+        }
+
+        cache.setMaxCacheSize(5);
+        assertEquals(5, cache.getMaxCacheSize());
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void testClear() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>(10);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1));
+    }
+
+    @Test(timeout=30000)
+    public void testConcurrentAccessStaysBounded() throws Exception {
+        final int threads = 8;
+        final ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>(50);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; ++t) {
+                final int seed = t;
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < 20000; ++i) {
+                                Integer key = (i * 31 + seed) % 200;
+                                Integer value = cache.get(key);
+                                if (value == null) {
+                                    cache.put(key, key);
+                                } else if (!value.equals(key)) {
+                                    failed.set(true);
+                                }
+                            }
+                        } catch (Throwable error) {
+                            failed.set(true);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            assertTrue(done.await(20, TimeUnit.SECONDS));
+        } finally {
+            ThreadPoolUtils.shutdownNow(executor);
+        }
+
+        assertFalse(failed.get());
+        assertTrue(cache.size() <= 50 + threads);
+        assertEquals(threads * 20000, cache.getHitCount() + cache.getMissCount());
+    }
+}
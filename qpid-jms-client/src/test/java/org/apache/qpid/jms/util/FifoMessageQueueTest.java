@@ -26,7 +26,11 @@ import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.JMSException;
 
@@ -277,6 +281,164 @@ public class FifoMessageQueueTest {
         assertSame(message, queue.dequeue(-1));
     }
 
+    @Test
+    public void testEnqueueBeyondInitialCapacity() {
+        FifoMessageQueue queue = new FifoMessageQueue(2);
+        queue.start();
+
+        List<JmsInboundMessageDispatch> messages = new ArrayList<JmsInboundMessageDispatch>();
+        for (int i = 0; i < 100; ++i) {
+            JmsInboundMessageDispatch envelope = createEnvelope();
+            messages.add(envelope);
+            queue.enqueue(envelope);
+
+            // Keep the ring wrapped around while it grows.
+            if (i % 3 == 0) {
+                assertSame(messages.remove(0), queue.dequeueNoWait());
+            }
+        }
+
+        assertEquals(messages.size(), queue.size());
+        for (JmsInboundMessageDispatch envelope : messages) {
+            assertSame(envelope, queue.dequeueNoWait());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testEnqueueFirstIsDequeuedBeforeEnqueued() {
+        JmsInboundMessageDispatch message1 = createEnvelope();
+        JmsInboundMessageDispatch message2 = createEnvelope();
+        JmsInboundMessageDispatch message3 = createEnvelope();
+
+        queue.enqueue(message1);
+        queue.enqueueFirst(message2);
+        queue.enqueue(message3);
+
+        assertEquals(3, queue.size());
+        assertSame(message2, queue.peek());
+        assertSame(message2, queue.dequeueNoWait());
+        assertSame(message1, queue.dequeueNoWait());
+        assertSame(message3, queue.dequeueNoWait());
+    }
+
+    @Test(timeout = 10000)
+    public void testDequeueWithTimeoutReturnsNullWhenEmpty() throws InterruptedException {
+        assertNull(queue.dequeue(50));
+    }
+
+    @Test(timeout = 10000)
+    public void testDequeueWaitsUntilQueueIsStarted() throws InterruptedException {
+        final JmsInboundMessageDispatch message = createEnvelope();
+        queue.stop();
+        queue.enqueue(message);
+
+        Thread runner = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                queue.start();
+            }
+        });
+        runner.start();
+
+        assertSame(message, queue.dequeue(-1));
+    }
+
+    @Test(timeout = 10000)
+    public void testDequeueReturnsNullWhenQueueIsClosed() throws InterruptedException {
+        Thread runner = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                queue.close();
+            }
+        });
+        runner.start();
+
+        assertNull(queue.dequeue(-1));
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentConsumersReceiveEachMessageOnce() throws Exception {
+        final int messageCount = 20000;
+        final int consumerCount = 4;
+        final Set<JmsInboundMessageDispatch> received =
+            Collections.newSetFromMap(new ConcurrentHashMap<JmsInboundMessageDispatch, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(messageCount);
+
+        List<Thread> consumers = new ArrayList<Thread>();
+        for (int i = 0; i < consumerCount; ++i) {
+            Thread consumer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        JmsInboundMessageDispatch envelope = null;
+                        while ((envelope = queue.dequeue(-1)) != null) {
+                            if (!received.add(envelope)) {
+                                duplicates.incrementAndGet();
+                            }
+                            done.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+
+        for (int i = 0; i < messageCount; ++i) {
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(sequence++);
+            if (i % 100 == 0) {
+                queue.enqueueFirst(envelope);
+            } else {
+                queue.enqueue(envelope);
+            }
+        }
+
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        queue.close();
+        for (Thread consumer : consumers) {
+            consumer.join(5000);
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(messageCount, received.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testDequeueNoWaitIntoList() {
+        List<JmsInboundMessageDispatch> messages = createFullRangePrioritySet();
+        for (JmsInboundMessageDispatch envelope: messages) {
+            queue.enqueue(envelope);
+        }
+
+        List<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>();
+        assertEquals(4, queue.dequeueNoWait(result, 4));
+        assertEquals(4, result.size());
+        assertEquals(6, queue.size());
+
+        queue.stop();
+        assertEquals(0, queue.dequeueNoWait(result, 4));
+        queue.start();
+
+        assertEquals(6, queue.dequeueNoWait(result, 20));
+        assertEquals(10, result.size());
+        assertTrue(queue.isEmpty());
+    }
+
     private List<JmsInboundMessageDispatch> createFullRangePrioritySet() {
         List<JmsInboundMessageDispatch> messages = new ArrayList<JmsInboundMessageDispatch>();
         for (int i = 0; i < 10; ++i) {
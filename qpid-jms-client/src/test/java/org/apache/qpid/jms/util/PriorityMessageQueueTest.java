@@ -347,6 +347,116 @@ public class PriorityMessageQueueTest {
         assertSame(message, queue.dequeue(-1));
     }
 
+    @Test(timeout = 10000)
+    public void testTimedDequeueKeepsWaitingAfterWakeup() throws InterruptedException {
+        final JmsInboundMessageDispatch message = createEnvelope();
+        Thread runner = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                queue.stop();
+                queue.start();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                queue.enqueue(message);
+            }
+        });
+        runner.start();
+
+        assertSame(message, queue.dequeue(5000));
+    }
+
+    @Test
+    public void testSamePriorityRemainsFifoBeyondInitialCapacity() throws JMSException {
+        List<JmsInboundMessageDispatch> messages = new ArrayList<JmsInboundMessageDispatch>();
+        for (int i = 0; i < 50; ++i) {
+            JmsInboundMessageDispatch envelope = createEnvelope(5);
+            messages.add(envelope);
+            queue.enqueue(envelope);
+            if (i % 4 == 0) {
+                assertSame(messages.remove(0), queue.dequeueNoWait());
+            }
+        }
+
+        queue.enqueue(createEnvelope(1));
+        queue.enqueue(createEnvelope(9));
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+
+        for (JmsInboundMessageDispatch envelope : messages) {
+            assertSame(envelope, queue.dequeueNoWait());
+        }
+
+        assertEquals(1, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testStarvationLimitAllowsLowerPriorityProgress() throws JMSException {
+        PriorityMessageQueue queue = new PriorityMessageQueue(2);
+        queue.start();
+
+        JmsInboundMessageDispatch low = createEnvelope(1);
+        JmsInboundMessageDispatch middle = createEnvelope(4);
+        queue.enqueue(low);
+        queue.enqueue(middle);
+        for (int i = 0; i < 6; ++i) {
+            queue.enqueue(createEnvelope(9));
+        }
+
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertSame(low, queue.peek());
+        assertSame(low, queue.dequeueNoWait());
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertSame(middle, queue.dequeueNoWait());
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testStrictPriorityOrderByDefault() throws JMSException {
+        assertEquals(0, ((PriorityMessageQueue) queue).getStarvationLimit());
+
+        queue.enqueue(createEnvelope(1));
+        for (int i = 0; i < 20; ++i) {
+            queue.enqueue(createEnvelope(9));
+        }
+
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(9, queue.dequeueNoWait().getMessage().getJMSPriority());
+        }
+        assertEquals(1, queue.dequeueNoWait().getMessage().getJMSPriority());
+    }
+
+    @Test
+    public void testDequeueNoWaitIntoList() {
+        List<JmsInboundMessageDispatch> messages = createFullRangePrioritySet();
+        for (JmsInboundMessageDispatch envelope: messages) {
+            queue.enqueue(envelope);
+        }
+
+        List<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>();
+        assertEquals(4, queue.dequeueNoWait(result, 4));
+        assertEquals(4, result.size());
+        assertEquals(6, queue.size());
+
+        queue.stop();
+        assertEquals(0, queue.dequeueNoWait(result, 4));
+        queue.start();
+
+        assertEquals(6, queue.dequeueNoWait(result, 20));
+        assertEquals(10, result.size());
+        assertTrue(queue.isEmpty());
+    }
+
     private List<JmsInboundMessageDispatch> createFullRangePrioritySet() {
         List<JmsInboundMessageDispatch> messages = new ArrayList<JmsInboundMessageDispatch>();
         for (int i = 0; i < 10; ++i) {
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test for the QpidJMSThreadFactory class.
+ */
+public class QpidJMSThreadFactoryTest extends QpidJmsTestCase {
+
+    private static final String THREAD_NAME = "Test Thread";
+
+    private final Runnable runner = new Runnable() {
+
+        @Override
+        public void run() {
+        }
+    };
+
+    @Test(timeout=10000)
+    public void testCreateDaemonThread() {
+        Thread thread = new QpidJMSThreadFactory(THREAD_NAME, true).newThread(runner);
+        assertEquals(THREAD_NAME, thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test(timeout=10000)
+    public void testCreateNonDaemonThread() {
+        Thread thread = new QpidJMSThreadFactory(THREAD_NAME, false).newThread(runner);
+        assertEquals(THREAD_NAME, thread.getName());
+        assertFalse(thread.isDaemon());
+    }
+
+    @Test(timeout=10000)
+    public void testCreateVirtualThreadFallsBackWhenNotSupported() {
+        Thread thread = new QpidJMSThreadFactory(THREAD_NAME, false, true).newThread(runner);
+        assertEquals(THREAD_NAME, thread.getName());
+
+        if (QpidJMSThreadFactory.isVirtualThreadsSupported()) {
+            assertTrue(thread.isDaemon());
+        } else {
+            assertFalse(thread.isDaemon());
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testCreatedThreadRunsTask() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new QpidJMSThreadFactory(THREAD_NAME, true, true).newThread(new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        thread.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
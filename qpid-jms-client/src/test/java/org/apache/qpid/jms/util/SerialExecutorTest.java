@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the SerialExecutor class.
+ */
+public class SerialExecutorTest extends QpidJmsTestCase {
+
+    private ExecutorService pool;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        ThreadPoolUtils.shutdownNow(pool);
+        super.tearDown();
+    }
+
+    @Test(timeout=10000, expected=IllegalArgumentException.class)
+    public void testCreateWithNullTarget() {
+        new SerialExecutor(null);
+    }
+
+    @Test(timeout=10000, expected=IllegalArgumentException.class)
+    public void testCreateWithInvalidTasksPerRun() {
+        new SerialExecutor(pool, 0);
+    }
+
+    @Test(timeout=10000)
+    public void testTasksRunInSubmissionOrder() throws Exception {
+        final int count = 1000;
+        final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(count);
+
+        SerialExecutor executor = new SerialExecutor(pool, 8);
+        for (int i = 0; i < count; ++i) {
+            final int value = i;
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    results.add(value);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < count; ++i) {
+            assertEquals(Integer.valueOf(i), results.get(i));
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testTasksNeverRunConcurrently() throws Exception {
+        final int count = 500;
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(count);
+
+        final SerialExecutor executor = new SerialExecutor(pool, 1);
+        Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                if (!running.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+                Thread.yield();
+                running.set(false);
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < count; ++i) {
+            executor.execute(task);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+    }
+
+    @Test(timeout=10000)
+    public void testExecutorsShareTargetThreads() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch done = new CountDownLatch(2);
+            final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+            Runnable task = new Runnable() {
+
+                @Override
+                public void run() {
+                    threads.add(Thread.currentThread().getName());
+                    done.countDown();
+                }
+            };
+
+            new SerialExecutor(single).execute(task);
+            new SerialExecutor(single).execute(task);
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(threads.get(0), threads.get(1));
+        } finally {
+            ThreadPoolUtils.shutdownNow(single);
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testFailedTaskDoesNotStopLaterTasks() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+
+        SerialExecutor executor = new SerialExecutor(pool);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+                throw new RuntimeException("Expected");
+            }
+        });
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, ran.get());
+        assertEquals(0, executor.getPendingTaskCount());
+    }
+}